@@ -0,0 +1,143 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//requires the jdk.incubator.vector module, loaded by GenerationKernel.createDefault()
+public class VectorGenerationKernel
+implements GenerationKernel
+{
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private final ScalarGenerationKernel tailKernel = new ScalarGenerationKernel();
+
+    @Override
+    public void calculate
+    (
+        long[] src, long[] dest,
+        int up, int cur, int down,
+        int begin, int end,
+        boolean[] changed, int changedOffset,
+        long[] counts,
+        LifeRule rule
+    )
+    {
+        boolean conway = rule.isConway();
+        int lanes = SPECIES.length();
+        int i = begin;
+        for (; i + lanes <= end; i += lanes)
+        {
+            LongVector upC = LongVector.fromArray(SPECIES, src, up + i);
+            LongVector upW = west(upC, src, up + i);
+            LongVector upE = east(upC, src, up + i);
+            LongVector curC = LongVector.fromArray(SPECIES, src, cur + i);
+            LongVector curW = west(curC, src, cur + i);
+            LongVector curE = east(curC, src, cur + i);
+            LongVector downC = LongVector.fromArray(SPECIES, src, down + i);
+            LongVector downW = west(downC, src, down + i);
+            LongVector downE = east(downC, src, down + i);
+
+            //full adders, 3 inputs each
+            LongVector s0 = upW.lanewise(VectorOperators.XOR, upC).lanewise(VectorOperators.XOR, upE);
+            LongVector c0 = upW.and(upC).or(upE.and(upW.lanewise(VectorOperators.XOR, upC)));
+            LongVector s1 = curW.lanewise(VectorOperators.XOR, curE).lanewise(VectorOperators.XOR, downW);
+            LongVector c1 = curW.and(curE).or(downW.and(curW.lanewise(VectorOperators.XOR, curE)));
+            LongVector s2 = downC.lanewise(VectorOperators.XOR, downE);
+            LongVector c2 = downC.and(downE);
+
+            //count bits: b0 + 2 * b1 + 4 * b2 + 8 * b3
+            LongVector b0 = s0.lanewise(VectorOperators.XOR, s1).lanewise(VectorOperators.XOR, s2);
+            LongVector k0 = s0.and(s1).or(s2.and(s0.lanewise(VectorOperators.XOR, s1)));
+            LongVector t = c0.lanewise(VectorOperators.XOR, c1).lanewise(VectorOperators.XOR, c2);
+            LongVector k1 = c0.and(c1).or(c2.and(c0.lanewise(VectorOperators.XOR, c1)));
+            LongVector b1 = t.lanewise(VectorOperators.XOR, k0);
+            LongVector k2 = t.and(k0);
+            LongVector alive = conway
+                //b1 & ~b2 & ~b3 == b1 & ~(k1 | k2) because b2 | b3 == k1 | k2
+                ? b1.and(k1.or(k2).not()).and(b0.or(curC))
+                : calculateNextState(rule, curC, b0, b1, k1.lanewise(VectorOperators.XOR, k2), k1.and(k2));
+            alive.intoArray(dest, cur + i);
+
+            if (changed == null && counts == null) continue;
+            //changed words are rare, so they are counted by scalar code
+            long diff = alive.compare(VectorOperators.NE, curC).toLong();
+            for (; diff != 0; diff &= diff - 1)
+            {
+                int word = i + Long.numberOfTrailingZeros(diff);
+                if (changed != null) changed[changedOffset + word] = true;
+                if (counts != null) ScalarGenerationKernel.count(counts, src[cur + word], dest[cur + word]);
+            }
+        }
+        if (i < end)
+            this.tailKernel.calculate(src, dest, up, cur, down, i, end, changed, changedOffset, counts, rule);
+    }
+
+    //see LifeRule.calculateNextState
+    private static LongVector calculateNextState
+    (
+        LifeRule rule,
+        LongVector alive,
+        LongVector b0, LongVector b1, LongVector b2, LongVector b3
+    )
+    {
+        long[] counts = rule.getCountTerms();
+        long[] births = rule.getBirthTerms();
+        long[] survivals = rule.getSurvivalTerms();
+        LongVector birth = LongVector.zero(SPECIES);
+        LongVector survival = LongVector.zero(SPECIES);
+        for (int i = 0; i < counts.length; i++)
+        {
+            long count = counts[i];
+            LongVector eq = b0.lanewise(VectorOperators.XOR, (count & 1) - 1)
+                .and(b1.lanewise(VectorOperators.XOR, (count >>> 1 & 1) - 1))
+                .and(b2.lanewise(VectorOperators.XOR, (count >>> 2 & 1) - 1))
+                .and(b3.lanewise(VectorOperators.XOR, (count >>> 3 & 1) - 1));
+            birth = birth.or(eq.and(births[i]));
+            survival = survival.or(eq.and(survivals[i]));
+        }
+        return alive.and(survival).or(alive.not().and(birth));
+    }
+
+    private static LongVector west(LongVector center, long[] src, int offset)
+    {
+        return center
+            .lanewise(VectorOperators.LSHL, 1)
+            .or(LongVector.fromArray(SPECIES, src, offset - 1).lanewise(VectorOperators.LSHR, 63));
+    }
+
+    private static LongVector east(LongVector center, long[] src, int offset)
+    {
+        return center
+            .lanewise(VectorOperators.LSHR, 1)
+            .or(LongVector.fromArray(SPECIES, src, offset + 1).lanewise(VectorOperators.LSHL, 63));
+    }
+
+}
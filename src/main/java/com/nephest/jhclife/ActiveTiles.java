@@ -0,0 +1,169 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+//a tile is one population word wide, only tiles that are active must be calculated
+public class ActiveTiles
+{
+
+    public static final int TILE_WIDTH = PackedPopulation.WORD_SIZE;
+    public static final int TILE_HEIGHT = 64;
+
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final boolean[] active;
+    private final boolean[] changed;
+    private int activeCount;
+
+    public ActiveTiles(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        this.columns = PackedPopulation.calculateWordCount(width);
+        this.rows = calculateRowCount(height);
+        this.active = new boolean[this.columns * this.rows];
+        this.changed = new boolean[this.active.length];
+        activateAll();
+    }
+
+    public static int calculateRowCount(int height)
+    {
+        return (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+    }
+
+    public boolean matches(PackedPopulation population)
+    {
+        return population.getWidth() == this.width && population.getHeight() == this.height;
+    }
+
+    public int getColumns()
+    {
+        return this.columns;
+    }
+
+    public int getRows()
+    {
+        return this.rows;
+    }
+
+    public int getTileCount()
+    {
+        return this.active.length;
+    }
+
+    public int getActiveCount()
+    {
+        return this.activeCount;
+    }
+
+    public BitSet getActive()
+    {
+        BitSet result = new BitSet(this.active.length);
+        for (int i = 0; i < this.active.length; i++) if (this.active[i]) result.set(i);
+        return result;
+    }
+
+    public boolean isActive(int column, int row)
+    {
+        return this.active[row * this.columns + column];
+    }
+
+    public boolean isChanged(int column, int row)
+    {
+        return this.changed[row * this.columns + column];
+    }
+
+    //kernels mark changed words directly, a word index is a column index
+    boolean[] getChanged()
+    {
+        return this.changed;
+    }
+
+    int getRowOffset(int row)
+    {
+        return row * this.columns;
+    }
+
+    //tiles are marked by the tasks that own them, so no synchronization is required
+    public void markChanged(int column, int row)
+    {
+        this.changed[row * this.columns + column] = true;
+    }
+
+    public void activateAll()
+    {
+        Arrays.fill(this.active, true);
+        Arrays.fill(this.changed, false);
+        this.activeCount = this.active.length;
+    }
+
+    //activates a tile and its neighbors
+    public void activate(int column, int row)
+    {
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            int r = Math.floorMod(row + dy, this.rows);
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                int ix = r * this.columns + Math.floorMod(column + dx, this.columns);
+                if (!this.active[ix]) this.activeCount++;
+                this.active[ix] = true;
+            }
+        }
+    }
+
+    //changed tiles and their neighbors must be calculated in the next generation
+    public void update()
+    {
+        Arrays.fill(this.active, false);
+        for (int row = 0; row < this.rows; row++)
+        {
+            for (int column = 0; column < this.columns; column++)
+            {
+                if (!this.changed[row * this.columns + column]) continue;
+                for (int dy = -1; dy <= 1; dy++)
+                {
+                    int r = Math.floorMod(row + dy, this.rows);
+                    for (int dx = -1; dx <= 1; dx++)
+                    {
+                        this.active[r * this.columns + Math.floorMod(column + dx, this.columns)] = true;
+                    }
+                }
+            }
+        }
+        Arrays.fill(this.changed, false);
+        int count = 0;
+        for (boolean tile : this.active) if (tile) count++;
+        this.activeCount = count;
+    }
+
+}
@@ -26,10 +26,13 @@
 
 package com.nephest.jhclife;
 
-import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,27 +40,66 @@ public class ClassicLifeModel
 implements java.io.Closeable
 {
 
+    public static final String CYCLE_PERIOD_METRIC = "cycle.period";
+    public static final String CYCLE_START_METRIC = "cycle.start";
+    public static final String AHEAD_DEPTH_METRIC = "ahead.depth";
+    public static final String AHEAD_BUFFERED_METRIC = "ahead.buffered";
+    public static final String AHEAD_UNDERRUN_METRIC = "ahead.underruns";
+    public static final String SNAPSHOT_COPIED_TILE_METRIC = "snapshot.tiles.copied";
+    public static final String EDIT_COUNT_METRIC = "edit.applied";
+    public static final String EDIT_LATENCY_METRIC = "edit.latency.last";
+    public static final String EDIT_LATENCY_MAX_METRIC = "edit.latency.max";
+    public static final String TURBO_BATCH_METRIC = "turbo.batch";
+    //turbo mode publishes the last calculated generation at this rate
+    public static final long TURBO_PUBLISH_PERIOD_NANOS = 1_000_000_000L / 60;
+
     private static final Logger LOG
         = Logger.getLogger(ClassicLifeModel.class.getName());
 
-    public static final int POPULATION_MIN = 2;
-    public static final int POPULATION_MAX = 3;
-    public static final int POPULATION_REPRODUCTION = 3;
-
     private final ForkJoinPool forkJoinPool;
     private final ScheduledExecutorService executor;
     private final Random random = new Random();
-    private GenerationCalculator generationCalculator;
+    private final LifeMetrics metrics = new LifeMetrics();
+    //cell edits of a running model, they are applied between generations
+    private final Queue<PendingEdit> edits = new ConcurrentLinkedQueue<>();
+    //guards the queueing of edits against the running to stopped transition
+    private final Object editLock = new Object();
+    private long editLatencyMax = 0;
+    private boolean hashInvalid = false;
+    private GenerationEngine engine;
+    private LifeRule rule = LifeRule.CONWAY;
     private ScheduledFuture generationFuture;
+    //every start of the generation clock gets a new run, ticks of the previous runs do nothing
+    private long clockRun = 0;
+    private CycleDetector cycleDetector = new CycleDetector();
+    private boolean autoStop = false;
+
+    //generations that are calculated ahead of the generation clock
+    private final Object publishLock = new Object();
+    private int computeAheadDepth = 0;
+    private volatile BlockingQueue<Generation> aheadBuffer;
+    private Generation aheadStop;
+    //edits of the generations that were not published yet, they survive the rewind
+    private final Queue<PendingEdit> aheadEdits = new ArrayDeque<>();
+    private Thread producer;
+    private boolean producerRunning = false;
+
+    //generations are calculated back-to-back in the pool, the generation clock is not used
+    private boolean turbo = false;
+    private boolean turboActive = false;
+    private boolean turboRunning = false;
 
     private int width;
     private int height;
-    private int[][] population;
-    private int[][] lastPopulation;
-    private Generation lastGeneration;
+    private PackedPopulation population;
+    private PackedPopulation lastPopulation;
+    private volatile Generation lastGeneration;
+    private PopulationSnapshot lastSnapshot;
     private double populationProbability = 0.5;
     private long generation = 0;
     private long id = 0;
+    private long hash = 0;
+    private long hashedGeneration = 0;
 
     private volatile boolean closed = false;
     private boolean externalExecutor = true;
@@ -77,6 +119,8 @@ implements java.io.Closeable
         Objects.requireNonNull(executor);
         this.width = width;
         this.height = height;
+        this.engine = new PackedGenerationEngine(pool);
+        this.engine.setHashListener(this::onGenerationHash);
         createNewPopulation(width, height);
         this.forkJoinPool = pool;
         this.executor = executor;
@@ -120,8 +164,8 @@ implements java.io.Closeable
     {
         this.width = width;
         this.height = height;
-        this.population = new int[width][height];
-        this.lastPopulation = new int[width][height];
+        this.population = new PackedPopulation(width, height);
+        this.lastPopulation = new PackedPopulation(width, height);
     }
 
     @Override
@@ -153,9 +197,122 @@ implements java.io.Closeable
         return this.random;
     }
 
-    private GenerationCalculator getGenerationCalculator()
+    public GenerationEngine getEngine()
+    {
+        return this.engine;
+    }
+
+    public synchronized void setEngine(GenerationEngine engine)
+    {
+        Objects.requireNonNull(engine);
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        this.engine.setHashListener(null);
+        this.engine = engine;
+        engine.setHashListener(this::onGenerationHash);
+        engine.invalidate();
+        getMetrics().removeAll(GenerationEngine.ENGINE_METRIC_PREFIX);
+        if (wasRunning) start();
+    }
+
+    public LifeMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    public LifeRule getRule()
+    {
+        return this.rule;
+    }
+
+    public synchronized void setRule(LifeRule rule)
     {
-        return this.generationCalculator;
+        Objects.requireNonNull(rule);
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        this.rule = rule;
+        //the generations of the previous rule can't repeat under the new one
+        resetCycle();
+        if (wasRunning) start();
+    }
+
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    //0 if no cycle was found in the recent generations, 1 for still lifes
+    public long getCyclePeriod()
+    {
+        return this.cycleDetector.getPeriod();
+    }
+
+    //the first generation of the cycle, -1 if no cycle was found
+    public long getCycleStart()
+    {
+        return this.cycleDetector.getCycleStart();
+    }
+
+    public int getCycleHistorySize()
+    {
+        return this.cycleDetector.getHistorySize();
+    }
+
+    public synchronized void setCycleHistorySize(int size)
+    {
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        this.cycleDetector = new CycleDetector(size);
+        resetCycle();
+        if (wasRunning) start();
+    }
+
+    public boolean isAutoStop()
+    {
+        return this.autoStop;
+    }
+
+    //stops the model when it enters a cycle
+    public synchronized void setAutoStop(boolean autoStop)
+    {
+        this.autoStop = autoStop;
+    }
+
+    public int getComputeAheadDepth()
+    {
+        return this.computeAheadDepth;
+    }
+
+    /*
+        Generations are calculated ahead into a buffer of this size by a producer thread,
+        the generation clock only publishes them. 0 calculates generations synchronously.
+    */
+    public synchronized void setComputeAheadDepth(int depth)
+    {
+        if (depth < 0) throw new IllegalArgumentException("depth must not be negative");
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        this.computeAheadDepth = depth;
+        getMetrics().set(AHEAD_DEPTH_METRIC, depth);
+        if (wasRunning) start();
+    }
+
+    public boolean isTurbo()
+    {
+        return this.turbo;
+    }
+
+    /*
+        Turbo mode calculates generations as fast as the pool allows, the last calculated
+        generation is published every TURBO_PUBLISH_PERIOD_NANOS. The generation lifetime
+        and compute ahead depth are ignored while it is enabled.
+    */
+    public synchronized void setTurbo(boolean turbo)
+    {
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        this.turbo = turbo;
+        if (wasRunning) start();
     }
 
     private ScheduledFuture getGenerationFuture()
@@ -173,14 +330,15 @@ implements java.io.Closeable
         return this.height;
     }
 
+    //the scratch buffer, it is equal to the last population only after edits
     protected int[][] getPopulation()
     {
-        return this.population;
+        return this.population.toArray();
     }
 
     protected int[][] getLastPopulation()
     {
-        return this.lastPopulation;
+        return this.lastPopulation.toArray();
     }
 
     private void setPopulationProbability(double probability)
@@ -223,13 +381,22 @@ implements java.io.Closeable
         if (isRunning()) return;
         if (isClosed())
             throw new IllegalStateException("Can't start model. Resources are closed");
-        this.generationFuture = getExecutor().scheduleAtFixedRate
-        (
-            this::nextGeneration,
-            calculateFinalDelay(),
-            this.generationLifeTimePeriod,
-            this.generationLifeTimeUnit
-        );
+        if (isTurbo())
+        {
+            startTurbo();
+        }
+        else
+        {
+            if (getComputeAheadDepth() > 0) startProducer();
+            long run = ++this.clockRun;
+            this.generationFuture = getExecutor().scheduleAtFixedRate
+            (
+                getComputeAheadDepth() > 0 ? this::publishNextGeneration : ()->tick(run),
+                calculateFinalDelay(),
+                this.generationLifeTimePeriod,
+                this.generationLifeTimeUnit
+            );
+        }
         this.running = true;
     }
 
@@ -243,9 +410,27 @@ implements java.io.Closeable
     public synchronized void stop()
     {
         if(!isRunning()) return;
+        if (isTurbo())
+        {
+            stopTurbo();
+        }
+        else
+        {
+            stopGenerationFuture();
+        }
+        stopProducer();
+        synchronized (this.editLock)
+        {
+            this.running = false;
+        }
+        //edits that were not applied by the generation thread
+        applyEdits();
+        saveGeneration();
+    }
+
+    private void stopGenerationFuture()
+    {
         getGenerationFuture().cancel(false);
-        if(getGenerationCalculator() != null)
-            getGenerationCalculator().cancel(false);
         boolean got = getGenerationFuture().isCancelled();
         while (!got)
         {
@@ -264,7 +449,223 @@ implements java.io.Closeable
                 got = true;
             }
         }
-        this.running = false;
+    }
+
+    private void startTurbo()
+    {
+        ForkJoinPool pool
+            = getForkJoinPool() == null
+            ? ForkJoinPool.commonPool()
+            : getForkJoinPool();
+        this.turboActive = true;
+        this.turboRunning = true;
+        pool.execute(this::runTurbo);
+    }
+
+    //the model lock is released between batches, so edits and stop requests are not starved
+    private void runTurbo()
+    {
+        boolean active = true;
+        while (active)
+        {
+            synchronized (this)
+            {
+                active = false;
+                try
+                {
+                    active = calculateTurboBatch();
+                }
+                catch (RuntimeException ex)
+                {
+                    LOG.log(Level.SEVERE, ex.getMessage(), ex);
+                }
+                finally
+                {
+                    //the loop ends under the same lock, so a restarted loop is never ended by this one
+                    if (!active) endTurbo();
+                }
+            }
+        }
+    }
+
+    //returns false if the loop must end
+    private boolean calculateTurboBatch()
+    {
+        if (!this.turboActive) return false;
+        applyEdits();
+        long begin = System.nanoTime();
+        long batch = 0;
+        boolean cycleEntered;
+        do
+        {
+            cycleEntered = computeGenerations(1);
+            batch++;
+        }
+        while (!cycleEntered && System.nanoTime() - begin < TURBO_PUBLISH_PERIOD_NANOS);
+        saveGeneration();
+        this.lastGenerationNanos = System.nanoTime();
+        getMetrics().set(TURBO_BATCH_METRIC, batch);
+        if (cycleEntered) stopOnCycle();
+        return !cycleEntered;
+    }
+
+    private void endTurbo()
+    {
+        this.turboActive = false;
+        this.turboRunning = false;
+        notifyAll();
+    }
+
+    private void stopTurbo()
+    {
+        this.turboActive = false;
+        while (this.turboRunning)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException ex)
+            {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void startProducer()
+    {
+        BlockingQueue<Generation> buffer = new ArrayBlockingQueue<>(getComputeAheadDepth());
+        synchronized (this.publishLock)
+        {
+            this.aheadBuffer = buffer;
+        }
+        this.aheadStop = null;
+        this.aheadEdits.clear();
+        this.producerRunning = true;
+        this.producer = Executors.defaultThreadFactory().newThread(()->produceGenerations(buffer));
+        this.producer.setDaemon(true);
+        this.producer.setName("ClassicLifeModel producer");
+        this.producer.start();
+    }
+
+    //the producer calculates generations while it holds the model lock, so it never races edits
+    private void produceGenerations(BlockingQueue<Generation> buffer)
+    {
+        try
+        {
+            boolean cycleEntered = false;
+            while (!cycleEntered)
+            {
+                Generation generation;
+                synchronized (this)
+                {
+                    if (buffer != this.aheadBuffer) return;
+                    pruneAheadEdits(getLastGeneration().getGenerationNumber());
+                    applyEdits(this.aheadEdits);
+                    cycleEntered = computeGenerations(1);
+                    generation = createGeneration();
+                    if (cycleEntered) this.aheadStop = generation;
+                }
+                buffer.put(generation);
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            //stopped
+        }
+        catch (RuntimeException ex)
+        {
+            LOG.log(Level.SEVERE, ex.getMessage(), ex);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                this.producerRunning = false;
+                notifyAll();
+            }
+        }
+    }
+
+    //the model is rewound to the last published generation, calculated generations are dropped
+    private void stopProducer()
+    {
+        if (this.aheadBuffer == null) return;
+        synchronized (this.publishLock)
+        {
+            this.aheadBuffer = null;
+        }
+        //wakes the producer up if the buffer is full
+        this.producer.interrupt();
+        while (this.producerRunning)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException ex)
+            {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+        Generation published = getLastGeneration();
+        if (published.getGenerationNumber() == getGenerationNumber())
+        {
+            this.aheadEdits.clear();
+            return;
+        }
+        this.lastPopulation = published.copyPackedPopulation();
+        this.generation = published.getGenerationNumber();
+        this.hash = published.getHash();
+        getEngine().invalidate();
+        reapplyAheadEdits(published.getGenerationNumber());
+    }
+
+    //an edit that was applied to generation N is a part of generation N + 1 and later
+    private void pruneAheadEdits(long publishedGeneration)
+    {
+        while
+        (
+            !this.aheadEdits.isEmpty()
+            && this.aheadEdits.peek().getGeneration() < publishedGeneration
+        )
+            this.aheadEdits.poll();
+    }
+
+    //the edits were already counted and bumped the id when the producer applied them
+    private void reapplyAheadEdits(long publishedGeneration)
+    {
+        pruneAheadEdits(publishedGeneration);
+        if (this.aheadEdits.isEmpty()) return;
+        for (PendingEdit edit : this.aheadEdits) edit.apply();
+        this.aheadEdits.clear();
+        if (this.hashInvalid) this.hash = PopulationHash.hash(this.lastPopulation);
+        this.hashInvalid = false;
+        resetCycle();
+    }
+
+    //the generation clock of the compute ahead mode
+    private void publishNextGeneration()
+    {
+        synchronized (this.publishLock)
+        {
+            BlockingQueue<Generation> buffer = this.aheadBuffer;
+            if (buffer == null) return;
+            Generation generation = buffer.poll();
+            getMetrics().set(AHEAD_BUFFERED_METRIC, buffer.size());
+            if (generation == null)
+            {
+                getMetrics().add(AHEAD_UNDERRUN_METRIC, 1);
+                return;
+            }
+            this.lastGeneration = generation;
+            this.lastGenerationNanos = System.nanoTime();
+            if (generation == this.aheadStop)
+            {
+                this.aheadBuffer = null;
+                stopOnCycle();
+            }
+        }
     }
 
     public long getGenerationLifeTime(TimeUnit unit)
@@ -283,10 +684,36 @@ implements java.io.Closeable
 
     private void externalModification()
     {
+        getEngine().invalidate();
         this.id++;
+        this.hash = PopulationHash.hash(this.lastPopulation);
+        resetCycle();
         saveGeneration();
     }
 
+    private void resetCycle()
+    {
+        this.cycleDetector.reset();
+        this.cycleDetector.add(getGenerationNumber(), getHash());
+        getMetrics().remove(CYCLE_PERIOD_METRIC);
+        getMetrics().remove(CYCLE_START_METRIC);
+    }
+
+    private void addHash(long generation, long hash)
+    {
+        this.hash = hash;
+        this.hashedGeneration = generation;
+        if (!this.cycleDetector.add(generation, hash)) return;
+        getMetrics().set(CYCLE_PERIOD_METRIC, getCyclePeriod());
+        getMetrics().set(CYCLE_START_METRIC, getCycleStart());
+    }
+
+    //called by the engine after every generation
+    private void onGenerationHash(long hash)
+    {
+        addHash(this.hashedGeneration + 1, hash);
+    }
+
     public synchronized void populate(long seed, double populationProbability)
     {
         if (populationProbability < 0 || populationProbability > 1.0)
@@ -295,11 +722,11 @@ implements java.io.Closeable
         if (wasRunning) stop();
         getRandom().setSeed(seed);
         setPopulationProbability(populationProbability);
-        for (int col = 0; col < getPopulation().length; col++)
+        for (int col = 0; col < getWidth(); col++)
         {
-            for (int row = 0; row < getPopulation()[col].length; row++)
+            for (int row = 0; row < getHeight(); row++)
             {
-                getPopulation()[col][row] = nextPopulation();
+                this.population.setAlive(col, row, nextPopulation() == 1);
             }
         }
         savePopulation();
@@ -308,24 +735,20 @@ implements java.io.Closeable
         if (wasRunning) start();
     }
 
+    //edits keep both buffers equal
     private void savePopulation()
     {
-        for(int i = 0; i < getPopulation().length; i++)
-        {
-            getLastPopulation()[i]
-                = Arrays.copyOf(getPopulation()[i], getPopulation()[i].length);
-        }
+        this.lastPopulation.copyFrom(this.population);
     }
 
-    private int[][] copyLastPopulation()
+    /*
+        The engine result becomes the last population, the other buffer holds an older generation
+        and is only used as the engine scratch buffer, so generations are never copied.
+    */
+    private void swapPopulations(PackedPopulation result)
     {
-        int[][] copy = new int[getWidth()][getHeight()];
-        for(int i = 0; i < getLastPopulation().length; i++)
-        {
-            copy[i]
-                = Arrays.copyOf(getLastPopulation()[i], getLastPopulation()[i].length);
-        }
-        return copy;
+        this.population = this.lastPopulation;
+        this.lastPopulation = result;
     }
 
     protected int nextPopulation()
@@ -333,32 +756,205 @@ implements java.io.Closeable
         return getRandom().nextDouble() < getPopulationProbability() ? 1 : 0;
     }
 
+    /*
+        The tick holds the model lock, so stop() can't return while a generation is calculated.
+        A cancelled future is not waited for, so a late tick of a stopped clock must do nothing.
+    */
+    private synchronized void tick(long run)
+    {
+        if (!isRunning() || run != this.clockRun) return;
+        nextGeneration();
+    }
+
     protected void nextGeneration()
     {
-        this.generationCalculator
-            = new GenerationCalculator(getLastPopulation(), getPopulation());
-        ForkJoinPool pool
-            = getForkJoinPool() == null
-            ? ForkJoinPool.commonPool()
-            : getForkJoinPool();
-        pool.invoke(getGenerationCalculator());
-        savePopulation();
-        this.generation++;
+        applyEdits();
+        if (calculateGenerations(1)) stopOnCycle();
+    }
+
+    /*
+        The tick can't wait for itself, so its future is cancelled without waiting. Queued
+        edits are applied before the model is stopped, so a stopped model has no pending edits.
+    */
+    private void stopOnCycle()
+    {
+        if (getGenerationFuture() != null) getGenerationFuture().cancel(false);
+        synchronized (this.editLock)
+        {
+            applyEdits();
+            saveGeneration();
+            this.running = false;
+        }
+    }
+
+    public synchronized void advanceTo(long generationNumber)
+    {
+        if (generationNumber < getGenerationNumber())
+            throw new IllegalArgumentException("can't advance to a previous generation");
+        step(generationNumber - getGenerationNumber());
+    }
+
+    //calculates the generations back-to-back, only the last one is saved
+    public synchronized void step(long generations)
+    {
+        if (generations < 0) throw new IllegalArgumentException("generations must not be negative");
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        boolean cycleEntered = calculateGenerations(generations);
+        if (wasRunning && !cycleEntered) start();
+    }
+
+    private boolean calculateGenerations(long generations)
+    {
+        boolean cycleEntered = computeGenerations(generations);
         saveGeneration();
         this.lastGenerationNanos = System.nanoTime();
+        return cycleEntered;
+    }
+
+    //returns true if the model entered a cycle and must be stopped
+    private boolean computeGenerations(long generations)
+    {
+        boolean cycleDetected = this.cycleDetector.isCycleDetected();
+        this.hashedGeneration = getGenerationNumber();
+        PackedPopulation result = getEngine()
+            .calculate(this.lastPopulation, this.population, generations, getRule());
+        if (result != this.lastPopulation) swapPopulations(result);
+        getEngine().updateMetrics(getMetrics());
+        this.generation += generations;
+        //engines that don't track the hash are hashed once per call
+        if (this.hashedGeneration != getGenerationNumber())
+            addHash(getGenerationNumber(), PopulationHash.hash(this.lastPopulation));
+        return isAutoStop() && !cycleDetected && this.cycleDetector.isCycleDetected();
     }
 
-    public synchronized void setPopulation(int x, int y, boolean pop)
+    public void setPopulation(int x, int y, boolean pop)
     {
-        if (x < 0 || x > getWidth())
+        if (x < 0 || x >= getWidth())
             throw new IllegalArgumentException("x out of bounds");
-        if (y < 0 || y > getHeight())
+        if (y < 0 || y >= getHeight())
             throw new IllegalArgumentException("y out of bounds");
-        boolean wasRunning = isRunning();
-        if (wasRunning) stop();
-        getLastPopulation()[x][y] = pop ? 1 : 0;
-        externalModification();
-        if (wasRunning) start();
+        edit(()->applyCellEdit(x, y, pop));
+    }
+
+    //regions are clipped to the population
+    public void fillRegion(int x, int y, int width, int height, boolean alive)
+    {
+        checkRegion(width, height);
+        edit(()->applyRegionEdit((population)->population.fill(x, y, width, height, alive)));
+    }
+
+    public void clearRegion(int x, int y, int width, int height)
+    {
+        fillRegion(x, y, width, height, false);
+    }
+
+    public void randomizeRegion(int x, int y, int width, int height, long seed, double density)
+    {
+        checkRegion(width, height);
+        if (density < 0 || density > 1.0)
+            throw new IllegalArgumentException("density must be in 0-1 range");
+        edit(()->applyRegionEdit((population)->population.randomize(x, y, width, height, seed, density)));
+    }
+
+    //the top left cell of the generation is placed at x, y
+    public void stamp(Generation generation, int x, int y, StampMode mode)
+    {
+        Objects.requireNonNull(generation);
+        Objects.requireNonNull(mode);
+        Population stamp = generation.getPopulation();
+        edit(()->applyRegionEdit((population)->population.stamp(stamp, x, y, mode)));
+    }
+
+    protected static void checkRegion(int width, int height)
+    {
+        if (width < 0) throw new IllegalArgumentException("width must not be negative");
+        if (height < 0) throw new IllegalArgumentException("height must not be negative");
+    }
+
+    /*
+        Running models apply the edit before the next generation, the generation clock is not
+        restarted. Every edit of a stopped model bumps the id and saves one generation.
+        The edit returns false if it was dropped.
+    */
+    protected void edit(BooleanSupplier edit)
+    {
+        if (queueEdit(edit)) return;
+        synchronized (this)
+        {
+            if (queueEdit(edit)) return;
+            edit.getAsBoolean();
+            externalModification();
+        }
+    }
+
+    //returns false if the model is stopped and the edit must be applied directly
+    private boolean queueEdit(BooleanSupplier edit)
+    {
+        synchronized (this.editLock)
+        {
+            if (!isRunning()) return false;
+            this.edits.add(new PendingEdit(edit));
+            return true;
+        }
+    }
+
+    //edits of the previous population size are dropped
+    private boolean applyCellEdit(int x, int y, boolean alive)
+    {
+        if (x >= getWidth() || y >= getHeight()) return false;
+        boolean wasAlive = this.lastPopulation.isAlive(x, y);
+        this.hash = PopulationHash.update(getHash(), this.lastPopulation, x, y, alive);
+        this.lastPopulation.setAlive(x, y, alive);
+        getEngine().invalidate(x, y, getHash(), alive == wasAlive ? 0 : alive ? 1 : -1);
+        return true;
+    }
+
+    //the edit is applied to the last population, the hash is updated once per batch of edits
+    protected boolean applyRegionEdit(Consumer<PackedPopulation> edit)
+    {
+        edit.accept(this.lastPopulation);
+        getEngine().invalidate();
+        this.hashInvalid = true;
+        return true;
+    }
+
+    //called by the generation thread, or by a stopped model
+    private void applyEdits()
+    {
+        applyEdits(null);
+    }
+
+    //applied edits are added to the history if it is not null
+    private void applyEdits(Queue<PendingEdit> history)
+    {
+        PendingEdit edit = this.edits.poll();
+        if (edit == null) return;
+        long count = 0;
+        long latency = 0;
+        while (edit != null)
+        {
+            if (edit.apply())
+            {
+                latency = System.nanoTime() - edit.getNanos();
+                this.editLatencyMax = Math.max(this.editLatencyMax, latency);
+                count++;
+                if (history != null)
+                {
+                    edit.setGeneration(getGenerationNumber());
+                    history.add(edit);
+                }
+            }
+            edit = this.edits.poll();
+        }
+        if (count == 0) return;
+        if (this.hashInvalid) this.hash = PopulationHash.hash(this.lastPopulation);
+        this.hashInvalid = false;
+        this.id++;
+        resetCycle();
+        getMetrics().add(EDIT_COUNT_METRIC, count);
+        getMetrics().set(EDIT_LATENCY_METRIC, latency);
+        getMetrics().set(EDIT_LATENCY_MAX_METRIC, this.editLatencyMax);
     }
 
     public synchronized void setGeneration(Generation generation)
@@ -367,7 +963,7 @@ implements java.io.Closeable
         if (wasRunning) stop();
 
         setPopulationDimensions(generation.getWidth(), generation.getHeight());
-        this.population = generation.copyPopulation();
+        this.population = generation.copyPackedPopulation();
         this.generation = generation.getGenerationNumber();
         savePopulation();
         externalModification();
@@ -384,18 +980,33 @@ implements java.io.Closeable
             || this.lastGeneration.getGenerationNumber() != getGenerationNumber()
         )
         {
-            this.lastGeneration = new Generation
-            (
-                copyLastPopulation(),
-                getId(),
-                getGenerationNumber()
-            );
+            this.lastGeneration = createGeneration();
         }
     }
 
+    //consecutive snapshots share the tiles that didn't change, the engine can provide the count
+    private Generation createGeneration()
+    {
+        PopulationSnapshot snapshot = PopulationSnapshot.of
+        (
+            this.lastPopulation,
+            this.lastSnapshot,
+            getEngine().getPopulationCount(this.lastPopulation)
+        );
+        this.lastSnapshot = snapshot;
+        getMetrics().set(SNAPSHOT_COPIED_TILE_METRIC, snapshot.getCopiedTileCount());
+        return new Generation
+        (
+            snapshot,
+            getId(),
+            getGenerationNumber(),
+            getHash()
+        );
+    }
+
+    //the last published generation, getGenerationNumber can be ahead of it in compute ahead mode
     public Generation getLastGeneration()
     {
-        saveGeneration();
         return this.lastGeneration;
     }
 
@@ -404,4 +1015,40 @@ implements java.io.Closeable
         return this.lastGenerationNanos;
     }
 
+    private static final class PendingEdit
+    {
+
+        private final BooleanSupplier edit;
+        private final long nanos = System.nanoTime();
+        private long generation;
+
+        private PendingEdit(BooleanSupplier edit)
+        {
+            this.edit = edit;
+        }
+
+        //returns false if the edit was dropped
+        public boolean apply()
+        {
+            return this.edit.getAsBoolean();
+        }
+
+        public long getNanos()
+        {
+            return this.nanos;
+        }
+
+        //the generation the edit was applied to
+        public void setGeneration(long generation)
+        {
+            this.generation = generation;
+        }
+
+        public long getGeneration()
+        {
+            return this.generation;
+        }
+
+    }
+
 }
@@ -0,0 +1,119 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//finds repeated population hashes in a bounded history of recent generations
+public class CycleDetector
+{
+
+    public static final int DEFAULT_HISTORY_SIZE = 1024;
+
+    private final long[] hashes;
+    private final long[] generations;
+    private final Map<Long, Long> history = new HashMap<>();
+    private int next = 0;
+    private int size = 0;
+
+    private long period = 0;
+    private long cycleStart = -1;
+
+    public CycleDetector(int historySize)
+    {
+        if (historySize < 1) throw new IllegalArgumentException("history size must be more than 0");
+        this.hashes = new long[historySize];
+        this.generations = new long[historySize];
+    }
+
+    public CycleDetector()
+    {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    public int getHistorySize()
+    {
+        return this.hashes.length;
+    }
+
+    //0 if the population is not periodic, 1 for still lifes
+    public long getPeriod()
+    {
+        return this.period;
+    }
+
+    //the first generation of the cycle, -1 if the population is not periodic
+    public long getCycleStart()
+    {
+        return this.cycleStart;
+    }
+
+    public boolean isCycleDetected()
+    {
+        return getPeriod() > 0;
+    }
+
+    public void reset()
+    {
+        this.history.clear();
+        this.next = 0;
+        this.size = 0;
+        this.period = 0;
+        this.cycleStart = -1;
+    }
+
+    //returns true if a cycle was entered with this generation
+    public boolean add(long generation, long hash)
+    {
+        if (isCycleDetected()) return false;
+        Long previous = this.history.get(hash);
+        if (previous != null && previous < generation)
+        {
+            this.period = generation - previous;
+            this.cycleStart = previous;
+            return true;
+        }
+        if (this.size == this.hashes.length)
+        {
+            //the oldest entry can be shadowed by a later generation with the same hash
+            Long oldest = this.history.get(this.hashes[this.next]);
+            if (oldest != null && oldest == this.generations[this.next])
+                this.history.remove(this.hashes[this.next]);
+        }
+        else
+        {
+            this.size++;
+        }
+        this.hashes[this.next] = hash;
+        this.generations[this.next] = generation;
+        this.next = (this.next + 1) % this.hashes.length;
+        this.history.put(hash, generation);
+        return false;
+    }
+
+}
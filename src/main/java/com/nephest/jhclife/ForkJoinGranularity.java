@@ -0,0 +1,160 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+/*
+    Fork/join cost model of the generation calculation. Tasks are not split below
+    MIN_TASK_CELLS active cells, or below the size that gives every pool thread
+    TASKS_PER_THREAD tasks. Boards with fewer active cells than the sequential threshold
+    are calculated in the calling thread, so they don't pay for the pool at all.
+    The threshold is tuned by calculating a single generation of every PROBE_INTERVAL-th call
+    in the other mode and comparing the cell costs of both modes. Only boards within
+    PROBE_RANGE times of the threshold are probed, the mode of other boards is obvious.
+*/
+public class ForkJoinGranularity
+{
+
+    public static final long MIN_TASK_CELLS = 1L << 15;
+    public static final int TASKS_PER_THREAD = 4;
+    public static final long DEFAULT_SEQUENTIAL_THRESHOLD = 1L << 16;
+    public static final long SEQUENTIAL_THRESHOLD_MIN = 1L << 12;
+    public static final long SEQUENTIAL_THRESHOLD_MAX = 1L << 26;
+    public static final int PROBE_INTERVAL = 64;
+    public static final long PROBE_RANGE = 4;
+    //weight of the last timing in the averaged cell costs
+    public static final double COST_WEIGHT = 0.125;
+
+    private final int parallelism;
+    private long sequentialThreshold = DEFAULT_SEQUENTIAL_THRESHOLD;
+    private boolean tuning = true;
+    private long calls = 0;
+    private long costCells = 0;
+    private double sequentialCost = Double.NaN;
+    private double parallelCost = Double.NaN;
+
+    public ForkJoinGranularity(int parallelism)
+    {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be more than 0");
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    public long getSequentialThreshold()
+    {
+        return this.sequentialThreshold;
+    }
+
+    public void setSequentialThreshold(long threshold)
+    {
+        if (threshold < 0) throw new IllegalArgumentException("threshold must not be negative");
+        this.sequentialThreshold = threshold;
+    }
+
+    public boolean isTuning()
+    {
+        return this.tuning;
+    }
+
+    public void setTuning(boolean tuning)
+    {
+        this.tuning = tuning;
+    }
+
+    //a single thread pool can't calculate anything faster than the calling thread
+    public boolean isSequential(long cells)
+    {
+        return getParallelism() == 1 || cells < getSequentialThreshold();
+    }
+
+    //returns true if the next generation must be calculated in the other mode
+    public boolean isProbe(long cells)
+    {
+        if (getParallelism() == 1 || !isTuning() || !isNearThreshold(cells)) return false;
+        return ++this.calls % PROBE_INTERVAL == 0;
+    }
+
+    private boolean isNearThreshold(long cells)
+    {
+        long threshold = getSequentialThreshold();
+        return cells / PROBE_RANGE <= threshold && cells >= threshold / PROBE_RANGE;
+    }
+
+    //tile rows per task
+    public int calculateSplit(long cells, int tileRows)
+    {
+        if (tileRows <= 1 || cells <= 0) return Math.max(tileRows, 1);
+        long cellsPerRow = Math.max(cells / tileRows, 1);
+        long costRows = (MIN_TASK_CELLS + cellsPerRow - 1) / cellsPerRow;
+        long balanceRows = tileRows / ((long) getParallelism() * TASKS_PER_THREAD);
+        return (int) Math.min(Math.max(Math.max(costRows, balanceRows), 1), tileRows);
+    }
+
+    //the costs are dropped when the board size changes considerably
+    public void record(long cells, long generations, boolean sequential, long nanos)
+    {
+        if (!isTuning() || cells <= 0 || generations <= 0) return;
+        if (cells > this.costCells * 2 || cells * 2 < this.costCells)
+        {
+            this.costCells = cells;
+            this.sequentialCost = Double.NaN;
+            this.parallelCost = Double.NaN;
+        }
+        double cost = (double) nanos / generations / cells;
+        if (sequential)
+        {
+            this.sequentialCost = average(this.sequentialCost, cost);
+        }
+        else
+        {
+            this.parallelCost = average(this.parallelCost, cost);
+        }
+        tune(cells);
+    }
+
+    private static double average(double average, double value)
+    {
+        return Double.isNaN(average) ? value : average + (value - average) * COST_WEIGHT;
+    }
+
+    private void tune(long cells)
+    {
+        if (Double.isNaN(this.sequentialCost) || Double.isNaN(this.parallelCost)) return;
+        if (this.sequentialCost < this.parallelCost && cells >= getSequentialThreshold())
+        {
+            this.sequentialThreshold = Math.min(cells * 2, SEQUENTIAL_THRESHOLD_MAX);
+        }
+        else if (this.parallelCost < this.sequentialCost && cells < getSequentialThreshold())
+        {
+            this.sequentialThreshold = Math.max(cells, SEQUENTIAL_THRESHOLD_MIN);
+        }
+    }
+
+}
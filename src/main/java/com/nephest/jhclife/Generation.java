@@ -26,105 +26,139 @@
 
 package com.nephest.jhclife;
 
-import java.nio.ByteBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.stream.IntStream;
 
 public class Generation
 {
 
     public static final byte[] MAGIC_BYTES = new byte[]{0xE, 0xA, 0xE, 0x1};
+    public static final int HEADER_SIZE =
+        MAGIC_BYTES.length
+        + 8 //id
+        + 8 //generationNumber
+        + 4 //width
+        + 4; //height
+    //raw rows are stored as words of a single byte array, after the padded header
+    public static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8L;
 
-    private final int[][] population;
+    private final Population population;
     private final long id;
     private final long generationNumber;
-    private final long populationCount;
+    private long populationCount;
+    private long hash;
+    //the count and hash of wrapped populations are calculated when they are requested
+    private volatile boolean summarized;
     private final int width;
     private final int height;
 
+    /*
+        The population is not copied, it must not be modified after the generation was created.
+        hash must be equal to PopulationHash.hash of the population.
+    */
     public Generation
     (
-        int[][] population,
+        Population population,
         long id,
-        long generationNumber
+        long generationNumber,
+        long populationCount,
+        long hash
     )
     {
         this.population = population;
         this.id = id;
         this.generationNumber = generationNumber;
-        this.populationCount = countPopulation(population);
-        this.width = Math.max(population.length, 0);
-        this.height = this.width > 0 ? population[0].length : 0;
+        this.populationCount = populationCount;
+        this.hash = hash;
+        this.summarized = true;
+        this.width = population.getWidth();
+        this.height = population.getHeight();
     }
 
-    //supports Integer.MAX_VALUE population max
+    private Generation(Population population, long id, long generationNumber)
+    {
+        this.population = population;
+        this.id = id;
+        this.generationNumber = generationNumber;
+        this.width = population.getWidth();
+        this.height = population.getHeight();
+    }
+
+    //the population is not copied or scanned, it must not be modified
+    public static Generation wrap(Population population, long id, long generationNumber)
+    {
+        return new Generation(population, id, generationNumber);
+    }
+
+    public Generation
+    (
+        PopulationSnapshot population,
+        long id,
+        long generationNumber,
+        long hash
+    )
+    {
+        this(population, id, generationNumber, population.getPopulationCount(), hash);
+    }
+
+    //the population is copied
+    public Generation
+    (
+        PackedPopulation population,
+        long id,
+        long generationNumber
+    )
+    {
+        this
+        (
+            PopulationSnapshot.of(population),
+            id,
+            generationNumber,
+            PopulationHash.hash(population)
+        );
+    }
+
+    public Generation
+    (
+        int[][] population,
+        long id,
+        long generationNumber
+    )
+    {
+        this(PackedPopulation.fromArray(population), id, generationNumber);
+    }
+
+    //see GenerationSerializer, the byte array is limited to MAX_ARRAY_SIZE bytes
     public static byte[] toByteArray(Generation generation)
     {
         checkGenerationDimensions(generation.getWidth(), generation.getHeight());
-
-        int size =
-            MAGIC_BYTES.length
-            + 8 //id
-            + 8 //generationNumber
-            + 4 //width
-            + 4 //height
-            + (int) Math.ceil( (generation.getWidth() * generation.getHeight()) / 8.0d ); //population
-
-        ByteBuffer buf = ByteBuffer.allocate(size);
-        buf.put(MAGIC_BYTES, 0, MAGIC_BYTES.length);
-        buf.putLong(generation.getId());
-        buf.putLong(generation.getGenerationNumber());
-        buf.putInt(generation.getWidth());
-        buf.putInt(generation.getHeight());
-
-        BitSet bits = new BitSet(generation.getWidth() * generation.getHeight());
-        int ix = 0;
-        for (int col = 0; col < generation.getWidth(); col++)
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
         {
-            for (int row = 0; row < generation.getHeight(); row++, ix++)
-            {
-                if (generation.isPopulationAlive(col, row)) bits.set(ix);
-            }
+            GenerationSerializer.write(generation, Channels.newChannel(out));
         }
-
-        byte[] population = bits.toByteArray();
-        buf.put(population, 0, population.length);
-        buf.flip();
-        byte[] result = new byte[buf.limit()];
-        buf.get(result);
-        return result;
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
     }
 
-    //supports Integer.MAX_VALUE population max
     public static Generation fromByteArray(byte[] bytes)
     {
-        ByteBuffer buf = ByteBuffer.wrap(bytes);
-        for (byte magicByte : MAGIC_BYTES)
+        try
         {
-            if (buf.get() != magicByte) throw new IllegalArgumentException("Invalid magic header");
+            return GenerationSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
         }
-        long id = buf.getLong();
-        long generationNumber = buf.getLong();
-        int width = buf.getInt();
-        int height = buf.getInt();
-        checkGenerationDimensions(width, height);
-        int[][] population = new int[width][height];
-
-        byte[] populationBytes = new byte[buf.remaining()];
-        buf.get(populationBytes);
-        BitSet bits = BitSet.valueOf(populationBytes);
-
-        int ix = 0;
-        for (int col = 0; col < width; col++)
+        catch (IOException ex)
         {
-            for (int row = 0; row < height; row++, ix++)
-            {
-                if (bits.get(ix)) population[col][row] = 1;
-            }
+            throw new UncheckedIOException(ex);
         }
-
-        return new Generation(population, id, generationNumber);
     }
 
     public static long countPopulation(int[][] population)
@@ -138,15 +172,13 @@ public class Generation
 
     private static void checkGenerationDimensions(int width, int height)
     {
-        try
-        {
-            Math.multiplyExact(width, height);
-        }
-        catch (ArithmeticException ex)
-        {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("Generation dimensions must not be negative");
+        long size = GenerationSerializer.HEADER_SIZE
+            + (long) height * PackedPopulation.calculateWordCount(width) * Long.BYTES;
+        if (size > MAX_ARRAY_SIZE)
             throw new IllegalArgumentException
-            ("Generaitons with more than Integer.MAX_VALUE population count are not supported");
-        }
+            ("Generations larger than " + MAX_ARRAY_SIZE + " bytes can't be stored in a byte array");
     }
 
     public boolean isPopulationAlive(int x, int y)
@@ -155,29 +187,28 @@ public class Generation
             throw new IllegalArgumentException("x out of bounds");
         if (y < 0 || y > getHeight())
             throw new IllegalArgumentException("y out of bounds");
-        return this.population[x][y] == 1;
+        return this.population.isAlive(x, y);
+    }
+
+    //immutable, can be shared without copying
+    public Population getPopulation()
+    {
+        return this.population;
     }
 
     public int[][] copyPopulation()
     {
-        int[][] copy = new int[getWidth()][getHeight()];
-        for(int i = 0; i < this.population.length; i++)
-        {
-            copy[i]
-                = Arrays.copyOf(this.population[i], this.population[i].length);
-        }
-        return copy;
+        return copyPackedPopulation().toArray();
     }
 
     public int[] copyPopulation1D()
     {
-        int[][] b2d = population;
-        int[] b1d = new int[b2d.length * b2d[0].length];
-        int k = 0;
-        for(int y = 0; y < b2d[0].length; y++)
-            for(int x = 0; x < b2d.length; x++)
-                b1d[k++] = b2d[x][y];
-        return b1d;
+        return copyPackedPopulation().toArray1D();
+    }
+
+    public PackedPopulation copyPackedPopulation()
+    {
+        return this.population.toPackedPopulation();
     }
 
     public long getId()
@@ -192,7 +223,27 @@ public class Generation
 
     public long getPopulationCount()
     {
-        return populationCount;
+        summarize();
+        return this.populationCount;
+    }
+
+    //generations with different hashes have different populations
+    public long getHash()
+    {
+        summarize();
+        return this.hash;
+    }
+
+    private void summarize()
+    {
+        if (this.summarized) return;
+        synchronized (this)
+        {
+            if (this.summarized) return;
+            this.populationCount = this.population.countPopulation();
+            this.hash = PopulationHash.hash(this.population);
+            this.summarized = true;
+        }
     }
 
     public int getWidth()
@@ -33,53 +33,112 @@ extends RecursiveAction
 {
     public static final int SURPLUS_MAX = 3;
 
-    private final int[][] src, dest;
+    private final PackedPopulation src, dest;
+    private final ActiveTiles tiles;
+    private final GenerationKernel kernel;
+    private final LifeRule rule;
+    private final int split;
     private final GenerationCalculator next;
+    //born and dead cells of this task and its subtasks
+    private final long[] counts = new long[2];
 
     private final int begin;
     private int end;
 
+    /*
+        begin and end are tile rows, all tiles are calculated if tiles are null.
+        Tasks are not split below split tile rows.
+    */
     public GenerationCalculator
     (
-        int[][] src, int[][] dest,
+        PackedPopulation src, PackedPopulation dest,
+        ActiveTiles tiles,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int split,
         int begin, int end,
         GenerationCalculator next
     )
     {
-        if(src.length != dest.length)
-            throw new IllegalArgumentException("src and dest have different lengths");
+        if (split < 1) throw new IllegalArgumentException("split must be more than 0");
+        if(src.getWidth() != dest.getWidth() || src.getHeight() != dest.getHeight())
+            throw new IllegalArgumentException("src and dest have different dimensions");
+        if(tiles != null && !tiles.matches(src))
+            throw new IllegalArgumentException("tiles and population have different dimensions");
         this.src = src;
         this.dest = dest;
+        this.tiles = tiles;
+        this.kernel = kernel;
+        this.rule = rule;
+        this.split = split;
         this.begin = begin;
         this.end = end;
         this.next = next;
     }
 
-    public GenerationCalculator(int[][] src, int[][] dest)
+    public GenerationCalculator
+    (
+        PackedPopulation src, PackedPopulation dest,
+        ActiveTiles tiles,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int split
+    )
     {
         this
         (
             src,
             dest,
+            tiles,
+            kernel,
+            rule,
+            split,
             0,
-            src.length,
+            ActiveTiles.calculateRowCount(src.getHeight()),
             null
         );
     }
 
+    public GenerationCalculator
+    (
+        PackedPopulation src, PackedPopulation dest,
+        ActiveTiles tiles,
+        GenerationKernel kernel,
+        LifeRule rule
+    )
+    {
+        this(src, dest, tiles, kernel, rule, 1);
+    }
+
+    public GenerationCalculator(PackedPopulation src, PackedPopulation dest, ActiveTiles tiles)
+    {
+        this(src, dest, tiles, new ScalarGenerationKernel(), LifeRule.CONWAY);
+    }
+
+    public GenerationCalculator(PackedPopulation src, PackedPopulation dest)
+    {
+        this(src, dest, null);
+    }
+
     @Override
     protected void compute()
     {
+        //the first task refreshes the borders before other tasks are forked
+        if (getBeginIx() == 0) getSource().updateBorders();
         GenerationCalculator right = null;
         int b = getBeginIx();
         int e = getEndIx();
-        while(e - b > 1 && getSurplusQueuedTaskCount() <= SURPLUS_MAX)
+        while((e - b) / 2 >= getSplit() && getSurplusQueuedTaskCount() <= SURPLUS_MAX)
         {
             int mid = (b + e) >>> 1;
             right = new GenerationCalculator
             (
                 getSource(),
                 getDestination(),
+                getTiles(),
+                getKernel(),
+                getRule(),
+                getSplit(),
                 mid,
                 e,
                 right
@@ -87,6 +146,7 @@ extends RecursiveAction
             right.fork();
             e = mid;
         }
+        setEndIx(e);
         calculateNextPopulation();
         while(right != null)
         {
@@ -98,20 +158,53 @@ extends RecursiveAction
             {
                 right.join();
             }
+            this.counts[GenerationKernel.BIRTH_COUNT] += right.getBirthCount();
+            this.counts[GenerationKernel.DEATH_COUNT] += right.getDeathCount();
             right = right.getNext();
         }
     }
 
-    private int[][] getSource()
+    //valid after the task is completed
+    public long getBirthCount()
+    {
+        return this.counts[GenerationKernel.BIRTH_COUNT];
+    }
+
+    public long getDeathCount()
+    {
+        return this.counts[GenerationKernel.DEATH_COUNT];
+    }
+
+    private PackedPopulation getSource()
     {
         return this.src;
     }
 
-    private int[][] getDestination()
+    private PackedPopulation getDestination()
     {
         return this.dest;
     }
 
+    private ActiveTiles getTiles()
+    {
+        return this.tiles;
+    }
+
+    private GenerationKernel getKernel()
+    {
+        return this.kernel;
+    }
+
+    private LifeRule getRule()
+    {
+        return this.rule;
+    }
+
+    private int getSplit()
+    {
+        return this.split;
+    }
+
     private GenerationCalculator getNext()
     {
         return this.next;
@@ -132,81 +225,159 @@ extends RecursiveAction
         this.end = ix;
     }
 
-    private int getWidth()
-    {
-        return getSource().length;
-    }
-
-    private int getHeight()
+    private void calculateNextPopulation()
     {
-        return getSource().length < 1
-            ? 0
-            : getSource()[0].length;
+        if (getSource().getWordsPerRow() == 0) return;
+        calculateTileRows
+        (
+            getSource(), getDestination(),
+            getTiles(),
+            getKernel(),
+            getRule(),
+            getBeginIx(), getEndIx(),
+            new int[getSource().getWordsPerRow() + 1],
+            this.counts
+        );
     }
 
-    private void calculateNextPopulation()
+    /*
+        Calculates the tile rows without forking, so it can be called by any thread that owns them.
+        spans is a scratch buffer of at least getWordsPerRow() + 1 elements, born and dead cells
+        are added to counts. The borders of src must be refreshed before the first tile row
+        is calculated.
+    */
+    static void calculateTileRows
+    (
+        PackedPopulation src, PackedPopulation dest,
+        ActiveTiles tiles,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int begin, int end,
+        int[] spans,
+        long[] counts
+    )
     {
-        for (int x = getBeginIx(); x < getEndIx(); x++)
+        if (src.getWordsPerRow() == 0) return;
+        for (int tileRow = begin; tileRow < end; tileRow++)
         {
-            for (int y = 0; y < getSource()[x].length; y++)
-            {
-                getDestination()[x][y] = willLive(x, y, getSource()) ? 1 : 0;
-            }
+            calculateNextTileRow(src, dest, tiles, kernel, rule, tileRow, spans, counts);
         }
     }
 
-    private boolean willLive(int x, int y, int[][] population)
+    //each word holds 64 cells, shifted words line up every cell with its neighbors
+    private static void calculateNextTileRow
+    (
+        PackedPopulation population, PackedPopulation destination,
+        ActiveTiles tiles,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int tileRow,
+        int[] spans,
+        long[] counts
+    )
     {
-        boolean result = false;
-        int neighborCount = calculateNeighborCount(x, y, population);
-        if(population[x][y] == 1)
-        {
-            if
-            (
-                neighborCount >= ClassicLifeModel.POPULATION_MIN
-                && neighborCount <= ClassicLifeModel.POPULATION_MAX
-            )
-                result = true;
-        }
-        else
+        long[] src = population.getWords();
+        long[] dest = destination.getWords();
+        int words = population.getWordsPerRow();
+        int stride = population.getRowStride();
+        boolean aligned = population.getLastWordMask() == -1L;
+        int rowBegin = tileRow * ActiveTiles.TILE_HEIGHT;
+        int rowEnd = Math.min(rowBegin + ActiveTiles.TILE_HEIGHT, population.getHeight());
+        boolean[] changed = tiles == null ? null : tiles.getChanged();
+        int changedOffset = tiles == null ? 0 : tiles.getRowOffset(tileRow);
+
+        int spanCount = getActiveSpans(tiles, tileRow, words, spans);
+        if (spanCount == 0) return;
+        for (int y = rowBegin; y < rowEnd; y++)
         {
-            if (neighborCount == ClassicLifeModel.POPULATION_REPRODUCTION)
-                result = true;
+            int cur = population.getRowOffset(y);
+            for (int span = 0; span < spanCount; span += 2)
+            {
+                //ghost cells make every word the same, only the partial last word must be masked
+                boolean masked = !aligned && spans[span + 1] == words;
+                int innerEnd = masked ? words - 1 : spans[span + 1];
+                kernel.calculate
+                (
+                    src, dest,
+                    cur - stride, cur, cur + stride,
+                    spans[span], innerEnd,
+                    changed, changedOffset,
+                    counts,
+                    rule
+                );
+                if
+                (
+                    masked
+                    && calculateLastWord(src, dest, cur - stride, cur, cur + stride, words, population.getLastWordMask(), counts, rule)
+                    && tiles != null
+                )
+                    tiles.markChanged(words - 1, tileRow);
+            }
         }
-        return result;
     }
 
-    private int mod(int x, int y)
+    /*
+        Calculates the partial last word of a row, the ghost cell is masked out.
+        Returns true if the word was changed.
+    */
+    static boolean calculateLastWord
+    (
+        long[] src, long[] dest,
+        int upRow, int curRow, int downRow,
+        int words,
+        long mask,
+        long[] counts,
+        LifeRule rule
+    )
     {
-        int result = x % y;
-        if (result < 0) result += y;
-        return result;
+        int i = curRow + words - 1;
+        int up = upRow + words - 1;
+        int down = downRow + words - 1;
+        long curC = src[i] & mask;
+        long alive = ScalarGenerationKernel.calculateWord
+        (
+            (src[up] << 1) | (src[up - 1] >>> PackedPopulation.WORD_MASK),
+            src[up],
+            src[up] >>> 1,
+            (src[i] << 1) | (src[i - 1] >>> PackedPopulation.WORD_MASK),
+            curC,
+            src[i] >>> 1,
+            (src[down] << 1) | (src[down - 1] >>> PackedPopulation.WORD_MASK),
+            src[down],
+            src[down] >>> 1,
+            rule
+        ) & mask;
+        dest[i] = alive;
+        if (alive == curC) return false;
+        if (counts != null) ScalarGenerationKernel.count(counts, curC, alive);
+        return true;
     }
 
-    private int calculateNeighborCount(int x, int y, int[][] population)
+    //begin and end column pairs of active tiles, returns the number of written elements
+    private static int getActiveSpans(ActiveTiles tiles, int tileRow, int words, int[] spans)
     {
-        int xLeft = x - 1;
-        int yUp = y + 1;
-        return calculateAliveCountRow(xLeft, yUp, population)
-            + calculateAliveCountRow(xLeft, yUp - 1, population)
-            + calculateAliveCountRow(xLeft, yUp - 2, population)
-            - population[x][y];
-    }
+        if (tiles == null)
+        {
+            spans[0] = 0;
+            spans[1] = words;
+            return 2;
+        }
 
-    private int calculateAliveCountRow
-    (
-        int x, int y,
-        int[][] population
-    )
-    {
-        int result = 0;
-        int mody = mod(y, getHeight());
-        for (int i = 0; i < 3; i++)
+        int count = 0;
+        for (int i = 0; i < words; i++)
         {
-            int modx = mod(x + i, getWidth());
-            result += population[modx][mody];
+            if (!tiles.isActive(i, tileRow)) continue;
+            if (count > 0 && spans[count - 1] == i)
+            {
+                spans[count - 1] = i + 1;
+            }
+            else
+            {
+                spans[count++] = i;
+                spans[count++] = i + 1;
+            }
         }
-        return result;
+        return count;
     }
 
 }
@@ -0,0 +1,87 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.function.LongConsumer;
+
+public interface GenerationEngine
+{
+
+    String ENGINE_METRIC_PREFIX = "engine.";
+
+    //returns the buffer that holds the result, src and dest can both be used as scratch buffers
+    PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    );
+
+    default PackedPopulation calculate(PackedPopulation src, PackedPopulation dest, long generations)
+    {
+        return calculate(src, dest, generations, LifeRule.CONWAY);
+    }
+
+    //must be called when the buffers were modified outside of the engine
+    default void invalidate()
+    {
+    }
+
+    /*
+        Must be called when a cell of the source buffer was modified outside of the engine.
+        The hash is the PopulationHash of the modified buffer, countDelta is the change of
+        its live cell count.
+    */
+    default void invalidate(int x, int y, long hash, int countDelta)
+    {
+        invalidate();
+    }
+
+    /*
+        Engines that track the population hash report it after every calculated generation.
+        The hash must be equal to PopulationHash.hash of the generation.
+    */
+    default void setHashListener(LongConsumer listener)
+    {
+    }
+
+    /*
+        Engines that count cells while they calculate return the live cell count of the
+        last result, -1 is returned if the population is not that result or the count is unknown.
+    */
+    default long getPopulationCount(PackedPopulation population)
+    {
+        return -1;
+    }
+
+    //engine metric names start with ENGINE_METRIC_PREFIX
+    default void updateMetrics(LifeMetrics metrics)
+    {
+    }
+
+}
@@ -0,0 +1,82 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//calculates the inner words of a row, words at the row edges are handled by the caller
+public interface GenerationKernel
+{
+
+    String KERNEL_PROPERTY = "com.nephest.jhclife.kernel";
+    String VECTOR_MODULE = "jdk.incubator.vector";
+    String VECTOR_KERNEL_CLASS = "com.nephest.jhclife.VectorGenerationKernel";
+
+    //counts indexes
+    int BIRTH_COUNT = 0;
+    int DEATH_COUNT = 1;
+
+    /*
+        up, cur and down are row offsets, a changed word marks its column if changed is not null.
+        Born and dead cells of changed words are added to counts if counts is not null.
+    */
+    void calculate
+    (
+        long[] src, long[] dest,
+        int up, int cur, int down,
+        int begin, int end,
+        boolean[] changed, int changedOffset,
+        long[] counts,
+        LifeRule rule
+    );
+
+    //the vector kernel is used if its module is available unless the scalar kernel is requested
+    static GenerationKernel createDefault()
+    {
+        if
+        (
+            "scalar".equals(System.getProperty(KERNEL_PROPERTY))
+            || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()
+        )
+            return new ScalarGenerationKernel();
+
+        try
+        {
+            return (GenerationKernel) Class.forName(VECTOR_KERNEL_CLASS)
+                .getDeclaredConstructor()
+                .newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError ex)
+        {
+            Logger.getLogger(GenerationKernel.class.getName())
+                .log(Level.WARNING, "Vector kernel is not available, using scalar kernel", ex);
+            return new ScalarGenerationKernel();
+        }
+    }
+
+}
@@ -0,0 +1,389 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+
+/*
+    Streams generation saves. The last magic byte is the format version. Version 1 is the original
+    raw format, version 2 stores the codec id right after the magic bytes and the cell bits are
+    encoded by that codec. Cells of both versions are column-major bits.
+    Version 3 is written. The codec id is padded, so the cells begin at a word-aligned offset.
+    Cells are rows of little-endian words that have the PackedPopulation layout, so rows are
+    bulk-copied and don't need to be transposed. Only CHUNK_SIZE bytes are held in memory.
+    Trailing zero bytes are not written, missing trailing bytes are dead cells.
+*/
+public final class GenerationSerializer
+{
+
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final long CHUNK_BITS = (long) CHUNK_SIZE * Byte.SIZE;
+    public static final int VERSION_INDEX = Generation.MAGIC_BYTES.length - 1;
+    public static final byte LEGACY_VERSION = Generation.MAGIC_BYTES[VERSION_INDEX];
+    public static final byte CODEC_VERSION = 2;
+    public static final byte ROW_VERSION = 3;
+    public static final int CODEC_INDEX = VERSION_INDEX + 1;
+    public static final int CODEC_HEADER_SIZE = Generation.HEADER_SIZE + 1;
+    public static final int HEADER_SIZE = (CODEC_HEADER_SIZE + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    public static final List<GenerationCodec> STANDARD_CODECS = List.of(StandardGenerationCodec.values());
+
+    private GenerationSerializer(){}
+
+    public static void write(Generation generation, WritableByteChannel channel, GenerationCodec codec)
+    throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(Generation.MAGIC_BYTES, 0, VERSION_INDEX);
+        header.put(ROW_VERSION);
+        header.put(codec.getId());
+        header.position(HEADER_SIZE - (Generation.HEADER_SIZE - Generation.MAGIC_BYTES.length));
+        header.putLong(generation.getId());
+        header.putLong(generation.getGenerationNumber());
+        header.putInt(generation.getWidth());
+        header.putInt(generation.getHeight());
+        header.flip();
+        while (header.hasRemaining()) channel.write(header);
+
+        //the codec stream doesn't close the channel
+        try (OutputStream out = codec.encode(Channels.newOutputStream(channel)))
+        {
+            writeRows(generation.getPopulation(), out);
+        }
+    }
+
+    public static void write(Generation generation, WritableByteChannel channel)
+    throws IOException
+    {
+        write(generation, channel, StandardGenerationCodec.RAW);
+    }
+
+    //empty rows are written only if they are followed by cells
+    private static void writeRows(Population population, OutputStream out)
+    throws IOException
+    {
+        int words = population.getWordsPerRow();
+        long[] row = new long[words];
+        long[] zeros = null;
+        long pendingZeros = 0;
+        WordWriter writer = new WordWriter(out);
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            int used = words;
+            while (used > 0 && row[used - 1] == 0) used--;
+            if (used == 0)
+            {
+                pendingZeros += words;
+                continue;
+            }
+            if (pendingZeros > 0 && zeros == null) zeros = new long[CHUNK_SIZE / Long.BYTES];
+            while (pendingZeros > 0)
+            {
+                int count = (int) Math.min(pendingZeros, zeros.length);
+                writer.write(zeros, count);
+                pendingZeros -= count;
+            }
+            writer.write(row, used);
+            pendingZeros = words - used;
+        }
+        writer.flush();
+    }
+
+    private static final class WordWriter
+    {
+
+        private final OutputStream out;
+        private final byte[] bytes = new byte[CHUNK_SIZE];
+        private final LongBuffer words = ByteBuffer.wrap(this.bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+
+        private WordWriter(OutputStream out)
+        {
+            this.out = out;
+        }
+
+        private void write(long[] src, int length)
+        throws IOException
+        {
+            for (int offset = 0; offset < length; )
+            {
+                int count = Math.min(length - offset, this.words.remaining());
+                this.words.put(src, offset, count);
+                offset += count;
+                if (!this.words.hasRemaining()) flush();
+            }
+        }
+
+        private void flush()
+        throws IOException
+        {
+            this.out.write(this.bytes, 0, this.words.position() * Long.BYTES);
+            this.words.clear();
+        }
+
+    }
+
+    /*
+        The codec is found by its id, the legacy format is always raw.
+        The population is filled chunk by chunk, the generation owns it, so it is not copied.
+    */
+    public static Generation read(ReadableByteChannel channel, Collection<? extends GenerationCodec> codecs)
+    throws IOException
+    {
+        Header header = readHeader(channel, codecs);
+        PackedPopulation population = new PackedPopulation(header.width, header.height);
+        try (InputStream in = header.codec.decode(Channels.newInputStream(channel)))
+        {
+            if (header.rows)
+            {
+                readRows(in, population);
+            }
+            else
+            {
+                readCells(in, population);
+            }
+        }
+        return new Generation
+        (
+            population,
+            header.id,
+            header.generationNumber,
+            population.countPopulation(),
+            PopulationHash.hash(population)
+        );
+    }
+
+    /*
+        Uncompressed cells are mapped and read in place, see MappedRowPopulation and MappedPopulation.
+        Returns null if
+        the file is not a save or its cells are compressed, the channel position is not changed then.
+    */
+    public static Generation map(FileChannel channel, Collection<? extends GenerationCodec> codecs)
+    throws IOException
+    {
+        long position = channel.position();
+        ByteBuffer magic = ByteBuffer.allocate(VERSION_INDEX);
+        while (magic.hasRemaining())
+        {
+            if (channel.read(magic, position + magic.position()) < 0) return null;
+        }
+        for (int i = 0; i < VERSION_INDEX; i++)
+        {
+            if (magic.get(i) != Generation.MAGIC_BYTES[i]) return null;
+        }
+
+        Header header = readHeader(channel, codecs);
+        if (header.codec != StandardGenerationCodec.RAW)
+        {
+            channel.position(position);
+            return null;
+        }
+        long begin = channel.position();
+        long length = channel.size() - begin;
+        Population population = header.rows
+            ? new MappedRowPopulation(channel, begin, length, header.width, header.height)
+            : new MappedPopulation(channel, begin, length, header.width, header.height);
+        return Generation.wrap(population, header.id, header.generationNumber);
+    }
+
+    private static final class Header
+    {
+        private GenerationCodec codec;
+        private boolean rows;
+        private long id;
+        private long generationNumber;
+        private int width;
+        private int height;
+    }
+
+    private static Header readHeader(ReadableByteChannel channel, Collection<? extends GenerationCodec> codecs)
+    throws IOException
+    {
+        ByteBuffer magic = ByteBuffer.allocate(Generation.MAGIC_BYTES.length);
+        if (!readFully(channel, magic)) throw new IllegalArgumentException("Invalid header");
+        for (int i = 0; i < VERSION_INDEX; i++)
+        {
+            if (magic.get(i) != Generation.MAGIC_BYTES[i]) throw new IllegalArgumentException("Invalid magic header");
+        }
+        Header result = new Header();
+        result.codec = readCodec(channel, magic.get(VERSION_INDEX), codecs);
+        result.rows = magic.get(VERSION_INDEX) == ROW_VERSION;
+        if (result.rows)
+        {
+            ByteBuffer padding = ByteBuffer.allocate(HEADER_SIZE - CODEC_HEADER_SIZE);
+            if (!readFully(channel, padding)) throw new IllegalArgumentException("Invalid header");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(Generation.HEADER_SIZE - Generation.MAGIC_BYTES.length);
+        if (!readFully(channel, header)) throw new IllegalArgumentException("Invalid header");
+        header.flip();
+        result.id = header.getLong();
+        result.generationNumber = header.getLong();
+        result.width = header.getInt();
+        result.height = header.getInt();
+        if (result.width < 0 || result.height < 0)
+            throw new IllegalArgumentException("Generation dimensions must not be negative");
+        return result;
+    }
+
+    public static Generation read(ReadableByteChannel channel)
+    throws IOException
+    {
+        return read(channel, STANDARD_CODECS);
+    }
+
+    private static GenerationCodec readCodec
+    (
+        ReadableByteChannel channel,
+        byte version,
+        Collection<? extends GenerationCodec> codecs
+    )
+    throws IOException
+    {
+        if (version == LEGACY_VERSION) return StandardGenerationCodec.RAW;
+        if (version != CODEC_VERSION && version != ROW_VERSION)
+            throw new IllegalArgumentException("Unsupported format version " + version);
+
+        ByteBuffer id = ByteBuffer.allocate(1);
+        if (!readFully(channel, id)) throw new IllegalArgumentException("Invalid header");
+        for (GenerationCodec codec : codecs)
+        {
+            if (codec.getId() == id.get(0)) return codec;
+        }
+        throw new IllegalArgumentException("Unknown codec " + id.get(0));
+    }
+
+    //returns false if the channel ended before the buffer was filled
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer)
+    throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0) return false;
+        }
+        return true;
+    }
+
+    private static void readCells(InputStream in, PackedPopulation population)
+    throws IOException
+    {
+        long cells = (long) population.getWidth() * population.getHeight();
+        byte[] bytes = new byte[CHUNK_SIZE];
+        for (long offset = 0; offset < cells; offset += CHUNK_BITS)
+        {
+            int length = readBlock(in, bytes);
+            unpack(bytes, length, offset, cells, population);
+            if (length < CHUNK_SIZE) return;
+        }
+    }
+
+    //words are copied straight into the rows
+    private static void readRows(InputStream in, PackedPopulation population)
+    throws IOException
+    {
+        long[] words = population.getWords();
+        int wordsPerRow = population.getWordsPerRow();
+        long total = (long) population.getHeight() * wordsPerRow;
+        byte[] bytes = new byte[CHUNK_SIZE];
+        LongBuffer src = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        for (long word = 0; word < total; )
+        {
+            int length = readBlock(in, bytes);
+            int count = (int) Math.min(length / Long.BYTES, total - word);
+            src.clear();
+            for (int i = 0; i < count; )
+            {
+                int y = (int) (word / wordsPerRow);
+                int x = (int) (word % wordsPerRow);
+                int n = Math.min(count - i, wordsPerRow - x);
+                int offset = population.getRowOffset(y);
+                src.get(words, offset + x, n);
+                if (x + n == wordsPerRow) words[offset + wordsPerRow - 1] &= population.getLastWordMask();
+                i += n;
+                word += n;
+            }
+            if (length < CHUNK_SIZE) return;
+        }
+    }
+
+    //returns the number of read bytes, it is less than the block only at the end of the stream
+    private static int readBlock(InputStream in, byte[] bytes)
+    throws IOException
+    {
+        int length = 0;
+        while (length < bytes.length)
+        {
+            int read = in.read(bytes, length, bytes.length - length);
+            if (read < 0) break;
+            length += read;
+        }
+        return length;
+    }
+
+    //the column and row of the first bit of each byte are advanced, not divided
+    static void unpack(byte[] bytes, int length, long bitOffset, long cells, PackedPopulation population)
+    {
+        int height = population.getHeight();
+        int column = (int) (bitOffset / height);
+        int row = (int) (bitOffset % height);
+        long ix = bitOffset;
+        for (int i = 0; i < length && ix < cells; i++, ix += Byte.SIZE)
+        {
+            for (int bits = bytes[i] & 0xFF; bits != 0; bits &= bits - 1)
+            {
+                int bit = Integer.numberOfTrailingZeros(bits);
+                if (ix + bit >= cells) return;
+                int y = row + bit;
+                if (y < height)
+                {
+                    population.setAlive(column, y, true);
+                }
+                else
+                {
+                    population.setAlive(column + y / height, y % height, true);
+                }
+            }
+            row += Byte.SIZE;
+            while (row >= height)
+            {
+                row -= height;
+                column++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import com.nephest.jhclife.pattern.PatternFormat;
+import com.nephest.jhclife.util.ObjectTranslator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Generations are written by the codec. Saves of the standard codecs and the codec can be read,
+    text patterns are detected too. Only RAW saves can be mapped, the DEFLATE default is smaller,
+    but it is always read and decompressed.
+*/
+public class GenerationTranslator
+implements ObjectTranslator<Generation>
+{
+
+    public static final GenerationCodec DEFAULT_CODEC = StandardGenerationCodec.DEFLATE;
+
+    private final GenerationCodec codec;
+    private final List<GenerationCodec> codecs;
+
+    public GenerationTranslator(GenerationCodec codec)
+    {
+        this.codec = codec;
+        this.codecs = new ArrayList<>(GenerationSerializer.STANDARD_CODECS);
+        if (!this.codecs.contains(codec)) this.codecs.add(0, codec);
+    }
+
+    public GenerationTranslator()
+    {
+        this(DEFAULT_CODEC);
+    }
+
+    public GenerationCodec getCodec()
+    {
+        return this.codec;
+    }
+
+    @Override
+    public byte[] toByteArray(Generation generation)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            write(generation, Channels.newChannel(out));
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Generation fromByteArray(byte[] bytes)
+    {
+        try
+        {
+            return read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void write(Generation generation, WritableByteChannel channel)
+    throws IOException
+    {
+        GenerationSerializer.write(generation, channel, getCodec());
+    }
+
+    /*
+        The format is detected by the first bytes, text patterns are read by their translators.
+        Uncompressed saves in files are mapped instead of being read.
+    */
+    @Override
+    public Generation read(ReadableByteChannel channel)
+    throws IOException
+    {
+        if (channel instanceof FileChannel)
+        {
+            Generation mapped = GenerationSerializer.map((FileChannel) channel, this.codecs);
+            if (mapped != null) return mapped;
+        }
+        ByteBuffer prefix = ByteBuffer.allocate(PatternFormat.DETECT_SIZE);
+        while (prefix.hasRemaining() && channel.read(prefix) >= 0);
+        prefix.flip();
+        ReadableByteChannel input = Channels.newChannel(new SequenceInputStream
+        (
+            new ByteArrayInputStream(prefix.array(), 0, prefix.limit()),
+            Channels.newInputStream(channel)
+        ));
+        if (isSave(prefix)) return GenerationSerializer.read(input, this.codecs);
+
+        PatternFormat format = PatternFormat.detect(prefix.array(), prefix.limit());
+        if (format == null) throw new IllegalArgumentException("Unknown generation format");
+        return format.getTranslator().read(input);
+    }
+
+    private static boolean isSave(ByteBuffer prefix)
+    {
+        if (prefix.limit() < GenerationSerializer.VERSION_INDEX) return false;
+        for (int i = 0; i < GenerationSerializer.VERSION_INDEX; i++)
+        {
+            if (prefix.get(i) != Generation.MAGIC_BYTES[i]) return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,398 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Quadtree based engine. Nodes are canonicalized, so equal areas share the same node, and
+    every node memoizes its center advanced by 2^j generations. The torus is treated as an
+    infinite plane tiled with the population, the tiles collapse into the same nodes.
+*/
+public class HashLifeEngine
+implements GenerationEngine
+{
+
+    public static final int DEFAULT_NODE_LIMIT = 1 << 22;
+    public static final int MAX_STEP_LEVEL = 60;
+    public static final int MEMO_LEVEL_MIN = 3;
+
+    private static final Node DEAD = new Node(false);
+    private static final Node ALIVE = new Node(true);
+
+    private final Map<Node, Node> nodes = new HashMap<>();
+    private final List<Node> emptyNodes = new ArrayList<>();
+    private LifeRule rule = LifeRule.CONWAY;
+    private byte[] baseResults;
+    private int nodeLimit = DEFAULT_NODE_LIMIT;
+
+    private PackedPopulation source;
+    private long origin;
+    private Node[][] buildMemo;
+    private int[] buildMemoWidth;
+
+    @Override
+    public PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations must not be negative");
+        if (generations >= 1L << MAX_STEP_LEVEL)
+            throw new IllegalArgumentException("generations must be less than 2^" + MAX_STEP_LEVEL);
+        if (src.getWidth() == 0 || src.getHeight() == 0) return src;
+        //memoized results are only valid for the rule they were calculated with
+        if (!rule.equals(getRule()))
+        {
+            clear();
+            this.baseResults = null;
+            this.rule = rule;
+        }
+
+        for (int j = 0; j < MAX_STEP_LEVEL; j++)
+        {
+            if ((generations >>> j & 1) == 0) continue;
+            if (getNodeCount() > getNodeLimit()) clear();
+            Node result = advance(buildRoot(src, j), j);
+            dest.clear();
+            extract(result, dest, 0, 0);
+            PackedPopulation next = src;
+            src = dest;
+            dest = next;
+        }
+        return src;
+    }
+
+    public int getNodeCount()
+    {
+        return this.nodes.size();
+    }
+
+    public int getNodeLimit()
+    {
+        return this.nodeLimit;
+    }
+
+    //the cache is cleared before the next step when the limit is exceeded
+    public void setNodeLimit(int nodeLimit)
+    {
+        this.nodeLimit = nodeLimit;
+    }
+
+    @Override
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        metrics.set(ENGINE_METRIC_PREFIX + "nodes", getNodeCount());
+    }
+
+    public LifeRule getRule()
+    {
+        return this.rule;
+    }
+
+    public void clear()
+    {
+        this.nodes.clear();
+        this.emptyNodes.clear();
+    }
+
+    private Node buildRoot(PackedPopulation src, int step)
+    {
+        int size = Math.max(src.getWidth(), src.getHeight());
+        int level = Math.max(Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) + 1, step + 2);
+        level = Math.max(level, MEMO_LEVEL_MIN);
+        //the root center, which is the result, starts at 0, 0
+        this.origin = -(1L << (level - 2));
+        this.source = src;
+        this.buildMemo = new Node[level + 1][];
+        this.buildMemoWidth = new int[level + 1];
+        for (int k = MEMO_LEVEL_MIN; k <= level; k++)
+        {
+            long positions = 1L << (level - k);
+            int width = (int) Math.min(calculatePeriod(src.getWidth(), k), positions);
+            int height = (int) Math.min(calculatePeriod(src.getHeight(), k), positions);
+            this.buildMemo[k] = new Node[Math.multiplyExact(width, height)];
+            this.buildMemoWidth[k] = width;
+        }
+        Node root = build(level, 0, 0);
+        this.source = null;
+        this.buildMemo = null;
+        return root;
+    }
+
+    //positions of level k nodes repeat with this period
+    private static long calculatePeriod(int size, int level)
+    {
+        return size >>> Math.min(level, Integer.numberOfTrailingZeros(size));
+    }
+
+    private Node build(int level, long i, long j)
+    {
+        if (level < MEMO_LEVEL_MIN) return buildDirect(level, i << level, j << level);
+
+        Node[] memo = this.buildMemo[level];
+        int memoWidth = this.buildMemoWidth[level];
+        int ix = (int) (i % memoWidth) + (int) (j % (memo.length / memoWidth)) * memoWidth;
+        Node node = memo[ix];
+        if (node == null)
+        {
+            node = join
+            (
+                build(level - 1, i * 2, j * 2),
+                build(level - 1, i * 2 + 1, j * 2),
+                build(level - 1, i * 2, j * 2 + 1),
+                build(level - 1, i * 2 + 1, j * 2 + 1)
+            );
+            memo[ix] = node;
+        }
+        return node;
+    }
+
+    private Node buildDirect(int level, long x, long y)
+    {
+        if (level == 0)
+        {
+            int modX = (int) Math.floorMod(this.origin + x, (long) this.source.getWidth());
+            int modY = (int) Math.floorMod(this.origin + y, (long) this.source.getHeight());
+            return this.source.isAlive(modX, modY) ? ALIVE : DEAD;
+        }
+        long half = 1L << (level - 1);
+        return join
+        (
+            buildDirect(level - 1, x, y),
+            buildDirect(level - 1, x + half, y),
+            buildDirect(level - 1, x, y + half),
+            buildDirect(level - 1, x + half, y + half)
+        );
+    }
+
+    private void extract(Node node, PackedPopulation dest, long x, long y)
+    {
+        if (!node.alive || x >= dest.getWidth() || y >= dest.getHeight()) return;
+        if (node.level == 0)
+        {
+            dest.setAlive((int) x, (int) y, true);
+            return;
+        }
+        long half = 1L << (node.level - 1);
+        extract(node.nw, dest, x, y);
+        extract(node.ne, dest, x + half, y);
+        extract(node.sw, dest, x, y + half);
+        extract(node.se, dest, x + half, y + half);
+    }
+
+    private Node join(Node nw, Node ne, Node sw, Node se)
+    {
+        Node node = new Node(nw, ne, sw, se);
+        Node existing = this.nodes.putIfAbsent(node, node);
+        return existing == null ? node : existing;
+    }
+
+    private Node getEmpty(int level)
+    {
+        if (level == 0) return DEAD;
+        while (this.emptyNodes.size() < level)
+        {
+            Node child = getEmpty(this.emptyNodes.size());
+            this.emptyNodes.add(join(child, child, child, child));
+        }
+        return this.emptyNodes.get(level - 1);
+    }
+
+    //returns the center of the node advanced by 2^step generations
+    private Node advance(Node node, int step)
+    {
+        int level = node.level;
+        step = Math.min(step, level - 2);
+        if (node.results != null && node.results[step] != null) return node.results[step];
+
+        Node result;
+        if (!node.alive && !getRule().isBirthOnEmpty())
+        {
+            result = getEmpty(level - 1);
+        }
+        else if (level == 2)
+        {
+            result = calculateBase(node);
+        }
+        else
+        {
+            Node c1 = advance(node.nw, step);
+            Node c2 = advance(join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw), step);
+            Node c3 = advance(node.ne, step);
+            Node c4 = advance(join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne), step);
+            Node c5 = advance(join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw), step);
+            Node c6 = advance(join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne), step);
+            Node c7 = advance(node.sw, step);
+            Node c8 = advance(join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw), step);
+            Node c9 = advance(node.se, step);
+            if (step < level - 2)
+            {
+                result = join
+                (
+                    join(c1.se, c2.sw, c4.ne, c5.nw),
+                    join(c2.se, c3.sw, c5.ne, c6.nw),
+                    join(c4.se, c5.sw, c7.ne, c8.nw),
+                    join(c5.se, c6.sw, c8.ne, c9.nw)
+                );
+            }
+            else
+            {
+                result = join
+                (
+                    advance(join(c1, c2, c4, c5), step),
+                    advance(join(c2, c3, c5, c6), step),
+                    advance(join(c4, c5, c7, c8), step),
+                    advance(join(c5, c6, c8, c9), step)
+                );
+            }
+        }
+
+        if (node.results == null) node.results = new Node[level - 1];
+        node.results[step] = result;
+        return result;
+    }
+
+    //4x4 node, one generation
+    private Node calculateBase(Node node)
+    {
+        int cells =
+            bits(node.nw)
+            | bits(node.ne) << 2
+            | bits(node.sw) << 8
+            | bits(node.se) << 10;
+        int result = getBaseResults()[cells];
+        return join
+        (
+            (result & 1) != 0 ? ALIVE : DEAD,
+            (result & 2) != 0 ? ALIVE : DEAD,
+            (result & 4) != 0 ? ALIVE : DEAD,
+            (result & 8) != 0 ? ALIVE : DEAD
+        );
+    }
+
+    //2x2 node to bits of a 4 cell wide row-major block
+    private static int bits(Node node)
+    {
+        return (node.nw.alive ? 1 : 0)
+            | (node.ne.alive ? 2 : 0)
+            | (node.sw.alive ? 16 : 0)
+            | (node.se.alive ? 32 : 0);
+    }
+
+    private byte[] getBaseResults()
+    {
+        if (this.baseResults == null)
+        {
+            byte[] results = new byte[1 << 16];
+            for (int cells = 0; cells < results.length; cells++)
+            {
+                results[cells] = (byte)
+                (
+                    calculateCell(cells, 1, 1, getRule())
+                    | calculateCell(cells, 2, 1, getRule()) << 1
+                    | calculateCell(cells, 1, 2, getRule()) << 2
+                    | calculateCell(cells, 2, 2, getRule()) << 3
+                );
+            }
+            this.baseResults = results;
+        }
+        return this.baseResults;
+    }
+
+    private static int calculateCell(int cells, int x, int y, LifeRule rule)
+    {
+        int count = 0;
+        for (int dy = -1; dy <= 1; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                if (dx != 0 || dy != 0) count += cells >>> ((y + dy) * 4 + x + dx) & 1;
+            }
+        }
+        return rule.getNextState(cells >>> (y * 4 + x) & 1, count);
+    }
+
+    private static final class Node
+    {
+
+        private final Node nw, ne, sw, se;
+        private final int level;
+        private final boolean alive;
+        private final int hash;
+        private Node[] results;
+
+        private Node(boolean alive)
+        {
+            this.nw = this.ne = this.sw = this.se = null;
+            this.level = 0;
+            this.alive = alive;
+            this.hash = alive ? 1 : 0;
+        }
+
+        private Node(Node nw, Node ne, Node sw, Node se)
+        {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.alive = nw.alive || ne.alive || sw.alive || se.alive;
+            this.hash = ((System.identityHashCode(nw) * 31
+                + System.identityHashCode(ne)) * 31
+                + System.identityHashCode(sw)) * 31
+                + System.identityHashCode(se);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (this == other) return true;
+            if (!(other instanceof Node)) return false;
+            Node node = (Node) other;
+            return node.nw == this.nw
+                && node.ne == this.ne
+                && node.sw == this.sw
+                && node.se == this.se;
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+//named values that are reported by the model and its engines
+public class LifeMetrics
+{
+
+    private final Map<String, Number> values = new ConcurrentHashMap<>();
+
+    public void set(String name, Number value)
+    {
+        this.values.put(name, value);
+    }
+
+    public void add(String name, long delta)
+    {
+        this.values.merge(name, delta, (a, b)->a.longValue() + b.longValue());
+    }
+
+    public Number get(String name)
+    {
+        return this.values.get(name);
+    }
+
+    public long getLong(String name)
+    {
+        Number value = get(name);
+        return value == null ? 0 : value.longValue();
+    }
+
+    public void remove(String name)
+    {
+        this.values.remove(name);
+    }
+
+    public void removeAll(String prefix)
+    {
+        this.values.keySet().removeIf(name->name.startsWith(prefix));
+    }
+
+    //sorted by name
+    public Map<String, Number> getValues()
+    {
+        return Collections.unmodifiableMap(new TreeMap<>(this.values));
+    }
+
+}
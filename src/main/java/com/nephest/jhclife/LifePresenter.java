@@ -27,11 +27,14 @@
 package com.nephest.jhclife;
 
 import com.nephest.jhclife.io.*;
+import com.nephest.jhclife.pattern.PatternFormat;
 import com.nephest.jhclife.util.ObjectTranslator;
 import javafx.scene.input.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDate;
 import java.util.EnumMap;
 import java.util.Map;
@@ -66,6 +69,7 @@ extends ReactivePresenter
         SPEED_UP,
         SPEED_DOWN,
         SPEED_DEFAULT,
+        TURBO_TOGGLE,
         POPULATION_TOGGLE
     }
 
@@ -89,6 +93,17 @@ extends ReactivePresenter
     public static final int SPEED_STEP = 1;
     public static final int SPEED_INIT = 10;
     public static final String SPEED_FORMAT="%03d";
+    public static final String TURBO_SPEED_INFO = "MAX";
+
+    //generations per second, measured over the rate period
+    public static final String RATE_FORMAT = "%.0f";
+    public static final long RATE_PERIOD_NANOS = 1_000_000_000L;
+
+    //generations that were published by the running model, but were not rendered
+    public static final String DROPPED_FRAME_METRIC = "render.dropped";
+
+    //saves are not compressed, so they are mapped instead of being read when loaded
+    public static final GenerationCodec SAVE_CODEC = StandardGenerationCodec.RAW;
 
     public static final MouseKeyCombination DEFAULT_MOUSE_SPEED_UP_COMBINATION
         = new MouseKeyCombination(MouseButton.PRIMARY, KeyCodeCombination.ALT_DOWN);
@@ -135,6 +150,8 @@ extends ReactivePresenter
 
     public static final KeyCombination DEFAULT_STATE_TOGGLE_COMBINATION
         = new KeyCodeCombination(KeyCode.P);
+    public static final KeyCombination DEFAULT_TURBO_TOGGLE_COMBINATION
+        = new KeyCodeCombination(KeyCode.T);
 
     public static final KeyCombination DEFAULT_NEW_GAME_COMBINATION
         = new KeyCodeCombination(KeyCode.ESCAPE);
@@ -183,6 +200,9 @@ extends ReactivePresenter
         = new ControlBindings<>(ControlType.class);
     private Generation lastGeneration;
     private int speed = SPEED_INIT;
+    private long ratePeriod = RATE_PERIOD_NANOS;
+    private Generation rateGeneration;
+    private long rateNanos;
 
     public LifePresenter
     (
@@ -206,22 +226,7 @@ extends ReactivePresenter
 
     private void initTranslators()
     {
-        this.generationTranslator = new ObjectTranslator<>()
-        {
-
-            @Override
-            public byte[] toByteArray(Generation generation)
-            {
-                return Generation.toByteArray(generation);
-            }
-
-            @Override
-            public Generation fromByteArray(byte[] bytes)
-            {
-                return Generation.fromByteArray(bytes);
-            }
-
-        };
+        this.generationTranslator = new GenerationTranslator(SAVE_CODEC);
     }
 
     private void initControls()
@@ -295,6 +300,11 @@ extends ReactivePresenter
             (x, y, zone)-> changeSpeed(x, y, zone, SPEED_INIT)
         );
 
+        getControlActions().put
+        (
+            ControlType.TURBO_TOGGLE, this::toggleTurbo
+        );
+
         getControlActions().put
         (
             ControlType.POPULATION_TOGGLE,
@@ -405,6 +415,12 @@ extends ReactivePresenter
             ControlType.STATE_TOGGLE,
             DEFAULT_STATE_TOGGLE_COMBINATION
         );
+
+        getKeyControl().setBinding
+        (
+            ControlType.TURBO_TOGGLE,
+            DEFAULT_TURBO_TOGGLE_COMBINATION
+        );
     }
 
     private void initInfo()
@@ -457,7 +473,9 @@ extends ReactivePresenter
             + " "
             + getControlBindingsString(ControlType.SPEED_DOWN, "Speed-")
             + " "
-            + getControlBindingsString(ControlType.SPEED_DEFAULT, "Speed default");
+            + getControlBindingsString(ControlType.SPEED_DEFAULT, "Speed default")
+            + " "
+            + getControlBindingsString(ControlType.TURBO_TOGGLE, "Turbo");
         this.tips.put(Tip.SPEED_CONTROL, speedControlTip);
 
         String zoomPivotTip = "Hover over the play field to zoom a specific area";
@@ -549,6 +567,16 @@ extends ReactivePresenter
                 );
             }
 
+            @Override
+            public void onTurboToggle()
+            {
+                getExecutor().execute
+                (
+                    ()-> getControlActions().get(ControlType.TURBO_TOGGLE)
+                    .consume(Double.NaN, Double.NaN, LifeView.Zone.GLOBAL)
+                );
+            }
+
             @Override
             public void onStateToggle()
             {
@@ -809,13 +837,13 @@ extends ReactivePresenter
 
     private void doSaveGeneration(File file, Generation generation)
     {
-        try
+        //the generation is streamed, so it is never copied into a byte array
+        PatternFormat format = PatternFormat.fromFileName(file.getName());
+        ObjectTranslator<Generation> translator
+            = format == null ? getGenerationTranslator() : format.getTranslator();
+        try (WritableByteChannel channel = getFileIO().newWritableChannel(file.toPath()))
         {
-            getFileIO().write
-            (
-                file.toPath(),
-                getGenerationTranslator().toByteArray(generation)
-            );
+            translator.write(generation, channel);
         }
         catch (IOException ex)
         {
@@ -830,7 +858,7 @@ extends ReactivePresenter
         getView().selectFile
         (
             ViewBase.FileSelectionMode.SELECT_SINGLE,
-            "Choose a generation save to load",
+            "Choose a generation save or pattern to load",
             "",
             (files)->
             {
@@ -847,10 +875,9 @@ extends ReactivePresenter
             getView().fireErrorAlert("Generation loading failed", "No such file");
             return;
         }
-        try
+        try (ReadableByteChannel channel = getFileIO().newReadableChannel(file.toPath()))
         {
-            byte[] bytes = getFileIO().readAllBytes(file.toPath());
-            Generation gen = getGenerationTranslator().fromByteArray(bytes);
+            Generation gen = getGenerationTranslator().read(channel);
             getModel().setGeneration(gen);
         }
         catch (IOException ex)
@@ -891,6 +918,9 @@ extends ReactivePresenter
                 + "Speed default\t"
                 + getControlBindingsString(ControlType.SPEED_DEFAULT)
                 + "\n"
+                + "Turbo\t\t"
+                + getControlBindingsString(ControlType.TURBO_TOGGLE)
+                + "\n"
                 + "\n"
                 + "Population\t"
                 + getControlBindingsString(ControlType.POPULATION_TOGGLE)
@@ -915,6 +945,7 @@ extends ReactivePresenter
     {
         Generation cur = getModel().getLastGeneration();
         Generation last = getLastGeneration();
+        updateRate(cur);
         if
         (
             last == null
@@ -922,11 +953,50 @@ extends ReactivePresenter
             || cur.getGenerationNumber() != last.getGenerationNumber()
         )
         {
+            if
+            (
+                last != null
+                && cur.getId() == last.getId()
+                && cur.getGenerationNumber() - last.getGenerationNumber() > 1
+                && getModel().isRunning()
+                && !getModel().isTurbo()
+            )
+                getModel().getMetrics().add
+                    (DROPPED_FRAME_METRIC, cur.getGenerationNumber() - last.getGenerationNumber() - 1);
             getView().render(cur);
             this.lastGeneration = cur;
         }
     }
 
+    //the rate window is restarted when the model is modified
+    private void updateRate(Generation cur)
+    {
+        long nanos = System.nanoTime();
+        Generation first = this.rateGeneration;
+        if (first == null || first.getId() != cur.getId())
+        {
+            this.rateGeneration = cur;
+            this.rateNanos = nanos;
+            return;
+        }
+        long elapsed = nanos - this.rateNanos;
+        if (elapsed <= 0 || elapsed < getRatePeriod(TimeUnit.NANOSECONDS)) return;
+        double rate = (cur.getGenerationNumber() - first.getGenerationNumber()) * 1_000_000_000.0 / elapsed;
+        getView().setRateInfo(String.format(RATE_FORMAT, rate));
+        this.rateGeneration = cur;
+        this.rateNanos = nanos;
+    }
+
+    public void setRatePeriod(long period, TimeUnit unit)
+    {
+        this.ratePeriod = unit.toNanos(period);
+    }
+
+    public long getRatePeriod(TimeUnit unit)
+    {
+        return unit.convert(this.ratePeriod, TimeUnit.NANOSECONDS);
+    }
+
     private Map<ControlType, EventConsumer<LifeView.Zone>> getControlActions()
     {
         return this.controlActions;
@@ -1006,8 +1076,10 @@ extends ReactivePresenter
         getView().setTip(getTip(Tip.SPEED_CONTROL));
     }
 
+    //changing the speed leaves the turbo mode
     private void changeSpeed(int speed)
     {
+        if (getModel().isTurbo()) getModel().setTurbo(false);
         speed = Math.max(speed, 1);
         long nanos = 1_000_000_000;
         long period = nanos / speed;
@@ -1016,6 +1088,15 @@ extends ReactivePresenter
         this.speed = speed;
     }
 
+    private void toggleTurbo(double x, double y, LifeView.Zone zone)
+    {
+        if (zone != LifeView.Zone.GLOBAL) return;
+        boolean turbo = !getModel().isTurbo();
+        getModel().setTurbo(turbo);
+        getView().setSpeedInfo(turbo ? TURBO_SPEED_INFO : String.format(SPEED_FORMAT, getSpeed()));
+        getView().setTip(getTip(Tip.SPEED_CONTROL));
+    }
+
     private void togglePopulation(int x, int y, LifeView.Zone zone)
     {
         if (zone != LifeView.Zone.GENERATION) return;
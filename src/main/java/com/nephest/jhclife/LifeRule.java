@@ -0,0 +1,215 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Life-like rule, B3/S23 means a cell is born with 3 neighbors and survives with 2 or 3 neighbors
+public final class LifeRule
+{
+
+    public static final int NEIGHBOR_COUNT_MAX = 8;
+
+    private static final int CONWAY_BIRTH_MASK = 1 << 3;
+    private static final int CONWAY_SURVIVAL_MASK = 1 << 2 | 1 << 3;
+
+    private static final Pattern BS_PATTERN
+        = Pattern.compile("B([0-8]*)/S([0-8]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SB_PATTERN = Pattern.compile("([0-8]*)/([0-8]*)");
+
+    public static final LifeRule CONWAY = parse("B3/S23");
+    public static final LifeRule HIGH_LIFE = parse("B36/S23");
+    public static final LifeRule DAY_AND_NIGHT = parse("B3678/S34678");
+    public static final LifeRule SEEDS = parse("B2/S");
+    public static final LifeRule LIFE_WITHOUT_DEATH = parse("B3/S012345678");
+    public static final LifeRule REPLICATOR = parse("B1357/S1357");
+
+    public static final Map<String, LifeRule> PRESETS;
+    static
+    {
+        Map<String, LifeRule> presets = new LinkedHashMap<>();
+        presets.put("Conway's Life", CONWAY);
+        presets.put("HighLife", HIGH_LIFE);
+        presets.put("Day & Night", DAY_AND_NIGHT);
+        presets.put("Seeds", SEEDS);
+        presets.put("Life without Death", LIFE_WITHOUT_DEATH);
+        presets.put("Replicator", REPLICATOR);
+        PRESETS = Collections.unmodifiableMap(presets);
+    }
+
+    private final int birthMask;
+    private final int survivalMask;
+    //next state, index is state * 9 + neighbor count
+    private final byte[] table = new byte[2 * (NEIGHBOR_COUNT_MAX + 1)];
+    //bit-parallel form, a term per neighbor count that leads to a live cell
+    private final long[] countTerms;
+    private final long[] birthTerms;
+    private final long[] survivalTerms;
+
+    private LifeRule(int birthMask, int survivalMask)
+    {
+        this.birthMask = birthMask;
+        this.survivalMask = survivalMask;
+        int counts = birthMask | survivalMask;
+        int termCount = Integer.bitCount(counts);
+        this.countTerms = new long[termCount];
+        this.birthTerms = new long[termCount];
+        this.survivalTerms = new long[termCount];
+        int term = 0;
+        for (int count = 0; count <= NEIGHBOR_COUNT_MAX; count++)
+        {
+            this.table[count] = (byte) (birthMask >>> count & 1);
+            this.table[NEIGHBOR_COUNT_MAX + 1 + count] = (byte) (survivalMask >>> count & 1);
+            if ((counts >>> count & 1) == 0) continue;
+            this.countTerms[term] = count;
+            this.birthTerms[term] = -(birthMask >>> count & 1);
+            this.survivalTerms[term] = -(survivalMask >>> count & 1);
+            term++;
+        }
+    }
+
+    //B/S notation or the classic S/B notation, e.g. B36/S23 or 23/36
+    public static LifeRule parse(String rulestring)
+    {
+        if (rulestring == null) throw new IllegalArgumentException("rulestring is null");
+        String str = rulestring.trim();
+        Matcher bs = BS_PATTERN.matcher(str);
+        if (bs.matches()) return new LifeRule(parseCounts(bs.group(1)), parseCounts(bs.group(2)));
+        Matcher sb = SB_PATTERN.matcher(str);
+        if (sb.matches()) return new LifeRule(parseCounts(sb.group(2)), parseCounts(sb.group(1)));
+        throw new IllegalArgumentException("Invalid rulestring: " + rulestring);
+    }
+
+    //preset name or rulestring
+    public static LifeRule fromString(String str)
+    {
+        if (str == null) throw new IllegalArgumentException("rule is null");
+        LifeRule preset = PRESETS.get(str.trim());
+        return preset != null ? preset : parse(str);
+    }
+
+    private static int parseCounts(String counts)
+    {
+        int mask = 0;
+        for (int i = 0; i < counts.length(); i++) mask |= 1 << (counts.charAt(i) - '0');
+        return mask;
+    }
+
+    public int getBirthMask()
+    {
+        return this.birthMask;
+    }
+
+    public int getSurvivalMask()
+    {
+        return this.survivalMask;
+    }
+
+    public boolean isConway()
+    {
+        return getBirthMask() == CONWAY_BIRTH_MASK && getSurvivalMask() == CONWAY_SURVIVAL_MASK;
+    }
+
+    //empty areas are not stable under B0 rules
+    public boolean isBirthOnEmpty()
+    {
+        return (getBirthMask() & 1) != 0;
+    }
+
+    public int getNextState(int state, int neighborCount)
+    {
+        return this.table[state * (NEIGHBOR_COUNT_MAX + 1) + neighborCount];
+    }
+
+    //bits of the arguments are cells, b0-b3 are bits of the neighbor count
+    public long calculateNextState(long alive, long b0, long b1, long b2, long b3)
+    {
+        long birth = 0;
+        long survival = 0;
+        for (int i = 0; i < this.countTerms.length; i++)
+        {
+            long count = this.countTerms[i];
+            //all bits of the term are set when the neighbor count equals the count of the term
+            long eq = (b0 ^ ((count & 1) - 1))
+                & (b1 ^ ((count >>> 1 & 1) - 1))
+                & (b2 ^ ((count >>> 2 & 1) - 1))
+                & (b3 ^ ((count >>> 3 & 1) - 1));
+            birth |= eq & this.birthTerms[i];
+            survival |= eq & this.survivalTerms[i];
+        }
+        return (alive & survival) | (~alive & birth);
+    }
+
+    long[] getCountTerms()
+    {
+        return this.countTerms;
+    }
+
+    long[] getBirthTerms()
+    {
+        return this.birthTerms;
+    }
+
+    long[] getSurvivalTerms()
+    {
+        return this.survivalTerms;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other) return true;
+        if (!(other instanceof LifeRule)) return false;
+        LifeRule rule = (LifeRule) other;
+        return rule.getBirthMask() == getBirthMask() && rule.getSurvivalMask() == getSurvivalMask();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return getBirthMask() * 31 + getSurvivalMask();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "B" + toCountString(getBirthMask()) + "/S" + toCountString(getSurvivalMask());
+    }
+
+    private static String toCountString(int mask)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int count = 0; count <= NEIGHBOR_COUNT_MAX; count++)
+            if ((mask >>> count & 1) != 0) sb.append(count);
+        return sb.toString();
+    }
+
+}
@@ -49,6 +49,8 @@ extends ReactiveViewBase<N, LifeViewListener, LifePresenter.ControlType>
 
     void setSpeedInfo(String speed);
 
+    void setRateInfo(String rate);
+
     void setStatus(String status);
 
     void setTip(String tip);
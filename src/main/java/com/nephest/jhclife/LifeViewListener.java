@@ -51,6 +51,8 @@ public interface LifeViewListener
 
     void onSpeedDefault();
 
+    void onTurboToggle();
+
     void onStateToggle();
 
     void onNewGame();
@@ -197,6 +197,7 @@ extends ReactivePresenter
             return;
         }
         getModel().stop();
+        getModel().setRule(LifeRule.fromString(getView().getRule()));
         //view popProb is a percentage
         double popProb = getView().getPopulationProbability() / 100.0;
         getModel().createNewPopulation(getView().getWidth(), getView().getHeight());
@@ -207,7 +208,7 @@ extends ReactivePresenter
 
     private boolean checkNewGameParameters()
     {
-        return checkDimensions() && checkPopulationProbability();
+        return checkDimensions() && checkPopulationProbability() && checkRule();
     }
 
     private boolean checkDimensions()
@@ -241,6 +242,25 @@ extends ReactivePresenter
         return result;
     }
 
+    private boolean checkRule()
+    {
+        boolean result = true;
+        try
+        {
+            LifeRule.fromString(getView().getRule());
+        }
+        catch (IllegalArgumentException ex)
+        {
+            getView().fireErrorAlert
+            (
+                "Invalid rule",
+                "Rule must be a preset name or a B/S rulestring, e.g. B36/S23"
+            );
+            result = false;
+        }
+        return result;
+    }
+
     private void cancel(double x, double y, MainMenuView.Zone zone)
     {
         if (zone != MainMenuView.Zone.GLOBAL) return;
@@ -43,4 +43,7 @@ extends ReactiveViewBase<N, MainMenuViewListener, MainMenuPresenter.ControlType>
 
     double getPopulationProbability();
 
+    //preset name or rulestring
+    String getRule();
+
 }
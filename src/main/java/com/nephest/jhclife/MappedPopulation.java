@@ -0,0 +1,195 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+    Cells of an uncompressed save that are read in place, see GenerationSerializer.
+    Bits are column-major, so rows are gathered bit by bit. Cells are copied sequentially
+    when the population is converted into a PackedPopulation. Missing trailing bytes are dead cells.
+    The mapping stays valid after the channel is closed, it is released when the population
+    is collected.
+*/
+public class MappedPopulation
+implements Population
+{
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+    private final int width;
+    private final int height;
+    private final long cells;
+    private final long length;
+    private final int chunkBytes;
+    private final MappedByteBuffer[] chunks;
+
+    MappedPopulation(FileChannel channel, long position, long length, int width, int height, int chunkBytes)
+    throws IOException
+    {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("Generation dimensions must not be negative");
+        if (chunkBytes < Long.BYTES) throw new IllegalArgumentException("chunkBytes must be at least " + Long.BYTES);
+        this.width = width;
+        this.height = height;
+        this.cells = (long) width * height;
+        this.length = Math.min(length, (this.cells + Byte.SIZE - 1) / Byte.SIZE);
+        this.chunkBytes = chunkBytes;
+        this.chunks = new MappedByteBuffer[(int) ((this.length + chunkBytes - 1) / chunkBytes)];
+        for (int i = 0; i < this.chunks.length; i++)
+        {
+            long begin = (long) i * chunkBytes;
+            this.chunks[i] = channel.map
+            (
+                FileChannel.MapMode.READ_ONLY,
+                position + begin,
+                Math.min(chunkBytes, this.length - begin)
+            );
+            this.chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public MappedPopulation(FileChannel channel, long position, long length, int width, int height)
+    throws IOException
+    {
+        this(channel, position, length, width, height, DEFAULT_CHUNK_BYTES);
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWordsPerRow()
+    {
+        return PackedPopulation.calculateWordCount(this.width);
+    }
+
+    //mapped bytes, trailing dead cells are not stored
+    public long getLength()
+    {
+        return this.length;
+    }
+
+    public int getChunkCount()
+    {
+        return this.chunks.length;
+    }
+
+    @Override
+    public boolean isAlive(int x, int y)
+    {
+        if (x < 0 || x >= getWidth()) throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        return isAlive((long) x * this.height + y);
+    }
+
+    private boolean isAlive(long ix)
+    {
+        long byteIx = ix >>> 3;
+        if (byteIx >= this.length) return false;
+        byte b = this.chunks[(int) (byteIx / this.chunkBytes)].get((int) (byteIx % this.chunkBytes));
+        return (b & (1 << (ix & 7))) != 0;
+    }
+
+    @Override
+    public long getWord(int y, int word)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (word < 0 || word >= getWordsPerRow()) throw new IllegalArgumentException("word out of bounds");
+        int begin = word << PackedPopulation.WORD_SHIFT;
+        int end = Math.min(begin + PackedPopulation.WORD_SIZE, this.width);
+        long result = 0;
+        for (int x = begin; x < end; x++)
+        {
+            if (isAlive((long) x * this.height + y)) result |= 1L << x;
+        }
+        return result;
+    }
+
+    @Override
+    public void copyRow(int y, long[] dest, int offset)
+    {
+        for (int i = 0; i < getWordsPerRow(); i++) dest[offset + i] = getWord(y, i);
+    }
+
+    //bytes are counted in place, bits after the last cell are ignored
+    @Override
+    public long countPopulation()
+    {
+        long count = 0;
+        for (MappedByteBuffer chunk : this.chunks)
+        {
+            int limit = chunk.limit();
+            int i = 0;
+            for (; i + Long.BYTES <= limit; i += Long.BYTES) count += Long.bitCount(chunk.getLong(i));
+            for (; i < limit; i++) count += Integer.bitCount(chunk.get(i) & 0xFF);
+        }
+        int tail = (int) (this.cells & 7);
+        if (tail != 0 && this.length == (this.cells + Byte.SIZE - 1) / Byte.SIZE)
+        {
+            long last = this.length - 1;
+            int b = this.chunks[(int) (last / this.chunkBytes)].get((int) (last % this.chunkBytes)) & 0xFF;
+            count -= Integer.bitCount(b >>> tail);
+        }
+        return count;
+    }
+
+    //the file is read sequentially, block by block
+    @Override
+    public PackedPopulation toPackedPopulation()
+    {
+        PackedPopulation population = new PackedPopulation(this.width, this.height);
+        byte[] block = new byte[GenerationSerializer.CHUNK_SIZE];
+        long bitOffset = 0;
+        for (MappedByteBuffer chunk : this.chunks)
+        {
+            ByteBuffer src = chunk.duplicate();
+            while (src.hasRemaining())
+            {
+                int length = Math.min(block.length, src.remaining());
+                src.get(block, 0, length);
+                GenerationSerializer.unpack(block, length, bitOffset, this.cells, population);
+                bitOffset += (long) length * Byte.SIZE;
+            }
+        }
+        return population;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+    Row-major cells of an uncompressed save that are read in place, see GenerationSerializer.
+    Rows are little-endian words that have the PackedPopulation layout, so they are bulk-copied.
+    A row never crosses a chunk border. Missing trailing bytes are dead cells. The mapping stays
+    valid after the channel is closed, it is released when the population is collected.
+*/
+public class MappedRowPopulation
+implements Population
+{
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final int rowsPerChunk;
+    private final LongBuffer[] chunks;
+
+    MappedRowPopulation(FileChannel channel, long position, long length, int width, int height, int chunkBytes)
+    throws IOException
+    {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("Generation dimensions must not be negative");
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = PackedPopulation.calculateWordCount(width);
+        this.lastWordMask = PackedPopulation.calculateLastWordMask(width);
+        long rowBytes = (long) this.wordsPerRow * Long.BYTES;
+        if (rowBytes > chunkBytes) throw new IllegalArgumentException("Rows don't fit into chunks");
+        this.rowsPerChunk = rowBytes == 0 ? Math.max(height, 1) : (int) (chunkBytes / rowBytes);
+        long mapped = Math.min(length / Long.BYTES * Long.BYTES, height * rowBytes);
+        long chunkSize = this.rowsPerChunk * rowBytes;
+        int chunkCount = chunkSize == 0 ? 0 : (int) ((mapped + chunkSize - 1) / chunkSize);
+        this.chunks = new LongBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++)
+        {
+            long begin = i * chunkSize;
+            MappedByteBuffer chunk = channel.map
+            (
+                FileChannel.MapMode.READ_ONLY,
+                position + begin,
+                Math.min(chunkSize, mapped - begin)
+            );
+            this.chunks[i] = chunk.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+    }
+
+    public MappedRowPopulation(FileChannel channel, long position, long length, int width, int height)
+    throws IOException
+    {
+        this(channel, position, length, width, height, DEFAULT_CHUNK_BYTES);
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWordsPerRow()
+    {
+        return this.wordsPerRow;
+    }
+
+    public int getChunkCount()
+    {
+        return this.chunks.length;
+    }
+
+    @Override
+    public boolean isAlive(int x, int y)
+    {
+        if (x < 0 || x >= getWidth()) throw new IllegalArgumentException("x out of bounds");
+        return (getWord(y, x >>> PackedPopulation.WORD_SHIFT) & (1L << x)) != 0;
+    }
+
+    @Override
+    public long getWord(int y, int word)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (word < 0 || word >= getWordsPerRow()) throw new IllegalArgumentException("word out of bounds");
+        int chunk = y / this.rowsPerChunk;
+        if (chunk >= this.chunks.length) return 0;
+        int ix = (y % this.rowsPerChunk) * this.wordsPerRow + word;
+        if (ix >= this.chunks[chunk].limit()) return 0;
+        long result = this.chunks[chunk].get(ix);
+        return word == getWordsPerRow() - 1 ? result & this.lastWordMask : result;
+    }
+
+    @Override
+    public void copyRow(int y, long[] dest, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        int copied = 0;
+        int chunk = y / this.rowsPerChunk;
+        if (chunk < this.chunks.length)
+        {
+            LongBuffer src = this.chunks[chunk].duplicate();
+            int ix = (y % this.rowsPerChunk) * this.wordsPerRow;
+            copied = Math.max(Math.min(this.wordsPerRow, src.limit() - ix), 0);
+            if (copied > 0)
+            {
+                src.position(ix);
+                src.get(dest, offset, copied);
+            }
+        }
+        Arrays.fill(dest, offset + copied, offset + this.wordsPerRow, 0);
+        if (this.wordsPerRow > 0) dest[offset + this.wordsPerRow - 1] &= this.lastWordMask;
+    }
+
+}
@@ -0,0 +1,237 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/*
+    Calculates off-heap populations. Stripes of rows are streamed through a heap window of
+    3 rows, so the kernels see the same ghost word layout as in PackedPopulation. Every row is
+    read once per stripe, plus 2 rows at the stripe borders.
+    It is not a GenerationEngine. Those calculate the heap buffers of ClassicLifeModel, so an
+    adapter would copy the whole universe back to the heap after every call. Running the model
+    on off-heap buffers is a follow-up, until then the engine is used directly.
+*/
+public class OffHeapGenerationEngine
+{
+
+    public static final int STRIPES_PER_THREAD = 4;
+    public static final int MIN_STRIPE_ROWS = ActiveTiles.TILE_HEIGHT;
+
+    private final ForkJoinPool forkJoinPool;
+    private final GenerationKernel kernel;
+    private final long[] counts = new long[2];
+    private OffHeapPopulation countedPopulation;
+    private long populationCount;
+    private boolean countValid = false;
+
+    public OffHeapGenerationEngine(ForkJoinPool pool, GenerationKernel kernel)
+    {
+        this.forkJoinPool = pool;
+        this.kernel = kernel;
+    }
+
+    public OffHeapGenerationEngine(ForkJoinPool pool)
+    {
+        this(pool, GenerationKernel.createDefault());
+    }
+
+    public OffHeapGenerationEngine()
+    {
+        this(null);
+    }
+
+    //returns the buffer that holds the result, src and dest can both be used as scratch buffers
+    public OffHeapPopulation calculate
+    (
+        OffHeapPopulation src,
+        OffHeapPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations must not be negative");
+        if(src.getWidth() != dest.getWidth() || src.getHeight() != dest.getHeight())
+            throw new IllegalArgumentException("src and dest have different dimensions");
+        if (src == dest) throw new IllegalArgumentException("src and dest must be different buffers");
+        if (src.getWordsPerRow() == 0 || src.getHeight() == 0) return src;
+
+        ForkJoinPool pool
+            = getForkJoinPool() == null
+            ? ForkJoinPool.commonPool()
+            : getForkJoinPool();
+        int stripes = calculateStripeCount(src, pool.getParallelism());
+        if (!this.countValid || src != this.countedPopulation)
+        {
+            this.populationCount = src.countPopulation();
+            this.countValid = true;
+        }
+        for (long i = 0; i < generations; i++)
+        {
+            OffHeapPopulation from = src;
+            OffHeapPopulation to = dest;
+            long[] counts = stripes == 1
+                ? calculateRows(from, to, 0, from.getHeight(), rule)
+                : pool.invoke(ForkJoinTask.adapt(()->IntStream.range(0, stripes)
+                    .parallel()
+                    .mapToObj(stripe->calculateStripe(from, to, stripes, stripe, rule))
+                    .reduce(new long[2], OffHeapGenerationEngine::sum)));
+            this.counts[GenerationKernel.BIRTH_COUNT] = counts[GenerationKernel.BIRTH_COUNT];
+            this.counts[GenerationKernel.DEATH_COUNT] = counts[GenerationKernel.DEATH_COUNT];
+            this.populationCount += counts[GenerationKernel.BIRTH_COUNT] - counts[GenerationKernel.DEATH_COUNT];
+            dest = src;
+            src = to;
+        }
+        this.countedPopulation = src;
+        return src;
+    }
+
+    public OffHeapPopulation calculate(OffHeapPopulation src, OffHeapPopulation dest, long generations)
+    {
+        return calculate(src, dest, generations, LifeRule.CONWAY);
+    }
+
+    private static int calculateStripeCount(OffHeapPopulation population, int parallelism)
+    {
+        if (parallelism == 1 || population.getWordCount() < PackedPopulation.REGION_PARALLEL_THRESHOLD)
+            return 1;
+        int maxStripes = Math.max(population.getHeight() / MIN_STRIPE_ROWS, 1);
+        return Math.min(parallelism * STRIPES_PER_THREAD, maxStripes);
+    }
+
+    private static long[] sum(long[] a, long[] b)
+    {
+        return new long[]
+        {
+            a[GenerationKernel.BIRTH_COUNT] + b[GenerationKernel.BIRTH_COUNT],
+            a[GenerationKernel.DEATH_COUNT] + b[GenerationKernel.DEATH_COUNT]
+        };
+    }
+
+    private long[] calculateStripe
+    (
+        OffHeapPopulation src,
+        OffHeapPopulation dest,
+        int stripes,
+        int stripe,
+        LifeRule rule
+    )
+    {
+        int begin = (int) ((long) src.getHeight() * stripe / stripes);
+        int end = (int) ((long) src.getHeight() * (stripe + 1) / stripes);
+        return calculateRows(src, dest, begin, end, rule);
+    }
+
+    //the window holds the up, current and down rows, the rows are rotated instead of copied
+    private long[] calculateRows
+    (
+        OffHeapPopulation src,
+        OffHeapPopulation dest,
+        int begin,
+        int end,
+        LifeRule rule
+    )
+    {
+        long[] counts = new long[2];
+        if (begin >= end) return counts;
+
+        int words = src.getWordsPerRow();
+        int stride = words + 2;
+        boolean aligned = src.getLastWordMask() == -1L;
+        int innerEnd = aligned ? words : words - 1;
+        long[] window = new long[stride * 3];
+        long[] result = new long[window.length];
+        int up = 1;
+        int cur = up + stride;
+        int down = cur + stride;
+        loadRow(src, begin - 1, window, up);
+        loadRow(src, begin, window, cur);
+        for (int y = begin; y < end; y++)
+        {
+            loadRow(src, y + 1, window, down);
+            getKernel().calculate(window, result, up, cur, down, 0, innerEnd, null, 0, counts, rule);
+            if (!aligned) GenerationCalculator
+                .calculateLastWord(window, result, up, cur, down, words, src.getLastWordMask(), counts, rule);
+            dest.setRow(y, result, cur);
+            int free = up;
+            up = cur;
+            cur = down;
+            down = free;
+        }
+        return counts;
+    }
+
+    //rows wrap around the torus
+    private static void loadRow(OffHeapPopulation src, int y, long[] window, int offset)
+    {
+        src.copyRow(Math.floorMod(y, src.getHeight()), window, offset);
+        PackedPopulation.updateRowBorders(window, offset, src.getWidth());
+    }
+
+    //must be called when the buffers were modified outside of the engine
+    public void invalidate()
+    {
+        this.countValid = false;
+    }
+
+    //live cells of the last result, -1 if the population is not that result
+    public long getPopulationCount(OffHeapPopulation population)
+    {
+        return this.countValid && population == this.countedPopulation ? this.populationCount : -1;
+    }
+
+    //born cells of the last generation
+    public long getBirthCount()
+    {
+        return this.counts[GenerationKernel.BIRTH_COUNT];
+    }
+
+    public long getDeathCount()
+    {
+        return this.counts[GenerationKernel.DEATH_COUNT];
+    }
+
+    public GenerationKernel getKernel()
+    {
+        return this.kernel;
+    }
+
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        metrics.set(GenerationEngine.ENGINE_METRIC_PREFIX + "cells.born", getBirthCount());
+        metrics.set(GenerationEngine.ENGINE_METRIC_PREFIX + "cells.died", getDeathCount());
+    }
+
+    private ForkJoinPool getForkJoinPool()
+    {
+        return this.forkJoinPool;
+    }
+
+}
@@ -0,0 +1,257 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.stream.IntStream;
+
+/*
+    Packed rows that live in direct buffers, so the cells are never scanned or moved by the GC.
+    Words are addressed by long indexes, a buffer can't be bigger than 2 GiB, so the rows are
+    split between chunks. A row never crosses a chunk border. The memory is released when
+    the population is collected.
+*/
+public class OffHeapPopulation
+implements Population
+{
+
+    public static final int DEFAULT_CHUNK_WORDS = 1 << 27;
+    public static final int MAX_CHUNK_WORDS = Integer.MAX_VALUE / Long.BYTES;
+
+    private static final int ZERO_WORDS = 1 << 12;
+    private static final long[] ZEROS = new long[ZERO_WORDS];
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final int chunkWords;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] chunks;
+    private final LongBuffer[] words;
+
+    OffHeapPopulation(int width, int height, int chunkWords)
+    {
+        if (width < 0) throw new IllegalArgumentException("width must be more than 0");
+        if (height < 0) throw new IllegalArgumentException("height must be more than 0");
+        if (chunkWords < 1 || chunkWords > MAX_CHUNK_WORDS)
+            throw new IllegalArgumentException("chunkWords must be in 1-" + MAX_CHUNK_WORDS + " range");
+        if (PackedPopulation.calculateWordCount(width) > chunkWords)
+            throw new IllegalArgumentException("Rows don't fit into chunks");
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = PackedPopulation.calculateWordCount(width);
+        this.lastWordMask = PackedPopulation.calculateLastWordMask(width);
+        this.chunkWords = chunkWords;
+        this.rowsPerChunk = chunkWords / Math.max(this.wordsPerRow, 1);
+        int chunkCount = (int) (((long) height + this.rowsPerChunk - 1) / this.rowsPerChunk);
+        this.chunks = new ByteBuffer[chunkCount];
+        this.words = new LongBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++)
+        {
+            int rows = Math.min(this.rowsPerChunk, height - i * this.rowsPerChunk);
+            //fresh direct buffers are zeroed
+            this.chunks[i] = ByteBuffer.allocateDirect(rows * this.wordsPerRow * Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+            this.words[i] = this.chunks[i].asLongBuffer();
+        }
+    }
+
+    public OffHeapPopulation(int width, int height)
+    {
+        this(width, height, DEFAULT_CHUNK_WORDS);
+    }
+
+    public static OffHeapPopulation of(Population population)
+    {
+        OffHeapPopulation result = new OffHeapPopulation(population.getWidth(), population.getHeight());
+        long[] row = new long[population.getWordsPerRow()];
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            result.setRow(y, row, 0);
+        }
+        return result;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWordsPerRow()
+    {
+        return this.wordsPerRow;
+    }
+
+    public long getWordCount()
+    {
+        return (long) getWordsPerRow() * getHeight();
+    }
+
+    public int getChunkCount()
+    {
+        return this.chunks.length;
+    }
+
+    public long getLastWordMask()
+    {
+        return this.lastWordMask;
+    }
+
+    private LongBuffer getChunk(int y)
+    {
+        return this.words[y / this.rowsPerChunk];
+    }
+
+    private int getChunkOffset(int y)
+    {
+        return (y % this.rowsPerChunk) * getWordsPerRow();
+    }
+
+    @Override
+    public boolean isAlive(int x, int y)
+    {
+        checkBounds(x, y);
+        return (getChunk(y).get(getChunkOffset(y) + (x >>> PackedPopulation.WORD_SHIFT)) & (1L << x)) != 0;
+    }
+
+    public void setAlive(int x, int y, boolean alive)
+    {
+        checkBounds(x, y);
+        LongBuffer chunk = getChunk(y);
+        int ix = getChunkOffset(y) + (x >>> PackedPopulation.WORD_SHIFT);
+        long word = chunk.get(ix);
+        chunk.put(ix, alive ? word | (1L << x) : word & ~(1L << x));
+    }
+
+    private void checkBounds(int x, int y)
+    {
+        if (x < 0 || x >= getWidth())
+            throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight())
+            throw new IllegalArgumentException("y out of bounds");
+    }
+
+    //the bits after the last cell are never set, so the row is copied as is
+    @Override
+    public void copyRow(int y, long[] dest, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        LongBuffer chunk = getChunk(y).duplicate();
+        chunk.position(getChunkOffset(y));
+        chunk.get(dest, offset, getWordsPerRow());
+    }
+
+    @Override
+    public long getWord(int y, int word)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (word < 0 || word >= getWordsPerRow()) throw new IllegalArgumentException("word out of bounds");
+        return getChunk(y).get(getChunkOffset(y) + word);
+    }
+
+    public void setRow(int y, long[] src, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (getWordsPerRow() == 0) return;
+        LongBuffer chunk = getChunk(y).duplicate();
+        int chunkOffset = getChunkOffset(y);
+        chunk.position(chunkOffset);
+        chunk.put(src, offset, getWordsPerRow() - 1);
+        chunk.put(src[offset + getWordsPerRow() - 1] & getLastWordMask());
+    }
+
+    //rows are counted in parallel, they are read in place
+    @Override
+    public long countPopulation()
+    {
+        IntStream rows = IntStream.range(0, getHeight());
+        if (getWordCount() >= PackedPopulation.REGION_PARALLEL_THRESHOLD) rows = rows.parallel();
+        return rows.mapToLong(this::countRow).sum();
+    }
+
+    private long countRow(int y)
+    {
+        LongBuffer chunk = getChunk(y);
+        int offset = getChunkOffset(y);
+        long count = 0;
+        for (int i = 0; i < getWordsPerRow(); i++) count += Long.bitCount(chunk.get(offset + i));
+        return count;
+    }
+
+    public void clear()
+    {
+        for (LongBuffer chunk : this.words)
+        {
+            LongBuffer dest = chunk.duplicate();
+            dest.clear();
+            while (dest.hasRemaining()) dest.put(ZEROS, 0, Math.min(ZERO_WORDS, dest.remaining()));
+        }
+    }
+
+    //chunks have the same layout, so they are copied as raw memory
+    public void copyFrom(OffHeapPopulation src)
+    {
+        if (src.getWidth() != getWidth() || src.getHeight() != getHeight())
+            throw new IllegalArgumentException("src and dest have different dimensions");
+        if (src.chunkWords != this.chunkWords)
+            throw new IllegalArgumentException("src and dest have different chunks");
+        for (int i = 0; i < this.chunks.length; i++)
+        {
+            ByteBuffer dest = this.chunks[i].duplicate();
+            dest.clear();
+            ByteBuffer from = src.chunks[i].duplicate();
+            from.clear();
+            dest.put(from);
+        }
+    }
+
+    public OffHeapPopulation copy()
+    {
+        OffHeapPopulation copy = new OffHeapPopulation(getWidth(), getHeight(), this.chunkWords);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    //same chunk layout
+    public OffHeapPopulation createBuffer()
+    {
+        return new OffHeapPopulation(getWidth(), getHeight(), this.chunkWords);
+    }
+
+}
@@ -0,0 +1,365 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongConsumer;
+
+public class PackedGenerationEngine
+implements GenerationEngine
+{
+
+    private final ForkJoinPool forkJoinPool;
+    private final GenerationKernel kernel;
+    private final ForkJoinGranularity granularity;
+    private ActiveTiles activeTiles;
+    private LifeRule rule;
+    private LongConsumer hashListener;
+    private long hash;
+    private boolean hashValid = false;
+    //live cells of the last result, counted by the generation steps
+    private final long[] counts = new long[2];
+    private PackedPopulation countedPopulation;
+    private long populationCount;
+    private boolean countValid = false;
+    private boolean sequential = false;
+    private int split = 1;
+
+    public PackedGenerationEngine(ForkJoinPool pool, GenerationKernel kernel)
+    {
+        this.forkJoinPool = pool;
+        this.kernel = kernel;
+        this.granularity = new ForkJoinGranularity
+            ((pool == null ? ForkJoinPool.commonPool() : pool).getParallelism());
+    }
+
+    public PackedGenerationEngine(ForkJoinPool pool)
+    {
+        this(pool, GenerationKernel.createDefault());
+    }
+
+    public PackedGenerationEngine()
+    {
+        this(null);
+    }
+
+    /*
+        Calculates one generation of the tiles, the borders of src are refreshed by the step.
+        Born and dead cells are added to counts.
+    */
+    protected interface GenerationStep
+    {
+        void calculate
+        (
+            PackedPopulation src,
+            PackedPopulation dest,
+            ActiveTiles tiles,
+            LifeRule rule,
+            long[] counts
+        );
+    }
+
+    @Override
+    public PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        ActiveTiles tiles = getActiveTiles(src);
+        //stable tiles of one rule are not stable under another one
+        if (!rule.equals(this.rule)) tiles.activateAll();
+        this.rule = rule;
+        return calculate(src, dest, generations, rule, tiles);
+    }
+
+    protected PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule,
+        ActiveTiles tiles
+    )
+    {
+        long cells = calculateActiveCells(tiles);
+        if (generations > 0 && getGranularity().isProbe(cells))
+        {
+            //a probe is a single generation, so the rest of the call is not slowed down by it
+            PackedPopulation result = calculateBatch
+                (src, dest, 1, rule, tiles, !getGranularity().isSequential(cells), cells);
+            if (generations == 1) return result;
+            dest = result == src ? dest : src;
+            src = result;
+            generations--;
+            cells = calculateActiveCells(tiles);
+        }
+        return calculateBatch(src, dest, generations, rule, tiles, getGranularity().isSequential(cells), cells);
+    }
+
+    //generations run back-to-back in a pool thread, so the pool is entered only once
+    private PackedPopulation calculateBatch
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule,
+        ActiveTiles tiles,
+        boolean sequential,
+        long cells
+    )
+    {
+        ForkJoinPool pool
+            = getForkJoinPool() == null
+            ? ForkJoinPool.commonPool()
+            : getForkJoinPool();
+        this.sequential = sequential;
+        long begin = System.nanoTime();
+        PackedPopulation result = sequential
+            ? calculateGenerations(src, dest, generations, rule, tiles, this::calculateSequentialGeneration)
+            : pool.invoke(ForkJoinTask.adapt(()->
+                calculateGenerations(src, dest, generations, rule, tiles, this::calculateParallelGeneration)));
+        getGranularity().record(cells, generations, sequential, System.nanoTime() - begin);
+        return result;
+    }
+
+    private static long calculateActiveCells(ActiveTiles tiles)
+    {
+        return (long) tiles.getActiveCount() * ActiveTiles.TILE_WIDTH * ActiveTiles.TILE_HEIGHT;
+    }
+
+    //sequential generations are calculated as a single task
+    private void calculateSequentialGeneration
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        ActiveTiles tiles,
+        LifeRule rule,
+        long[] counts
+    )
+    {
+        this.split = Math.max(tiles.getRows(), 1);
+        invoke(new GenerationCalculator(src, dest, tiles, getKernel(), rule, this.split), counts);
+    }
+
+    private void calculateParallelGeneration
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        ActiveTiles tiles,
+        LifeRule rule,
+        long[] counts
+    )
+    {
+        this.split = getGranularity().calculateSplit(calculateActiveCells(tiles), tiles.getRows());
+        invoke(new GenerationCalculator(src, dest, tiles, getKernel(), rule, this.split), counts);
+    }
+
+    private static void invoke(GenerationCalculator calculator, long[] counts)
+    {
+        calculator.invoke();
+        counts[GenerationKernel.BIRTH_COUNT] += calculator.getBirthCount();
+        counts[GenerationKernel.DEATH_COUNT] += calculator.getDeathCount();
+    }
+
+    //the hash, population count and active tiles are updated between generations
+    protected final PackedPopulation calculateGenerations
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule,
+        ActiveTiles tiles,
+        GenerationStep step
+    )
+    {
+        LongConsumer listener = getHashListener();
+        if (listener != null && !this.hashValid && generations > 0)
+        {
+            this.hash = PopulationHash.hash(src);
+            this.hashValid = true;
+        }
+        //the only full pass, it is done after the buffers were modified outside of the engine
+        if (!this.countValid && generations > 0)
+        {
+            this.populationCount = src.countPopulation();
+            this.countValid = true;
+        }
+        for (long i = 0; i < generations; i++)
+        {
+            this.counts[GenerationKernel.BIRTH_COUNT] = 0;
+            this.counts[GenerationKernel.DEATH_COUNT] = 0;
+            step.calculate(src, dest, tiles, rule, this.counts);
+            this.populationCount += this.counts[GenerationKernel.BIRTH_COUNT]
+                - this.counts[GenerationKernel.DEATH_COUNT];
+            if (listener != null)
+            {
+                this.hash = updateHash(this.hash, src, dest, tiles);
+                listener.accept(this.hash);
+            }
+            tiles.update();
+            PackedPopulation result = dest;
+            dest = src;
+            src = result;
+        }
+        this.countedPopulation = src;
+        return src;
+    }
+
+    @Override
+    public long getPopulationCount(PackedPopulation population)
+    {
+        return this.countValid && population == this.countedPopulation ? this.populationCount : -1;
+    }
+
+    //born cells of the last generation
+    public long getBirthCount()
+    {
+        return this.counts[GenerationKernel.BIRTH_COUNT];
+    }
+
+    public long getDeathCount()
+    {
+        return this.counts[GenerationKernel.DEATH_COUNT];
+    }
+
+    //only changed tiles can hold changed words
+    private static long updateHash
+    (
+        long hash,
+        PackedPopulation src,
+        PackedPopulation dest,
+        ActiveTiles tiles
+    )
+    {
+        for (int row = 0; row < tiles.getRows(); row++)
+        {
+            int rowBegin = row * ActiveTiles.TILE_HEIGHT;
+            int rowEnd = Math.min(rowBegin + ActiveTiles.TILE_HEIGHT, src.getHeight());
+            for (int column = 0; column < tiles.getColumns(); column++)
+            {
+                if (tiles.isChanged(column, row))
+                    hash = PopulationHash.update(hash, src, dest, column, rowBegin, rowEnd);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        if (this.activeTiles != null) this.activeTiles.activateAll();
+        this.hashValid = false;
+        this.countValid = false;
+    }
+
+    //only the tiles around the cell are activated, the hash and count are kept without a full pass
+    @Override
+    public void invalidate(int x, int y, long hash, int countDelta)
+    {
+        if (this.activeTiles != null)
+            this.activeTiles.activate(x / ActiveTiles.TILE_WIDTH, y / ActiveTiles.TILE_HEIGHT);
+        if (this.hashValid) this.hash = hash;
+        if (this.countValid) this.populationCount += countDelta;
+    }
+
+    @Override
+    public void setHashListener(LongConsumer listener)
+    {
+        this.hashListener = listener;
+        this.hashValid = false;
+    }
+
+    private LongConsumer getHashListener()
+    {
+        return this.hashListener;
+    }
+
+    private ActiveTiles getActiveTiles(PackedPopulation population)
+    {
+        if (this.activeTiles == null || !this.activeTiles.matches(population))
+        {
+            this.activeTiles = new ActiveTiles(population.getWidth(), population.getHeight());
+            this.hashValid = false;
+            this.countValid = false;
+        }
+        return this.activeTiles;
+    }
+
+    //tiles that will be calculated in the next generation
+    public BitSet getActiveTiles()
+    {
+        return this.activeTiles == null ? new BitSet() : this.activeTiles.getActive();
+    }
+
+    public int getActiveTileCount()
+    {
+        return this.activeTiles == null ? 0 : this.activeTiles.getActiveCount();
+    }
+
+    public int getTileCount()
+    {
+        return this.activeTiles == null ? 0 : this.activeTiles.getTileCount();
+    }
+
+    public ForkJoinGranularity getGranularity()
+    {
+        return this.granularity;
+    }
+
+    public GenerationKernel getKernel()
+    {
+        return this.kernel;
+    }
+
+    @Override
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        updateTrackingMetrics(metrics);
+        metrics.set(ENGINE_METRIC_PREFIX + "forkjoin.split", this.split);
+        metrics.set(ENGINE_METRIC_PREFIX + "forkjoin.sequential", this.sequential ? 1 : 0);
+        metrics.set(ENGINE_METRIC_PREFIX + "forkjoin.threshold", getGranularity().getSequentialThreshold());
+    }
+
+    protected void updateTrackingMetrics(LifeMetrics metrics)
+    {
+        metrics.set(ENGINE_METRIC_PREFIX + "tiles.active", getActiveTileCount());
+        metrics.set(ENGINE_METRIC_PREFIX + "tiles.total", getTileCount());
+        metrics.set(ENGINE_METRIC_PREFIX + "cells.born", getBirthCount());
+        metrics.set(ENGINE_METRIC_PREFIX + "cells.died", getDeathCount());
+    }
+
+    private ForkJoinPool getForkJoinPool()
+    {
+        return this.forkJoinPool;
+    }
+
+}
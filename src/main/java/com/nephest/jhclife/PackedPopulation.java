@@ -0,0 +1,381 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+//rows are surrounded by ghost words and ghost rows that hold the opposite torus edges
+public class PackedPopulation
+implements Population
+{
+
+    public static final int WORD_SIZE = Long.SIZE;
+    public static final int WORD_SHIFT = 6;
+    public static final int WORD_MASK = WORD_SIZE - 1;
+    //regions with more words are edited in parallel
+    public static final int REGION_PARALLEL_THRESHOLD = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final int rowStride;
+    private final long lastWordMask;
+    private final long[] words;
+
+    public PackedPopulation(int width, int height)
+    {
+        if (width < 0) throw new IllegalArgumentException("width must be more than 0");
+        if (height < 0) throw new IllegalArgumentException("height must be more than 0");
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = calculateWordCount(width);
+        this.rowStride = this.wordsPerRow + 2;
+        this.lastWordMask = calculateLastWordMask(width);
+        try
+        {
+            this.words = new long[Math.multiplyExact(this.rowStride, Math.addExact(height, 2))];
+        }
+        catch (ArithmeticException ex)
+        {
+            throw new IllegalArgumentException("Population is too big", ex);
+        }
+    }
+
+    public static int calculateWordCount(int bits)
+    {
+        return (bits + WORD_MASK) >>> WORD_SHIFT;
+    }
+
+    public static long calculateLastWordMask(int width)
+    {
+        int tail = width & WORD_MASK;
+        return tail == 0 ? -1L : (1L << tail) - 1;
+    }
+
+    public static PackedPopulation fromArray(int[][] population)
+    {
+        int width = population.length;
+        int height = width > 0 ? population[0].length : 0;
+        PackedPopulation result = new PackedPopulation(width, height);
+        for (int col = 0; col < width; col++)
+        {
+            for (int row = 0; row < height; row++)
+            {
+                if (population[col][row] == 1) result.setAlive(col, row, true);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWordsPerRow()
+    {
+        return this.wordsPerRow;
+    }
+
+    //distance between the same words of adjacent rows, including the ghost words
+    public int getRowStride()
+    {
+        return this.rowStride;
+    }
+
+    //valid bits of the last word in a row, the next bit is the east ghost cell, the rest stay 0
+    public long getLastWordMask()
+    {
+        return this.lastWordMask;
+    }
+
+    protected long[] getWords()
+    {
+        return this.words;
+    }
+
+    //-1 and height are ghost rows
+    public int getRowOffset(int y)
+    {
+        return (y + 1) * getRowStride() + 1;
+    }
+
+    /*
+        Copies the torus edges to the ghost cells, so every cell has all of its neighbors next to it.
+        Must be called after the population was modified and before its next generation is calculated.
+     */
+    public void updateBorders()
+    {
+        int words = getWordsPerRow();
+        int height = getHeight();
+        if (words == 0 || height == 0) return;
+
+        for (int y = 0; y < height; y++) updateRowBorders(this.words, getRowOffset(y), getWidth());
+        int stride = getRowStride();
+        System.arraycopy(this.words, getRowOffset(height - 1) - 1, this.words, getRowOffset(-1) - 1, stride);
+        System.arraycopy(this.words, getRowOffset(0) - 1, this.words, getRowOffset(height) - 1, stride);
+    }
+
+    //offset is the first word of a row that has a ghost word on each side
+    static void updateRowBorders(long[] words, int offset, int width)
+    {
+        int wordsPerRow = calculateWordCount(width);
+        int lastBit = (width - 1) & WORD_MASK;
+        long lastWordMask = calculateLastWordMask(width);
+        long first = words[offset];
+        long last = words[offset + wordsPerRow - 1] & lastWordMask;
+        //the last cell is the west neighbor of the first cell
+        words[offset - 1] = last << (WORD_MASK - lastBit);
+        if (lastWordMask == -1L)
+        {
+            words[offset + wordsPerRow] = first & 1;
+        }
+        else
+        {
+            //ghost bit right after the last cell
+            words[offset + wordsPerRow - 1] = last | ((first & 1) << (lastBit + 1));
+            words[offset + wordsPerRow] = 0;
+        }
+    }
+
+    @Override
+    public boolean isAlive(int x, int y)
+    {
+        checkBounds(x, y);
+        int ix = getRowOffset(y) + (x >>> WORD_SHIFT);
+        return (this.words[ix] & (1L << x)) != 0;
+    }
+
+    public void setAlive(int x, int y, boolean alive)
+    {
+        checkBounds(x, y);
+        int ix = getRowOffset(y) + (x >>> WORD_SHIFT);
+        if (alive)
+        {
+            this.words[ix] |= 1L << x;
+        }
+        else
+        {
+            this.words[ix] &= ~(1L << x);
+        }
+    }
+
+    private void checkBounds(int x, int y)
+    {
+        if (x < 0 || x >= getWidth())
+            throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight())
+            throw new IllegalArgumentException("y out of bounds");
+    }
+
+    @Override
+    public long getWord(int y, int word)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (word < 0 || word >= getWordsPerRow()) throw new IllegalArgumentException("word out of bounds");
+        long result = this.words[getRowOffset(y) + word];
+        return word == getWordsPerRow() - 1 ? result & getLastWordMask() : result;
+    }
+
+    @Override
+    public void copyRow(int y, long[] dest, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        System.arraycopy(this.words, getRowOffset(y), dest, offset, getWordsPerRow());
+        if (getWordsPerRow() > 0) dest[offset + getWordsPerRow() - 1] &= getLastWordMask();
+    }
+
+    public void setRow(int y, long[] src, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        int rowOffset = getRowOffset(y);
+        System.arraycopy(src, offset, this.words, rowOffset, getWordsPerRow());
+        if (getWordsPerRow() > 0) this.words[rowOffset + getWordsPerRow() - 1] &= getLastWordMask();
+    }
+
+    //regions are clipped to the population
+    public void fill(int x, int y, int width, int height, boolean alive)
+    {
+        long bits = alive ? -1L : 0L;
+        editRegion(x, y, width, height, (row)->editRow(row, x, width, (i)->bits, StampMode.REPLACE));
+    }
+
+    //every row has its own generator, so the result doesn't depend on the row order
+    public void randomize(int x, int y, int width, int height, long seed, double density)
+    {
+        if (density < 0 || density > 1.0)
+            throw new IllegalArgumentException("density must be in 0-1 range");
+        editRegion(x, y, width, height, (row)->
+        {
+            SplittableRandom random = new SplittableRandom(new SplittableRandom(seed + row).nextLong());
+            editRow(row, x, width, (i)->randomWord(random, density), StampMode.REPLACE);
+        });
+    }
+
+    private static long randomWord(SplittableRandom random, double density)
+    {
+        long word = 0;
+        for (int i = 0; i < WORD_SIZE; i++) if (random.nextDouble() < density) word |= 1L << i;
+        return word;
+    }
+
+    //the top left cell of the stamp is placed at x, y
+    public void stamp(Population stamp, int x, int y, StampMode mode)
+    {
+        int width = stamp.getWidth();
+        editRegion(x, y, width, stamp.getHeight(), (row)->
+        {
+            long[] src = new long[stamp.getWordsPerRow()];
+            stamp.copyRow(row - y, src, 0);
+            editRow(row, x, width, (i)->readBits(src, (i << WORD_SHIFT) - x), mode);
+        });
+    }
+
+    //64 cells that start at the bit, cells outside of the row are dead
+    private static long readBits(long[] row, int bit)
+    {
+        int word = Math.floorDiv(bit, WORD_SIZE);
+        int shift = Math.floorMod(bit, WORD_SIZE);
+        long low = getWord(row, word) >>> shift;
+        return shift == 0 ? low : low | (getWord(row, word + 1) << (WORD_SIZE - shift));
+    }
+
+    private static long getWord(long[] row, int word)
+    {
+        return word < 0 || word >= row.length ? 0 : row[word];
+    }
+
+    private void editRegion(int x, int y, int width, int height, IntConsumer rowEditor)
+    {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("region size must not be negative");
+        int begin = Math.max(y, 0);
+        int end = (int) Math.min((long) y + height, getHeight());
+        if (begin >= end || x >= getWidth() || (long) x + width <= 0) return;
+
+        long regionWords = (long) calculateWordCount(width) * (end - begin);
+        IntStream rows = IntStream.range(begin, end);
+        if (regionWords >= REGION_PARALLEL_THRESHOLD) rows = rows.parallel();
+        rows.forEach(rowEditor);
+    }
+
+    //cells x..x+width of the row are combined with the source words of the population word indexes
+    private void editRow(int y, int x, int width, IntToLongFunction src, StampMode mode)
+    {
+        int begin = Math.max(x, 0);
+        int end = (int) Math.min((long) x + width, getWidth());
+        int offset = getRowOffset(y);
+        for (int i = begin >>> WORD_SHIFT; i <= (end - 1) >>> WORD_SHIFT; i++)
+        {
+            int low = Math.max(begin, i << WORD_SHIFT) & WORD_MASK;
+            int high = Math.min(end, (i + 1) << WORD_SHIFT) - (i << WORD_SHIFT);
+            long mask = (high - low == WORD_SIZE ? -1L : (1L << (high - low)) - 1) << low;
+            this.words[offset + i] = mode.combine(this.words[offset + i], src.applyAsLong(i), mask);
+        }
+    }
+
+    @Override
+    public long countPopulation()
+    {
+        long count = 0;
+        int words = getWordsPerRow();
+        for (int y = 0; y < getHeight(); y++)
+        {
+            int offset = getRowOffset(y);
+            for (int i = 0; i < words - 1; i++) count += Long.bitCount(this.words[offset + i]);
+            if (words > 0) count += Long.bitCount(this.words[offset + words - 1] & getLastWordMask());
+        }
+        return count;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.words, 0);
+    }
+
+    public void copyFrom(PackedPopulation src)
+    {
+        if (src.getWidth() != getWidth() || src.getHeight() != getHeight())
+            throw new IllegalArgumentException("src and dest have different dimensions");
+        System.arraycopy(src.words, 0, this.words, 0, this.words.length);
+    }
+
+    public PackedPopulation copy()
+    {
+        PackedPopulation copy = new PackedPopulation(getWidth(), getHeight());
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    @Override
+    public PackedPopulation toPackedPopulation()
+    {
+        return copy();
+    }
+
+    public int[][] toArray()
+    {
+        int[][] result = new int[getWidth()][getHeight()];
+        for (int row = 0; row < getHeight(); row++)
+        {
+            int offset = getRowOffset(row);
+            for (int col = 0; col < getWidth(); col++)
+            {
+                result[col][row] = (int) (this.words[offset + (col >>> WORD_SHIFT)] >>> col) & 1;
+            }
+        }
+        return result;
+    }
+
+    //row-major
+    public int[] toArray1D()
+    {
+        int[] result = new int[Math.multiplyExact(getWidth(), getHeight())];
+        int k = 0;
+        for (int row = 0; row < getHeight(); row++)
+        {
+            int offset = getRowOffset(row);
+            for (int col = 0; col < getWidth(); col++)
+            {
+                result[k++] = (int) (this.words[offset + (col >>> WORD_SHIFT)] >>> col) & 1;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,281 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+    Persistent workers own fixed stripes of tile rows and calculate every generation together
+    with the calling thread, so no tasks are created. Generations are released and collected
+    by a spin-then-park barrier that allocates nothing in the steady state. Workers are daemon
+    threads, the engine must be closed to stop them.
+*/
+public class PhasedGenerationEngine
+extends PackedGenerationEngine
+implements java.io.Closeable
+{
+
+    public static final int SPIN_COUNT = 1 << 10;
+
+    private final int threads;
+    //spinning threads would take the processor away from the running ones
+    private final int spins;
+    private final Thread[] workers;
+    //1 if the worker is parked or is about to park
+    private final AtomicIntegerArray parked;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private final GenerationStep step = this::calculatePhasedGeneration;
+    private volatile int phase = 0;
+    private volatile boolean coordinatorParked = false;
+    private volatile boolean closed = false;
+    private volatile Throwable failure;
+    private Thread coordinator;
+
+    //stripe i holds tile rows stripes[i] to stripes[i + 1], the calling thread owns stripe 0
+    private int[] stripes;
+    private int[][] spans;
+    private long[][] counts;
+
+    //generation state, it is published to the workers by the phase
+    private PackedPopulation src;
+    private PackedPopulation dest;
+    private ActiveTiles tiles;
+    private LifeRule rule;
+
+    public PhasedGenerationEngine(int threads, GenerationKernel kernel)
+    {
+        super(null, kernel);
+        if (threads < 1) throw new IllegalArgumentException("threads must be more than 0");
+        this.threads = threads;
+        this.spins = Runtime.getRuntime().availableProcessors() >= threads ? SPIN_COUNT : 0;
+        this.workers = new Thread[threads - 1];
+        this.parked = new AtomicIntegerArray(this.workers.length);
+        for (int i = 0; i < this.workers.length; i++)
+        {
+            int stripe = i + 1;
+            Thread worker = new Thread(()->work(stripe));
+            worker.setDaemon(true);
+            worker.setName("PhasedGenerationEngine worker " + stripe);
+            this.workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    public PhasedGenerationEngine(int threads)
+    {
+        this(threads, GenerationKernel.createDefault());
+    }
+
+    public PhasedGenerationEngine()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getThreads()
+    {
+        return this.threads;
+    }
+
+    public boolean isClosed()
+    {
+        return this.closed;
+    }
+
+    @Override
+    protected PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule,
+        ActiveTiles tiles
+    )
+    {
+        if (isClosed()) throw new IllegalStateException("engine is closed");
+        prepareStripes(src, tiles);
+        return calculateGenerations(src, dest, generations, rule, tiles, this.step);
+    }
+
+    //stripes and scratch buffers are only allocated when the dimensions change
+    private void prepareStripes(PackedPopulation src, ActiveTiles tiles)
+    {
+        int spanLength = src.getWordsPerRow() + 1;
+        if
+        (
+            this.stripes != null
+            && this.stripes[this.threads] == tiles.getRows()
+            && this.spans[0].length >= spanLength
+        )
+            return;
+
+        this.stripes = new int[this.threads + 1];
+        for (int i = 0; i <= this.threads; i++)
+            this.stripes[i] = (int) ((long) tiles.getRows() * i / this.threads);
+        this.spans = new int[this.threads][spanLength];
+        this.counts = new long[this.threads][2];
+    }
+
+    private void calculatePhasedGeneration
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        ActiveTiles tiles,
+        LifeRule rule,
+        long[] counts
+    )
+    {
+        src.updateBorders();
+        this.src = src;
+        this.dest = dest;
+        this.tiles = tiles;
+        this.rule = rule;
+        this.coordinator = Thread.currentThread();
+        this.remaining.set(this.workers.length);
+        //the volatile write publishes the generation state
+        this.phase++;
+        for (int i = 0; i < this.workers.length; i++)
+            if (this.parked.get(i) == 1) LockSupport.unpark(this.workers[i]);
+        calculateStripe(0);
+        awaitWorkers();
+        Throwable failure = this.failure;
+        if (failure != null)
+        {
+            close();
+            throw new IllegalStateException("worker failed", failure);
+        }
+        for (long[] stripeCounts : this.counts)
+        {
+            counts[GenerationKernel.BIRTH_COUNT] += stripeCounts[GenerationKernel.BIRTH_COUNT];
+            counts[GenerationKernel.DEATH_COUNT] += stripeCounts[GenerationKernel.DEATH_COUNT];
+        }
+    }
+
+    private void calculateStripe(int stripe)
+    {
+        long[] counts = this.counts[stripe];
+        counts[GenerationKernel.BIRTH_COUNT] = 0;
+        counts[GenerationKernel.DEATH_COUNT] = 0;
+        GenerationCalculator.calculateTileRows
+        (
+            this.src, this.dest,
+            this.tiles,
+            getKernel(),
+            this.rule,
+            this.stripes[stripe], this.stripes[stripe + 1],
+            this.spans[stripe],
+            counts
+        );
+    }
+
+    private void awaitWorkers()
+    {
+        for (int i = 0; i < this.spins && this.remaining.get() != 0; i++) Thread.onSpinWait();
+        //the flag is set before the count is checked again, so the last worker can't miss it
+        while (this.remaining.get() != 0)
+        {
+            this.coordinatorParked = true;
+            if (this.remaining.get() != 0) LockSupport.park(this);
+            this.coordinatorParked = false;
+        }
+    }
+
+    private void work(int stripe)
+    {
+        int phase = 0;
+        while (true)
+        {
+            phase = awaitPhase(stripe - 1, phase);
+            if (isClosed()) return;
+            try
+            {
+                calculateStripe(stripe);
+            }
+            catch (Throwable ex)
+            {
+                this.failure = ex;
+            }
+            finally
+            {
+                if (this.remaining.decrementAndGet() == 0 && this.coordinatorParked)
+                    LockSupport.unpark(this.coordinator);
+            }
+        }
+    }
+
+    private int awaitPhase(int worker, int phase)
+    {
+        for (int i = 0; i < this.spins; i++)
+        {
+            int current = this.phase;
+            if (current != phase) return current;
+            Thread.onSpinWait();
+        }
+        //the flag is set before the phase is checked again, so the coordinator can't miss it
+        while (true)
+        {
+            this.parked.set(worker, 1);
+            int current = this.phase;
+            if (current != phase)
+            {
+                this.parked.set(worker, 0);
+                return current;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    @Override
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        updateTrackingMetrics(metrics);
+        metrics.set(ENGINE_METRIC_PREFIX + "phased.threads", getThreads());
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed()) return;
+        this.closed = true;
+        this.phase++;
+        for (Thread worker : this.workers)
+        {
+            LockSupport.unpark(worker);
+            try
+            {
+                worker.join();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+}
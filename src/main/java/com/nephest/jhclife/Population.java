@@ -0,0 +1,71 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+//cells are read row by row, rows have the PackedPopulation word layout
+public interface Population
+{
+
+    int getWidth();
+
+    int getHeight();
+
+    int getWordsPerRow();
+
+    boolean isAlive(int x, int y);
+
+    //the bits after the last cell are 0
+    void copyRow(int y, long[] dest, int offset);
+
+    //a single word of copyRow
+    long getWord(int y, int word);
+
+    default long countPopulation()
+    {
+        long count = 0;
+        long[] row = new long[getWordsPerRow()];
+        for (int y = 0; y < getHeight(); y++)
+        {
+            copyRow(y, row, 0);
+            for (long word : row) count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    default PackedPopulation toPackedPopulation()
+    {
+        PackedPopulation population = new PackedPopulation(getWidth(), getHeight());
+        long[] row = new long[getWordsPerRow()];
+        for (int y = 0; y < getHeight(); y++)
+        {
+            copyRow(y, row, 0);
+            population.setRow(y, row, 0);
+        }
+        return population;
+    }
+
+}
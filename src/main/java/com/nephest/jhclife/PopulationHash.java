@@ -0,0 +1,129 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+/*
+    Zobrist-style population hash. Every word of a row gets a pseudo random key that depends
+    on its index and its cells, the hash is a XOR of all keys. A changed word is replaced by
+    XORing its old and new keys, so the hash can be updated from the changed tiles only.
+    Empty words have a zero key, so empty populations of any size have a zero hash.
+*/
+public final class PopulationHash
+{
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private PopulationHash(){}
+
+    public static long hashWord(long index, long word)
+    {
+        if (word == 0) return 0;
+        return mix(word ^ mix(index * GOLDEN_GAMMA + GOLDEN_GAMMA));
+    }
+
+    //splitmix64 finalizer
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long hash(PackedPopulation population)
+    {
+        long[] words = population.getWords();
+        int wordsPerRow = population.getWordsPerRow();
+        long hash = 0;
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            int offset = population.getRowOffset(y);
+            long index = (long) y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++)
+                hash ^= hashWord(index + i, readWord(population, words, offset, i));
+        }
+        return hash;
+    }
+
+    //rows are read one by one, so any population can be hashed without copying it
+    public static long hash(Population population)
+    {
+        int wordsPerRow = population.getWordsPerRow();
+        long[] row = new long[wordsPerRow];
+        long hash = 0;
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            long index = (long) y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) hash ^= hashWord(index + i, row[i]);
+        }
+        return hash;
+    }
+
+    //hash of after, given the hash of before and a column of rows that holds all differences
+    public static long update
+    (
+        long hash,
+        PackedPopulation before,
+        PackedPopulation after,
+        int column,
+        int rowBegin,
+        int rowEnd
+    )
+    {
+        long[] beforeWords = before.getWords();
+        long[] afterWords = after.getWords();
+        long wordsPerRow = before.getWordsPerRow();
+        for (int y = rowBegin; y < rowEnd; y++)
+        {
+            int offset = before.getRowOffset(y);
+            long oldWord = readWord(before, beforeWords, offset, column);
+            long newWord = readWord(after, afterWords, offset, column);
+            if (oldWord == newWord) continue;
+            long index = y * wordsPerRow + column;
+            hash ^= hashWord(index, oldWord) ^ hashWord(index, newWord);
+        }
+        return hash;
+    }
+
+    //hash of the population after the cell is set
+    public static long update(long hash, PackedPopulation population, int x, int y, boolean alive)
+    {
+        int column = x >>> PackedPopulation.WORD_SHIFT;
+        long oldWord = readWord(population, population.getWords(), population.getRowOffset(y), column);
+        long newWord = alive ? oldWord | (1L << x) : oldWord & ~(1L << x);
+        long index = (long) y * population.getWordsPerRow() + column;
+        return hash ^ hashWord(index, oldWord) ^ hashWord(index, newWord);
+    }
+
+    //the last word can hold a ghost cell
+    private static long readWord(PackedPopulation population, long[] words, int offset, int column)
+    {
+        long word = words[offset + column];
+        return column == population.getWordsPerRow() - 1 ? word & population.getLastWordMask() : word;
+    }
+
+}
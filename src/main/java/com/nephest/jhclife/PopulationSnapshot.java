@@ -0,0 +1,287 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.Arrays;
+
+/*
+    Immutable copy of a population that is split into tiles. A snapshot that is taken from
+    a previous one shares the tiles that didn't change, tile rows without changes are shared
+    as a whole. Retained snapshots take memory proportional to the changed tiles only, so
+    a snapshot can be passed to any thread without copying it again.
+*/
+public final class PopulationSnapshot
+implements Population
+{
+
+    //tiles are compared row by row, so they are several words wide
+    public static final int TILE_WORDS = 8;
+    public static final int TILE_HEIGHT = ActiveTiles.TILE_HEIGHT;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    //[tile row][tile column][row in tile * tile width + word], the last words are masked
+    private final long[][][] tiles;
+    private final long populationCount;
+    private final int copiedTileCount;
+
+    private PopulationSnapshot
+    (
+        int width,
+        int height,
+        int wordsPerRow,
+        long[][][] tiles,
+        long populationCount,
+        int copiedTileCount
+    )
+    {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow;
+        this.tiles = tiles;
+        this.populationCount = populationCount;
+        this.copiedTileCount = copiedTileCount;
+    }
+
+    public static PopulationSnapshot of(PackedPopulation population)
+    {
+        return of(population, null);
+    }
+
+    public static PopulationSnapshot of(PackedPopulation population, PopulationSnapshot previous)
+    {
+        return of(population, previous, -1);
+    }
+
+    /*
+        Tiles of the previous snapshot are reused if they have the same cells.
+        Changed tiles are not counted if the population count is known(not negative).
+    */
+    public static PopulationSnapshot of
+    (
+        PackedPopulation population,
+        PopulationSnapshot previous,
+        long populationCount
+    )
+    {
+        if (previous != null && !previous.matches(population)) previous = null;
+        boolean counted = populationCount >= 0;
+        int columns = calculateTileColumnCount(population.getWordsPerRow());
+        int rows = ActiveTiles.calculateRowCount(population.getHeight());
+        long[][][] tiles = new long[rows][][];
+        long count = counted ? populationCount : previous == null ? 0 : previous.getPopulationCount();
+        int copied = 0;
+        long[][] changed = new long[columns][];
+        for (int tileRow = 0; tileRow < rows; tileRow++)
+        {
+            int rowBegin = tileRow * TILE_HEIGHT;
+            int tileHeight = Math.min(TILE_HEIGHT, population.getHeight() - rowBegin);
+            long[][] previousRow = previous == null ? null : previous.tiles[tileRow];
+            findChangedTiles(population, rowBegin, tileHeight, previousRow, changed);
+
+            long[][] row = previousRow == null ? new long[columns][] : previousRow;
+            for (int column = 0; column < columns; column++)
+            {
+                long[] tile = changed[column];
+                if (tile == null) continue;
+                if (row == previousRow) row = previousRow.clone();
+                if (!counted)
+                    count += countTile(tile) - (previousRow == null ? 0 : countTile(previousRow[column]));
+                row[column] = tile;
+                changed[column] = null;
+                copied++;
+            }
+            tiles[tileRow] = row;
+        }
+        return new PopulationSnapshot
+        (
+            population.getWidth(),
+            population.getHeight(),
+            population.getWordsPerRow(),
+            tiles,
+            count,
+            copied
+        );
+    }
+
+    public static int calculateTileColumnCount(int wordsPerRow)
+    {
+        return (wordsPerRow + TILE_WORDS - 1) / TILE_WORDS;
+    }
+
+    /*
+        Rows are read in memory order. A tile is copied from its first changed row on,
+        the rows before it are equal to the previous tile.
+    */
+    private static void findChangedTiles
+    (
+        PackedPopulation population,
+        int rowBegin,
+        int tileHeight,
+        long[][] previousRow,
+        long[][] changed
+    )
+    {
+        long[] words = population.getWords();
+        int wordsPerRow = population.getWordsPerRow();
+        for (int i = 0; i < tileHeight; i++)
+        {
+            int offset = population.getRowOffset(rowBegin + i);
+            //the last word can hold a ghost cell
+            long last = words[offset + wordsPerRow - 1] & population.getLastWordMask();
+            for (int column = 0, begin = 0; begin < wordsPerRow; column++, begin += TILE_WORDS)
+            {
+                int tileWords = Math.min(TILE_WORDS, wordsPerRow - begin);
+                boolean lastColumn = begin + tileWords == wordsPerRow;
+                long[] tile = changed[column];
+                if (tile == null)
+                {
+                    long[] previousTile = previousRow == null ? null : previousRow[column];
+                    if
+                    (
+                        previousTile != null
+                        && rowEquals(words, offset + begin, previousTile, i * tileWords, tileWords, lastColumn, last)
+                    )
+                        continue;
+                    tile = new long[tileHeight * tileWords];
+                    if (previousTile != null) System.arraycopy(previousTile, 0, tile, 0, i * tileWords);
+                    changed[column] = tile;
+                }
+                System.arraycopy(words, offset + begin, tile, i * tileWords, tileWords);
+                if (lastColumn) tile[(i + 1) * tileWords - 1] = last;
+            }
+        }
+    }
+
+    private static boolean rowEquals
+    (
+        long[] words,
+        int offset,
+        long[] tile,
+        int tileOffset,
+        int length,
+        boolean lastColumn,
+        long last
+    )
+    {
+        int end = lastColumn ? length - 1 : length;
+        return Arrays.equals(words, offset, offset + end, tile, tileOffset, tileOffset + end)
+            && (!lastColumn || tile[tileOffset + length - 1] == last);
+    }
+
+    private static long countTile(long[] tile)
+    {
+        long count = 0;
+        for (long word : tile) count += Long.bitCount(word);
+        return count;
+    }
+
+    private boolean matches(PackedPopulation population)
+    {
+        return population.getWidth() == getWidth() && population.getHeight() == getHeight();
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWordsPerRow()
+    {
+        return this.wordsPerRow;
+    }
+
+    public long getPopulationCount()
+    {
+        return this.populationCount;
+    }
+
+    @Override
+    public long countPopulation()
+    {
+        return getPopulationCount();
+    }
+
+    //tiles that were not shared with the previous snapshot
+    public int getCopiedTileCount()
+    {
+        return this.copiedTileCount;
+    }
+
+    public int getTileCount()
+    {
+        return calculateTileColumnCount(getWordsPerRow()) * this.tiles.length;
+    }
+
+    @Override
+    public boolean isAlive(int x, int y)
+    {
+        if (x < 0 || x >= getWidth())
+            throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight())
+            throw new IllegalArgumentException("y out of bounds");
+        int word = x >>> PackedPopulation.WORD_SHIFT;
+        int begin = word - word % TILE_WORDS;
+        int tileWords = Math.min(TILE_WORDS, getWordsPerRow() - begin);
+        long[] tile = this.tiles[y / TILE_HEIGHT][word / TILE_WORDS];
+        return (tile[(y % TILE_HEIGHT) * tileWords + word - begin] & (1L << x)) != 0;
+    }
+
+    @Override
+    public long getWord(int y, int word)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        if (word < 0 || word >= getWordsPerRow()) throw new IllegalArgumentException("word out of bounds");
+        int begin = word - word % TILE_WORDS;
+        int tileWords = Math.min(TILE_WORDS, getWordsPerRow() - begin);
+        long[] tile = this.tiles[y / TILE_HEIGHT][word / TILE_WORDS];
+        return tile[(y % TILE_HEIGHT) * tileWords + word - begin];
+    }
+
+    @Override
+    public void copyRow(int y, long[] dest, int offset)
+    {
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        long[][] row = this.tiles[y / TILE_HEIGHT];
+        int i = y % TILE_HEIGHT;
+        for (int column = 0, begin = 0; begin < getWordsPerRow(); column++, begin += TILE_WORDS)
+        {
+            int tileWords = Math.min(TILE_WORDS, getWordsPerRow() - begin);
+            System.arraycopy(row[column], i * tileWords, dest, offset + begin, tileWords);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+public class ScalarGenerationKernel
+implements GenerationKernel
+{
+
+    @Override
+    public void calculate
+    (
+        long[] src, long[] dest,
+        int up, int cur, int down,
+        int begin, int end,
+        boolean[] changed, int changedOffset,
+        long[] counts,
+        LifeRule rule
+    )
+    {
+        for (int i = begin; i < end; i++)
+        {
+            long upC = src[up + i];
+            long upW = (upC << 1) | (src[up + i - 1] >>> PackedPopulation.WORD_MASK);
+            long upE = (upC >>> 1) | (src[up + i + 1] << PackedPopulation.WORD_MASK);
+            long curC = src[cur + i];
+            long curW = (curC << 1) | (src[cur + i - 1] >>> PackedPopulation.WORD_MASK);
+            long curE = (curC >>> 1) | (src[cur + i + 1] << PackedPopulation.WORD_MASK);
+            long downC = src[down + i];
+            long downW = (downC << 1) | (src[down + i - 1] >>> PackedPopulation.WORD_MASK);
+            long downE = (downC >>> 1) | (src[down + i + 1] << PackedPopulation.WORD_MASK);
+            long alive = calculateWord(upW, upC, upE, curW, curC, curE, downW, downC, downE, rule);
+            dest[cur + i] = alive;
+            if (alive == curC) continue;
+            if (changed != null) changed[changedOffset + i] = true;
+            if (counts != null) count(counts, curC, alive);
+        }
+    }
+
+    public static void count(long[] counts, long before, long after)
+    {
+        counts[BIRTH_COUNT] += Long.bitCount(after & ~before);
+        counts[DEATH_COUNT] += Long.bitCount(before & ~after);
+    }
+
+    //every bit of the arguments is a cell lined up with the same bit of its neighbors
+    public static long calculateWord
+    (
+        long upW, long upC, long upE,
+        long curW, long curC, long curE,
+        long downW, long downC, long downE,
+        LifeRule rule
+    )
+    {
+        //full adders, 3 inputs each
+        long s0 = upW ^ upC ^ upE;
+        long c0 = (upW & upC) | (upE & (upW ^ upC));
+        long s1 = curW ^ curE ^ downW;
+        long c1 = (curW & curE) | (downW & (curW ^ curE));
+        long s2 = downC ^ downE;
+        long c2 = downC & downE;
+
+        //count bits: b0 + 2 * b1 + 4 * b2 + 8 * b3
+        long b0 = s0 ^ s1 ^ s2;
+        long k0 = (s0 & s1) | (s2 & (s0 ^ s1));
+        long t = c0 ^ c1 ^ c2;
+        long k1 = (c0 & c1) | (c2 & (c0 ^ c1));
+        long b1 = t ^ k0;
+        long k2 = t & k0;
+        long b2 = k1 ^ k2;
+        long b3 = k1 & k2;
+
+        //2 or 3 neighbors and alive, or 3 neighbors
+        if (rule.isConway()) return b1 & ~b2 & ~b3 & (b0 | curC);
+        return rule.calculateNextState(curC, b0, b1, b2, b3);
+    }
+
+}
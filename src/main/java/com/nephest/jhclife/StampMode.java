@@ -0,0 +1,61 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+//how stamped cells are combined with the cells of a population
+public enum StampMode
+{
+
+    OR
+    {
+        @Override
+        public long combine(long dest, long src, long mask)
+        {
+            return dest | (src & mask);
+        }
+    },
+    XOR
+    {
+        @Override
+        public long combine(long dest, long src, long mask)
+        {
+            return dest ^ (src & mask);
+        }
+    },
+    REPLACE
+    {
+        @Override
+        public long combine(long dest, long src, long mask)
+        {
+            return (dest & ~mask) | (src & mask);
+        }
+    };
+
+    //only the cells that are selected by the mask are modified
+    public abstract long combine(long dest, long src, long mask);
+
+}
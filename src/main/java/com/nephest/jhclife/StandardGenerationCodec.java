@@ -0,0 +1,158 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import com.nephest.jhclife.io.RunLengthInputStream;
+import com.nephest.jhclife.io.RunLengthOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public enum StandardGenerationCodec
+implements GenerationCodec
+{
+
+    //cells are stored as is
+    RAW((byte) 0)
+    {
+        @Override
+        public OutputStream encode(OutputStream out)
+        {
+            return new FilterOutputStream(out)
+            {
+                @Override
+                public void write(byte[] b, int off, int len)
+                throws IOException
+                {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void close()
+                throws IOException
+                {
+                    flush();
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream in)
+        {
+            return new FilterInputStream(in)
+            {
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+    },
+
+    //runs of equal bytes, the empty areas of sparse boards are a few bytes each
+    RUN_LENGTH((byte) 1)
+    {
+        @Override
+        public OutputStream encode(OutputStream out)
+        {
+            return new RunLengthOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        }
+
+        @Override
+        public InputStream decode(InputStream in)
+        {
+            //tokens are read byte by byte
+            return new RunLengthInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        }
+    },
+
+    //the fastest deflate level, higher levels are several times slower for a few percent
+    DEFLATE((byte) 2)
+    {
+        @Override
+        public OutputStream encode(OutputStream out)
+        {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE)
+            {
+                @Override
+                public void close()
+                throws IOException
+                {
+                    try
+                    {
+                        finish();
+                        this.out.flush();
+                    }
+                    finally
+                    {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream in)
+        {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE)
+            {
+                @Override
+                public void close()
+                {
+                    inflater.end();
+                }
+            };
+        }
+    };
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final byte id;
+
+    StandardGenerationCodec(byte id)
+    {
+        this.id = id;
+    }
+
+    @Override
+    public byte getId()
+    {
+        return this.id;
+    }
+
+}
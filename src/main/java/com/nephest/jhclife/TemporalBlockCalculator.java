@@ -0,0 +1,313 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.concurrent.RecursiveAction;
+
+/*
+    Loads a tile with a halo of one word on each side and depth rows above and below, then
+    advances it by depth generations in scratch buffers. Halo cells that miss their neighbors
+    become invalid at one cell per generation, so the tile itself stays valid.
+*/
+public class TemporalBlockCalculator
+extends RecursiveAction
+{
+    public static final int SURPLUS_MAX = 3;
+    public static final int DEPTH_MAX = PackedPopulation.WORD_SIZE;
+
+    private final PackedPopulation src, dest;
+    private final GenerationKernel kernel;
+    private final LifeRule rule;
+    private final int depth;
+    private final int tileWords;
+    private final int tileRows;
+    private final TemporalBlockCalculator next;
+
+    private final int begin;
+    private int end;
+
+    //begin and end are tile indexes, tiles are row-major
+    public TemporalBlockCalculator
+    (
+        PackedPopulation src, PackedPopulation dest,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int depth,
+        int tileWords, int tileRows,
+        int begin, int end,
+        TemporalBlockCalculator next
+    )
+    {
+        if(src.getWidth() != dest.getWidth() || src.getHeight() != dest.getHeight())
+            throw new IllegalArgumentException("src and dest have different dimensions");
+        if (depth < 1 || depth > DEPTH_MAX)
+            throw new IllegalArgumentException("depth must be in 1-" + DEPTH_MAX + " range");
+        if (tileWords < 1 || tileRows < 1)
+            throw new IllegalArgumentException("tile dimensions must be more than 0");
+        this.src = src;
+        this.dest = dest;
+        this.kernel = kernel;
+        this.rule = rule;
+        this.depth = depth;
+        this.tileWords = tileWords;
+        this.tileRows = tileRows;
+        this.begin = begin;
+        this.end = end;
+        this.next = next;
+    }
+
+    public TemporalBlockCalculator
+    (
+        PackedPopulation src, PackedPopulation dest,
+        GenerationKernel kernel,
+        LifeRule rule,
+        int depth,
+        int tileWords, int tileRows
+    )
+    {
+        this
+        (
+            src,
+            dest,
+            kernel,
+            rule,
+            depth,
+            tileWords,
+            tileRows,
+            0,
+            calculateTileColumns(src, tileWords) * calculateTileRows(src, tileRows),
+            null
+        );
+    }
+
+    public static int calculateTileColumns(PackedPopulation population, int tileWords)
+    {
+        return (population.getWordsPerRow() + tileWords - 1) / tileWords;
+    }
+
+    public static int calculateTileRows(PackedPopulation population, int tileRows)
+    {
+        return (population.getHeight() + tileRows - 1) / tileRows;
+    }
+
+    @Override
+    protected void compute()
+    {
+        TemporalBlockCalculator right = null;
+        int b = getBeginIx();
+        int e = getEndIx();
+        while(e - b > 1 && getSurplusQueuedTaskCount() <= SURPLUS_MAX)
+        {
+            int mid = (b + e) >>> 1;
+            right = new TemporalBlockCalculator
+            (
+                getSource(),
+                getDestination(),
+                getKernel(),
+                getRule(),
+                getDepth(),
+                getTileWords(),
+                getTileRows(),
+                mid,
+                e,
+                right
+            );
+            right.fork();
+            e = mid;
+        }
+        setEndIx(e);
+        calculateTiles();
+        while(right != null)
+        {
+            if (right.tryUnfork())
+            {
+                right.calculateTiles();
+            }
+            else
+            {
+                right.join();
+            }
+            right = right.getNext();
+        }
+    }
+
+    private PackedPopulation getSource()
+    {
+        return this.src;
+    }
+
+    private PackedPopulation getDestination()
+    {
+        return this.dest;
+    }
+
+    private GenerationKernel getKernel()
+    {
+        return this.kernel;
+    }
+
+    private LifeRule getRule()
+    {
+        return this.rule;
+    }
+
+    private int getDepth()
+    {
+        return this.depth;
+    }
+
+    private int getTileWords()
+    {
+        return this.tileWords;
+    }
+
+    private int getTileRows()
+    {
+        return this.tileRows;
+    }
+
+    private TemporalBlockCalculator getNext()
+    {
+        return this.next;
+    }
+
+    private int getBeginIx()
+    {
+        return this.begin;
+    }
+
+    private int getEndIx()
+    {
+        return this.end;
+    }
+
+    private void setEndIx(int ix)
+    {
+        this.end = ix;
+    }
+
+    private void calculateTiles()
+    {
+        if (getBeginIx() >= getEndIx()) return;
+        //pad word, halo word, tile, halo word, pad word
+        int size = (getTileWords() + 4) * (getTileRows() + 2 * getDepth() + 2);
+        long[] first = new long[size];
+        long[] second = new long[size];
+        int columns = calculateTileColumns(getSource(), getTileWords());
+        for (int tile = getBeginIx(); tile < getEndIx(); tile++)
+        {
+            calculateTile(tile / columns, tile % columns, first, second);
+        }
+    }
+
+    private void calculateTile(int tileRow, int tileColumn, long[] first, long[] second)
+    {
+        PackedPopulation population = getSource();
+        int words = population.getWordsPerRow();
+        int height = population.getHeight();
+        int depth = getDepth();
+        int wordBegin = tileColumn * getTileWords();
+        int tileWords = Math.min(getTileWords(), words - wordBegin);
+        int rowBegin = tileRow * getTileRows();
+        int tileRows = Math.min(getTileRows(), height - rowBegin);
+        int stride = tileWords + 4;
+        int rows = tileRows + 2 * depth;
+
+        //scratch row r + 1 holds population row rowBegin - depth + r
+        for (int r = 0; r < rows; r++)
+        {
+            int y = Math.floorMod(rowBegin - depth + r, height);
+            int offset = (r + 1) * stride + 2;
+            for (int i = -1; i <= tileWords; i++)
+                first[offset + i] = readWord(population, y, wordBegin + i);
+        }
+
+        long[] from = first;
+        long[] to = second;
+        for (int generation = 1; generation <= depth; generation++)
+        {
+            //invalid rows are not calculated
+            for (int r = generation; r <= rows + 1 - generation; r++)
+            {
+                int cur = r * stride;
+                getKernel().calculate
+                (
+                    from, to,
+                    cur - stride, cur, cur + stride,
+                    1, tileWords + 3,
+                    null, 0,
+                    null,
+                    getRule()
+                );
+            }
+            long[] result = to;
+            to = from;
+            from = result;
+        }
+
+        long[] destWords = getDestination().getWords();
+        long lastWordMask = population.getLastWordMask();
+        for (int r = depth; r < depth + tileRows; r++)
+        {
+            int offset = getDestination().getRowOffset(rowBegin + r - depth) + wordBegin;
+            System.arraycopy(from, (r + 1) * stride + 2, destWords, offset, tileWords);
+            if (wordBegin + tileWords == words) destWords[offset + tileWords - 1] &= lastWordMask;
+        }
+    }
+
+    //64 cells that start at the first cell of the word, words outside of the row wrap around the torus
+    private static long readWord(PackedPopulation population, int y, int word)
+    {
+        int words = population.getWordsPerRow();
+        if (word >= 0 && (word < words - 1 || (word == words - 1 && population.getLastWordMask() == -1L)))
+            return population.getWords()[population.getRowOffset(y) + word];
+
+        long[] src = population.getWords();
+        int offset = population.getRowOffset(y);
+        int width = population.getWidth();
+        long result = 0;
+        int read = 0;
+        int x = Math.floorMod((long) word * PackedPopulation.WORD_SIZE, width);
+        while (read < PackedPopulation.WORD_SIZE)
+        {
+            int bit = x & PackedPopulation.WORD_MASK;
+            int count = Math.min
+            (
+                PackedPopulation.WORD_SIZE - read,
+                Math.min(PackedPopulation.WORD_SIZE - bit, width - x)
+            );
+            long bits = src[offset + (x >>> PackedPopulation.WORD_SHIFT)] >>> bit;
+            if (count < PackedPopulation.WORD_SIZE) bits &= (1L << count) - 1;
+            result |= bits << read;
+            read += count;
+            x += count;
+            if (x == width) x = 0;
+        }
+        return result;
+    }
+
+}
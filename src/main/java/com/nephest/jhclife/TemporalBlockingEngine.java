@@ -0,0 +1,172 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//advances tiles by several generations at once, so they stay in cache, see TemporalBlockCalculator
+public class TemporalBlockingEngine
+implements GenerationEngine
+{
+
+    public static final int DEFAULT_BLOCK_DEPTH = 8;
+    public static final int DEFAULT_TILE_WORDS = 32;
+    public static final int DEFAULT_TILE_ROWS = 128;
+
+    private final ForkJoinPool forkJoinPool;
+    private final GenerationKernel kernel;
+    private volatile int blockDepth = DEFAULT_BLOCK_DEPTH;
+    private volatile int tileWords = DEFAULT_TILE_WORDS;
+    private volatile int tileRows = DEFAULT_TILE_ROWS;
+    private long blockCount = 0;
+
+    public TemporalBlockingEngine(ForkJoinPool pool, GenerationKernel kernel)
+    {
+        this.forkJoinPool = pool;
+        this.kernel = kernel;
+    }
+
+    public TemporalBlockingEngine(ForkJoinPool pool)
+    {
+        this(pool, GenerationKernel.createDefault());
+    }
+
+    public TemporalBlockingEngine()
+    {
+        this(null);
+    }
+
+    @Override
+    public PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations must not be negative");
+        if (src.getWordsPerRow() == 0 || src.getHeight() == 0) return src;
+
+        ForkJoinPool pool
+            = getForkJoinPool() == null
+            ? ForkJoinPool.commonPool()
+            : getForkJoinPool();
+        return pool.invoke(ForkJoinTask.adapt(()->calculateInPool(src, dest, generations, rule)));
+    }
+
+    private PackedPopulation calculateInPool
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        int blockDepth = getBlockDepth();
+        int tileWords = getTileWords();
+        int tileRows = getTileRows();
+        for (long left = generations; left > 0; left -= blockDepth)
+        {
+            int depth = (int) Math.min(blockDepth, left);
+            new TemporalBlockCalculator(src, dest, getKernel(), rule, depth, tileWords, tileRows).invoke();
+            this.blockCount++;
+            PackedPopulation result = dest;
+            dest = src;
+            src = result;
+        }
+        return src;
+    }
+
+    public int getBlockDepth()
+    {
+        return this.blockDepth;
+    }
+
+    //generations per tile load, deeper blocks calculate more halo cells
+    public void setBlockDepth(int blockDepth)
+    {
+        if (blockDepth < 1 || blockDepth > TemporalBlockCalculator.DEPTH_MAX)
+            throw new IllegalArgumentException
+                ("block depth must be in 1-" + TemporalBlockCalculator.DEPTH_MAX + " range");
+        this.blockDepth = blockDepth;
+    }
+
+    public int getTileWords()
+    {
+        return this.tileWords;
+    }
+
+    public int getTileRows()
+    {
+        return this.tileRows;
+    }
+
+    public void setTileSize(int tileWords, int tileRows)
+    {
+        if (tileWords < 1 || tileRows < 1)
+            throw new IllegalArgumentException("tile dimensions must be more than 0");
+        this.tileWords = tileWords;
+        this.tileRows = tileRows;
+    }
+
+    //calculated cells per valid cell, halo cells are calculated redundantly
+    public double getHaloOverhead()
+    {
+        double depth = getBlockDepth();
+        double rows = getTileRows();
+        return (getTileWords() + 2.0) * (rows + depth + 1) / (getTileWords() * rows);
+    }
+
+    public long getBlockCount()
+    {
+        return this.blockCount;
+    }
+
+    @Override
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        metrics.set(ENGINE_METRIC_PREFIX + "block.depth", getBlockDepth());
+        metrics.set(ENGINE_METRIC_PREFIX + "block.tileWords", getTileWords());
+        metrics.set(ENGINE_METRIC_PREFIX + "block.tileRows", getTileRows());
+        metrics.set(ENGINE_METRIC_PREFIX + "block.haloOverhead", getHaloOverhead());
+        metrics.set(ENGINE_METRIC_PREFIX + "block.count", getBlockCount());
+    }
+
+    public GenerationKernel getKernel()
+    {
+        return this.kernel;
+    }
+
+    private ForkJoinPool getForkJoinPool()
+    {
+        return this.forkJoinPool;
+    }
+
+}
@@ -0,0 +1,344 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.ClassicLifeModel;
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.GenerationEngine;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
+import com.nephest.jhclife.StampMode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+
+/*
+    The population is split between the workers of a cluster. The model holds a downsampled view
+    of it, so the width and the height of the model are the view dimensions.
+*/
+public class DistributedLifeModel
+extends ClassicLifeModel
+{
+
+    public static final int DEFAULT_VIEW_SIZE_MAX = 2048;
+
+    private final StripeCluster cluster;
+    private final StripeGenerationEngine stripeEngine;
+    private final int viewSizeMax;
+
+    public DistributedLifeModel
+    (
+        StripeCluster cluster,
+        int width,
+        int height,
+        int viewSizeMax,
+        ScheduledExecutorService executor
+    )
+    {
+        super
+        (
+            calculateViewSize(width, calculateScale(width, height, viewSizeMax)),
+            calculateViewSize(height, calculateScale(width, height, viewSizeMax)),
+            null,
+            executor
+        );
+        this.cluster = cluster;
+        this.viewSizeMax = viewSizeMax;
+        this.stripeEngine = new StripeGenerationEngine(cluster);
+        super.setEngine(this.stripeEngine);
+        createNewPopulation(width, height);
+    }
+
+    public DistributedLifeModel(StripeCluster cluster, int width, int height, int viewSizeMax)
+    {
+        super
+        (
+            calculateViewSize(width, calculateScale(width, height, viewSizeMax)),
+            calculateViewSize(height, calculateScale(width, height, viewSizeMax))
+        );
+        this.cluster = cluster;
+        this.viewSizeMax = viewSizeMax;
+        this.stripeEngine = new StripeGenerationEngine(cluster);
+        super.setEngine(this.stripeEngine);
+        createNewPopulation(width, height);
+    }
+
+    public DistributedLifeModel(StripeCluster cluster, int width, int height)
+    {
+        this(cluster, width, height, DEFAULT_VIEW_SIZE_MAX);
+    }
+
+    //cells per view cell side
+    public static int calculateScale(int width, int height, int viewSizeMax)
+    {
+        if (viewSizeMax < 1) throw new IllegalArgumentException("view size must be more than 0");
+        int size = Math.max(width, height);
+        return Math.max(1, (size + viewSizeMax - 1) / viewSizeMax);
+    }
+
+    private static int calculateViewSize(int size, int scale)
+    {
+        return (size + scale - 1) / scale;
+    }
+
+    public StripeCluster getCluster()
+    {
+        return this.cluster;
+    }
+
+    private StripeGenerationEngine getStripeEngine()
+    {
+        return this.stripeEngine;
+    }
+
+    public int getViewSizeMax()
+    {
+        return this.viewSizeMax;
+    }
+
+    public int getScale()
+    {
+        return getStripeEngine().getScale();
+    }
+
+    public int getUniverseWidth()
+    {
+        return getCluster().getWidth();
+    }
+
+    public int getUniverseHeight()
+    {
+        return getCluster().getHeight();
+    }
+
+    public long countUniversePopulation()
+    {
+        try
+        {
+            return getCluster().countPopulation();
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    //width and height are universe dimensions
+    @Override
+    public synchronized void createNewPopulation(int width, int height)
+    {
+        //the super constructor creates the view before the cluster is set
+        if (getCluster() == null)
+        {
+            super.createNewPopulation(width, height);
+            return;
+        }
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        try
+        {
+            getCluster().create(width, height);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        getStripeEngine().setScale(calculateScale(width, height, getViewSizeMax()));
+        publishView(0);
+        if (wasRunning) start();
+    }
+
+    @Override
+    public synchronized void populate(long seed, double populationProbability)
+    {
+        if (populationProbability < 0 || populationProbability > 1.0)
+            throw new IllegalArgumentException("population probability must be in 0-1 range");
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        try
+        {
+            getCluster().populate(seed, populationProbability);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        publishView(0);
+        if (wasRunning) start();
+    }
+
+    //x and y are view coordinates, the first cell of the view cell is modified
+    @Override
+    public void setPopulation(int x, int y, boolean pop)
+    {
+        if (x < 0 || x >= getWidth())
+            throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight())
+            throw new IllegalArgumentException("y out of bounds");
+        clusterEdit(()->getCluster().setAlive(x * getScale(), y * getScale(), pop));
+    }
+
+    //the view region is scaled to the universe
+    @Override
+    public void fillRegion(int x, int y, int width, int height, boolean alive)
+    {
+        checkRegion(width, height);
+        clusterEdit(()->getCluster()
+            .fill(toUniverse(x), toUniverse(y), toUniverse(width), toUniverse(height), alive));
+    }
+
+    //the view region is scaled to the universe, the density is the density of universe cells
+    @Override
+    public void randomizeRegion
+    (
+        int x,
+        int y,
+        int width,
+        int height,
+        long seed,
+        double density
+    )
+    {
+        checkRegion(width, height);
+        if (density < 0 || density > 1.0)
+            throw new IllegalArgumentException("density must be in 0-1 range");
+        clusterEdit(()->getCluster().randomize
+        (
+            toUniverse(x),
+            toUniverse(y),
+            toUniverse(width),
+            toUniverse(height),
+            seed,
+            density
+        ));
+    }
+
+    //x and y are view coordinates, the stamp is not scaled, its cells are universe cells
+    @Override
+    public void stamp(Generation generation, int x, int y, StampMode mode)
+    {
+        Objects.requireNonNull(generation);
+        Objects.requireNonNull(mode);
+        Population stamp = generation.getPopulation();
+        clusterEdit(()->getCluster().stamp(stamp, toUniverse(x), toUniverse(y), mode));
+    }
+
+    /*
+        Edits of a running model are queued and sent to the workers between steps, so the
+        generation clock is not restarted. The view is updated from the cluster after every edit.
+    */
+    private void clusterEdit(ClusterEdit edit)
+    {
+        edit(()->
+        {
+            try
+            {
+                edit.apply();
+                PackedPopulation view = getCluster().getView(getScale());
+                return applyRegionEdit((population)->population.copyFrom(view));
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    //view coordinates and sizes are clamped to the int range after scaling
+    private int toUniverse(int view)
+    {
+        long universe = (long) view * getScale();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(universe, Integer.MAX_VALUE));
+    }
+
+    //the generation is distributed between the workers
+    @Override
+    public synchronized void setGeneration(Generation generation)
+    {
+        boolean wasRunning = isRunning();
+        if (wasRunning) stop();
+        try
+        {
+            getCluster().load(generation.copyPackedPopulation());
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        getStripeEngine().setScale
+            (calculateScale(generation.getWidth(), generation.getHeight(), getViewSizeMax()));
+        publishView(generation.getGenerationNumber());
+        if (wasRunning) start();
+    }
+
+    @Override
+    public synchronized void setEngine(GenerationEngine engine)
+    {
+        if (!(engine instanceof StripeGenerationEngine))
+            throw new IllegalArgumentException("engine must be a StripeGenerationEngine");
+        super.setEngine(engine);
+    }
+
+    //the workers can't be rewound to the last published generation
+    @Override
+    public synchronized void setComputeAheadDepth(int depth)
+    {
+        if (depth != 0) throw new IllegalArgumentException("compute ahead is not supported");
+        super.setComputeAheadDepth(depth);
+    }
+
+    private void publishView(long generationNumber)
+    {
+        try
+        {
+            super.setGeneration(new Generation(getCluster().getView(getScale()), getId(), generationNumber));
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed()) return;
+        super.close();
+        getCluster().close();
+    }
+
+    private interface ClusterEdit
+    {
+
+        void apply()
+        throws IOException;
+
+    }
+
+}
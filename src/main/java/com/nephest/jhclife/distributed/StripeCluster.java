@@ -0,0 +1,495 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.LifeRule;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
+import com.nephest.jhclife.StampMode;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//coordinates stripe workers, the torus is split into a horizontal stripe per worker
+public class StripeCluster
+implements Closeable
+{
+
+    private static final Logger LOG = Logger.getLogger(StripeCluster.class.getName());
+
+    public static final long PROCESS_EXIT_TIMEOUT_SECONDS = 5;
+
+    private final List<Process> processes;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataInputStream> inputs = new ArrayList<>();
+    private final List<DataOutputStream> outputs = new ArrayList<>();
+    private int width;
+    private int height;
+    private int[] firstRows;
+
+    private StripeCluster(List<InetSocketAddress> addresses, List<Process> processes)
+    throws IOException
+    {
+        this.processes = processes;
+        try
+        {
+            for (InetSocketAddress address : addresses)
+            {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream
+                    (new BufferedInputStream(socket.getInputStream(), StripeWorker.BUFFER_SIZE));
+                DataOutputStream out = new DataOutputStream
+                    (new BufferedOutputStream(socket.getOutputStream(), StripeWorker.BUFFER_SIZE));
+                this.sockets.add(socket);
+                this.inputs.add(in);
+                this.outputs.add(out);
+            }
+        }
+        catch (IOException ex)
+        {
+            close();
+            throw ex;
+        }
+    }
+
+    //workers that are already running
+    public static StripeCluster connect(List<InetSocketAddress> addresses)
+    throws IOException
+    {
+        if (addresses.isEmpty()) throw new IllegalArgumentException("at least 1 worker is required");
+        return new StripeCluster(addresses, Collections.emptyList());
+    }
+
+    //starts a local worker process per stripe
+    public static StripeCluster launch(int workers, List<String> jvmArgs)
+    throws IOException
+    {
+        if (workers < 1) throw new IllegalArgumentException("at least 1 worker is required");
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < workers; i++)
+            {
+                Process process = startWorker(jvmArgs);
+                processes.add(process);
+                addresses.add(readAddress(process));
+            }
+            return new StripeCluster(addresses, processes);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            for (Process process : processes) process.destroyForcibly();
+            throw ex;
+        }
+    }
+
+    public static StripeCluster launch(int workers)
+    throws IOException
+    {
+        return launch(workers, Collections.emptyList());
+    }
+
+    private static Process startWorker(List<String> jvmArgs)
+    throws IOException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StripeWorker.class.getName());
+        return new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+
+    private static InetSocketAddress readAddress(Process process)
+    throws IOException
+    {
+        BufferedReader reader = new BufferedReader
+            (new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.startsWith(StripeProtocol.PORT_PREFIX))
+            {
+                int port = Integer.parseInt(line.substring(StripeProtocol.PORT_PREFIX.length()).trim());
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            }
+        }
+        throw new IOException("Worker exited before it was started");
+    }
+
+    public int getWorkerCount()
+    {
+        return this.sockets.size();
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    //replaces the population with an empty one
+    public synchronized void create(int width, int height)
+    throws IOException
+    {
+        if (width < 1) throw new IllegalArgumentException("width must be more than 0");
+        if (height < getWorkerCount())
+            throw new IllegalArgumentException("height must not be less than the worker count");
+        int workers = getWorkerCount();
+        int[] firstRows = new int[workers + 1];
+        for (int i = 0; i <= workers; i++) firstRows[i] = (int) ((long) height * i / workers);
+
+        for (int i = 0; i < workers; i++)
+        {
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.INIT);
+            out.writeInt(width);
+            out.writeInt(firstRows[i + 1] - firstRows[i]);
+            out.writeInt(firstRows[i]);
+            out.flush();
+        }
+        int[] haloPorts = new int[workers];
+        for (int i = 0; i < workers; i++)
+        {
+            StripeProtocol.readStatus(this.inputs.get(i));
+            haloPorts[i] = this.inputs.get(i).readInt();
+        }
+
+        for (int i = 0; i < workers; i++)
+        {
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.CONNECT);
+            out.writeInt(haloPorts[(i + 1) % workers]);
+            out.flush();
+        }
+        readStatuses();
+        this.width = width;
+        this.height = height;
+        this.firstRows = firstRows;
+    }
+
+    public synchronized void populate(long seed, double probability)
+    throws IOException
+    {
+        checkCreated();
+        for (DataOutputStream out : this.outputs)
+        {
+            out.writeByte(StripeProtocol.POPULATE);
+            out.writeLong(seed);
+            out.writeDouble(probability);
+            out.flush();
+        }
+        readStatuses();
+    }
+
+    /*
+        All workers must step at the same time, they wait for the halos of each other. After a
+        failed step the stripes can be at different generations and their halos are disconnected,
+        so the population must be created or loaded again.
+    */
+    public synchronized void step(long generations, LifeRule rule)
+    throws IOException
+    {
+        checkCreated();
+        if (generations < 0) throw new IllegalArgumentException("generations must not be negative");
+        try
+        {
+            for (DataOutputStream out : this.outputs)
+            {
+                out.writeByte(StripeProtocol.STEP);
+                out.writeLong(generations);
+                out.writeUTF(rule.toString());
+                out.flush();
+            }
+            readStatuses();
+        }
+        catch (IOException ex)
+        {
+            this.firstRows = null;
+            throw ex;
+        }
+    }
+
+    public synchronized void setAlive(int x, int y, boolean alive)
+    throws IOException
+    {
+        checkCreated();
+        if (x < 0 || x >= getWidth()) throw new IllegalArgumentException("x out of bounds");
+        if (y < 0 || y >= getHeight()) throw new IllegalArgumentException("y out of bounds");
+        int worker = findWorker(y);
+        DataOutputStream out = this.outputs.get(worker);
+        out.writeByte(StripeProtocol.SET_CELL);
+        out.writeInt(x);
+        out.writeInt(y - this.firstRows[worker]);
+        out.writeBoolean(alive);
+        out.flush();
+        StripeProtocol.readStatus(this.inputs.get(worker));
+    }
+
+    //regions are clipped to the population, every worker receives the rows of its stripe
+    public synchronized void fill(int x, int y, int width, int height, boolean alive)
+    throws IOException
+    {
+        checkCreated();
+        checkRegion(width, height);
+        for (int i = 0; i < getWorkerCount(); i++)
+        {
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.FILL);
+            writeRegion(out, i, x, y, width, height);
+            out.writeBoolean(alive);
+            out.flush();
+        }
+        readStatuses();
+    }
+
+    //the result is equal to PackedPopulation.randomize of the whole population
+    public synchronized void randomize(int x, int y, int width, int height, long seed, double density)
+    throws IOException
+    {
+        checkCreated();
+        checkRegion(width, height);
+        if (density < 0 || density > 1.0)
+            throw new IllegalArgumentException("density must be in 0-1 range");
+        for (int i = 0; i < getWorkerCount(); i++)
+        {
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.RANDOMIZE);
+            writeRegion(out, i, x, y, width, height);
+            out.writeLong(seed);
+            out.writeDouble(density);
+            out.flush();
+        }
+        readStatuses();
+    }
+
+    //the top left cell of the stamp is placed at x, y
+    public synchronized void stamp(Population stamp, int x, int y, StampMode mode)
+    throws IOException
+    {
+        checkCreated();
+        long[] row = new long[stamp.getWordsPerRow()];
+        for (int i = 0; i < getWorkerCount(); i++)
+        {
+            int begin = clipRow(i, y);
+            int end = clipRow(i, (int) Math.min((long) y + stamp.getHeight(), Integer.MAX_VALUE));
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.STAMP);
+            out.writeInt(x);
+            out.writeInt(begin - this.firstRows[i]);
+            out.writeUTF(mode.name());
+            out.writeInt(stamp.getWidth());
+            out.writeInt(end - begin);
+            for (int stampY = begin; stampY < end; stampY++)
+            {
+                stamp.copyRow(stampY - y, row, 0);
+                StripeProtocol.writeWords(out, row, 0, row.length);
+            }
+            out.flush();
+        }
+        readStatuses();
+    }
+
+    private void writeRegion(DataOutputStream out, int worker, int x, int y, int width, int height)
+    throws IOException
+    {
+        int begin = clipRow(worker, y);
+        int end = clipRow(worker, (int) Math.min((long) y + height, Integer.MAX_VALUE));
+        out.writeInt(x);
+        out.writeInt(begin - this.firstRows[worker]);
+        out.writeInt(width);
+        out.writeInt(end - begin);
+    }
+
+    //clips the row to the stripe of the worker, rows past the stripe become its end
+    private int clipRow(int worker, int y)
+    {
+        return Math.max(this.firstRows[worker], Math.min(y, this.firstRows[worker + 1]));
+    }
+
+    private static void checkRegion(int width, int height)
+    {
+        if (width < 0) throw new IllegalArgumentException("width must not be negative");
+        if (height < 0) throw new IllegalArgumentException("height must not be negative");
+    }
+
+    public synchronized void load(PackedPopulation population)
+    throws IOException
+    {
+        create(population.getWidth(), population.getHeight());
+        long[] row = new long[population.getWordsPerRow()];
+        for (int i = 0; i < getWorkerCount(); i++)
+        {
+            DataOutputStream out = this.outputs.get(i);
+            out.writeByte(StripeProtocol.SET_ROWS);
+            out.writeInt(0);
+            out.writeInt(this.firstRows[i + 1] - this.firstRows[i]);
+            for (int y = this.firstRows[i]; y < this.firstRows[i + 1]; y++)
+            {
+                population.copyRow(y, row, 0);
+                StripeProtocol.writeWords(out, row, 0, row.length);
+            }
+            out.flush();
+        }
+        readStatuses();
+    }
+
+    //a view cell is alive if any cell of its scale x scale block is alive
+    public synchronized PackedPopulation getView(int scale)
+    throws IOException
+    {
+        checkCreated();
+        if (scale < 1) throw new IllegalArgumentException("scale must be more than 0");
+        for (DataOutputStream out : this.outputs)
+        {
+            out.writeByte(StripeProtocol.GET_VIEW);
+            out.writeInt(scale);
+            out.flush();
+        }
+        PackedPopulation view = new PackedPopulation
+        (
+            (getWidth() + scale - 1) / scale,
+            (getHeight() + scale - 1) / scale
+        );
+        long[] row = new long[view.getWordsPerRow()];
+        long[] merged = new long[view.getWordsPerRow()];
+        for (DataInputStream in : this.inputs)
+        {
+            StripeProtocol.readStatus(in);
+            int first = in.readInt();
+            int rows = in.readInt();
+            for (int y = first; y < first + rows; y++)
+            {
+                StripeProtocol.readWords(in, row, 0, row.length);
+                //stripes can share a view row
+                view.copyRow(y, merged, 0);
+                for (int i = 0; i < row.length; i++) merged[i] |= row[i];
+                view.setRow(y, merged, 0);
+            }
+        }
+        return view;
+    }
+
+    public synchronized long countPopulation()
+    throws IOException
+    {
+        checkCreated();
+        for (DataOutputStream out : this.outputs)
+        {
+            out.writeByte(StripeProtocol.COUNT);
+            out.flush();
+        }
+        long count = 0;
+        for (DataInputStream in : this.inputs)
+        {
+            StripeProtocol.readStatus(in);
+            count += in.readLong();
+        }
+        return count;
+    }
+
+    private int findWorker(int y)
+    {
+        int worker = 0;
+        while (this.firstRows[worker + 1] <= y) worker++;
+        return worker;
+    }
+
+    private void readStatuses()
+    throws IOException
+    {
+        IOException error = null;
+        for (DataInputStream in : this.inputs)
+        {
+            try
+            {
+                StripeProtocol.readStatus(in);
+            }
+            catch (IOException ex)
+            {
+                if (error == null) error = ex;
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void checkCreated()
+    {
+        if (this.firstRows == null) throw new IllegalStateException("Population is not created");
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        for (int i = 0; i < this.sockets.size(); i++)
+        {
+            try
+            {
+                this.outputs.get(i).writeByte(StripeProtocol.CLOSE);
+                this.outputs.get(i).flush();
+                this.sockets.get(i).close();
+            }
+            catch (IOException ex)
+            {
+                LOG.log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        for (Process process : this.processes)
+        {
+            try
+            {
+                if (!process.waitFor(PROCESS_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                    process.destroyForcibly();
+            }
+            catch (InterruptedException ex)
+            {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
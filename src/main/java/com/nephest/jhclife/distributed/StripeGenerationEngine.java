@@ -0,0 +1,95 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.GenerationEngine;
+import com.nephest.jhclife.LifeMetrics;
+import com.nephest.jhclife.LifeRule;
+import com.nephest.jhclife.PackedPopulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+//the population is owned by the cluster, the model buffers only hold its downsampled view
+public class StripeGenerationEngine
+implements GenerationEngine
+{
+
+    private final StripeCluster cluster;
+    private volatile int scale = 1;
+
+    public StripeGenerationEngine(StripeCluster cluster)
+    {
+        this.cluster = cluster;
+    }
+
+    @Override
+    public PackedPopulation calculate
+    (
+        PackedPopulation src,
+        PackedPopulation dest,
+        long generations,
+        LifeRule rule
+    )
+    {
+        if (generations == 0) return src;
+        try
+        {
+            getCluster().step(generations, rule);
+            dest.copyFrom(getCluster().getView(getScale()));
+            return dest;
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public StripeCluster getCluster()
+    {
+        return this.cluster;
+    }
+
+    public int getScale()
+    {
+        return this.scale;
+    }
+
+    public void setScale(int scale)
+    {
+        if (scale < 1) throw new IllegalArgumentException("scale must be more than 0");
+        this.scale = scale;
+    }
+
+    @Override
+    public void updateMetrics(LifeMetrics metrics)
+    {
+        metrics.set(ENGINE_METRIC_PREFIX + "stripe.workers", getCluster().getWorkerCount());
+        metrics.set(ENGINE_METRIC_PREFIX + "stripe.scale", getScale());
+    }
+
+}
@@ -0,0 +1,89 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+    Coordinator to worker commands. Every command is answered with a status, errors are followed
+    by a message, successful commands are followed by their results.
+*/
+public final class StripeProtocol
+{
+
+    public static final String PORT_PREFIX = "PORT ";
+
+    //width, stripe height, first row -> halo port
+    public static final byte INIT = 1;
+    //halo port of the next stripe
+    public static final byte CONNECT = 2;
+    //seed, probability
+    public static final byte POPULATE = 3;
+    //generations, rulestring
+    public static final byte STEP = 4;
+    //x, stripe y, alive
+    public static final byte SET_CELL = 5;
+    //first stripe row, row count, row words
+    public static final byte SET_ROWS = 6;
+    //scale -> first view row, view row count, view row words
+    public static final byte GET_VIEW = 7;
+    // -> population count
+    public static final byte COUNT = 8;
+    public static final byte CLOSE = 9;
+    //x, stripe y, width, height, alive
+    public static final byte FILL = 10;
+    //x, stripe y, width, height, seed, density
+    public static final byte RANDOMIZE = 11;
+    //x, stripe y, mode, width, row count, row words
+    public static final byte STAMP = 12;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    private StripeProtocol() {}
+
+    public static void writeWords(DataOutputStream out, long[] words, int offset, int count)
+    throws IOException
+    {
+        for (int i = offset; i < offset + count; i++) out.writeLong(words[i]);
+    }
+
+    public static void readWords(DataInputStream in, long[] words, int offset, int count)
+    throws IOException
+    {
+        for (int i = offset; i < offset + count; i++) words[i] = in.readLong();
+    }
+
+    public static void readStatus(DataInputStream in)
+    throws IOException
+    {
+        if (in.readByte() != STATUS_OK) throw new IOException("Worker error: " + in.readUTF());
+    }
+
+}
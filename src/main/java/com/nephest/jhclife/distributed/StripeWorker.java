@@ -0,0 +1,474 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.GenerationCalculator;
+import com.nephest.jhclife.GenerationKernel;
+import com.nephest.jhclife.LifeRule;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.StampMode;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Owns a horizontal stripe of the torus. The stripe has a halo row above and below, halos are
+    exchanged with the neighbor stripes before every generation: the first row goes to the
+    previous stripe, the last row goes to the next one.
+*/
+public class StripeWorker
+implements Closeable
+{
+
+    private static final Logger LOG = Logger.getLogger(StripeWorker.class.getName());
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final GenerationKernel kernel;
+    private final ExecutorService haloWriter = Executors.newSingleThreadExecutor
+    (
+        (r)->
+        {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setDaemon(true);
+            t.setName("StripeWorker halo writer");
+            return t;
+        }
+    );
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private PackedPopulation stripe;
+    private PackedPopulation scratch;
+    private int firstRow;
+    private ServerSocket haloServer;
+    private Socket previousSocket, nextSocket;
+    private DataInputStream previousIn, nextIn;
+    private DataOutputStream previousOut, nextOut;
+    private long[] sendBuffer, receiveBuffer;
+
+    public StripeWorker(GenerationKernel kernel)
+    {
+        this.kernel = kernel;
+    }
+
+    public StripeWorker()
+    {
+        this(GenerationKernel.createDefault());
+    }
+
+    public static void main(String... args)
+    throws IOException
+    {
+        try (ServerSocket control = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+        {
+            System.out.println(StripeProtocol.PORT_PREFIX + control.getLocalPort());
+            System.out.flush();
+            try (Socket socket = control.accept(); StripeWorker worker = new StripeWorker())
+            {
+                worker.serve(socket);
+            }
+        }
+    }
+
+    //serves commands until the coordinator closes the connection
+    public void serve(Socket socket)
+    throws IOException
+    {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream
+            (new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        DataOutputStream out = new DataOutputStream
+            (new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        while (true)
+        {
+            byte command;
+            try
+            {
+                command = in.readByte();
+            }
+            catch (EOFException ex)
+            {
+                return;
+            }
+            if (command == StripeProtocol.CLOSE) return;
+
+            try
+            {
+                serve(command, in, out);
+            }
+            catch (RuntimeException | ExecutionException ex)
+            {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+                out.writeByte(StripeProtocol.STATUS_ERROR);
+                out.writeUTF(String.valueOf(ex.getMessage()));
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(ex.getMessage());
+            }
+            out.flush();
+        }
+    }
+
+    private void serve(byte command, DataInputStream in, DataOutputStream out)
+    throws IOException, ExecutionException, InterruptedException
+    {
+        switch (command)
+        {
+            case StripeProtocol.INIT:
+            {
+                int width = in.readInt();
+                int height = in.readInt();
+                int firstRow = in.readInt();
+                init(width, height, firstRow);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                out.writeInt(this.haloServer.getLocalPort());
+                break;
+            }
+            case StripeProtocol.CONNECT:
+            {
+                int port = in.readInt();
+                connect(port);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.POPULATE:
+            {
+                long seed = in.readLong();
+                double probability = in.readDouble();
+                populate(seed, probability);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.STEP:
+            {
+                long generations = in.readLong();
+                LifeRule rule = LifeRule.parse(in.readUTF());
+                step(generations, rule);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.SET_CELL:
+            {
+                int x = in.readInt();
+                int y = in.readInt();
+                boolean alive = in.readBoolean();
+                getStripe().setAlive(x, y + 1, alive);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.SET_ROWS:
+            {
+                int y = in.readInt();
+                int count = in.readInt();
+                setRows(in, y, count);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.GET_VIEW:
+            {
+                int scale = in.readInt();
+                PackedPopulation view = calculateView(scale);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                out.writeInt(getFirstRow() / scale);
+                out.writeInt(view.getHeight());
+                long[] row = new long[view.getWordsPerRow()];
+                for (int y = 0; y < view.getHeight(); y++)
+                {
+                    view.copyRow(y, row, 0);
+                    StripeProtocol.writeWords(out, row, 0, row.length);
+                }
+                break;
+            }
+            case StripeProtocol.FILL:
+            {
+                int x = in.readInt();
+                int y = in.readInt();
+                int width = in.readInt();
+                int height = in.readInt();
+                boolean alive = in.readBoolean();
+                getStripe().fill(x, y + 1, width, height, alive);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.RANDOMIZE:
+            {
+                int x = in.readInt();
+                int y = in.readInt();
+                int width = in.readInt();
+                int height = in.readInt();
+                long seed = in.readLong();
+                double density = in.readDouble();
+                //rows are seeded by their universe index, so the layout does not depend on the stripes
+                getStripe().randomize(x, y + 1, width, height, seed + getFirstRow() - 1, density);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.STAMP:
+            {
+                int x = in.readInt();
+                int y = in.readInt();
+                StampMode mode = StampMode.valueOf(in.readUTF());
+                int width = in.readInt();
+                int count = in.readInt();
+                getStripe().stamp(readRows(in, width, count), x, y + 1, mode);
+                out.writeByte(StripeProtocol.STATUS_OK);
+                break;
+            }
+            case StripeProtocol.COUNT:
+            {
+                long count = countPopulation();
+                out.writeByte(StripeProtocol.STATUS_OK);
+                out.writeLong(count);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    private void init(int width, int height, int firstRow)
+    throws IOException
+    {
+        if (width < 1) throw new IllegalArgumentException("width must be more than 0");
+        if (height < 1) throw new IllegalArgumentException("height must be more than 0");
+        closeHalos();
+        //halo rows are the first and the last rows
+        this.stripe = new PackedPopulation(width, height + 2);
+        this.scratch = new PackedPopulation(width, height + 2);
+        this.firstRow = firstRow;
+        this.sendBuffer = new long[this.stripe.getWordsPerRow()];
+        this.receiveBuffer = new long[this.stripe.getWordsPerRow()];
+        this.haloServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    //connects to the next stripe, then accepts the previous one, a single stripe connects to itself
+    private void connect(int nextPort)
+    throws IOException
+    {
+        this.nextSocket = new Socket(InetAddress.getLoopbackAddress(), nextPort);
+        this.previousSocket = this.haloServer.accept();
+        for (Socket socket : new Socket[]{this.nextSocket, this.previousSocket})
+            socket.setTcpNoDelay(true);
+        this.nextIn = new DataInputStream
+            (new BufferedInputStream(this.nextSocket.getInputStream(), BUFFER_SIZE));
+        this.nextOut = new DataOutputStream
+            (new BufferedOutputStream(this.nextSocket.getOutputStream(), BUFFER_SIZE));
+        this.previousIn = new DataInputStream
+            (new BufferedInputStream(this.previousSocket.getInputStream(), BUFFER_SIZE));
+        this.previousOut = new DataOutputStream
+            (new BufferedOutputStream(this.previousSocket.getOutputStream(), BUFFER_SIZE));
+    }
+
+    //every row has its own seed, so the layout does not depend on the stripes
+    private void populate(long seed, double probability)
+    {
+        if (probability < 0 || probability > 1.0)
+            throw new IllegalArgumentException("population probability must be in 0-1 range");
+        PackedPopulation stripe = getStripe();
+        stripe.clear();
+        Random random = new Random();
+        for (int y = 1; y < stripe.getHeight() - 1; y++)
+        {
+            random.setSeed(seed * 31 + getFirstRow() + y - 1);
+            for (int x = 0; x < stripe.getWidth(); x++)
+                if (random.nextDouble() < probability) stripe.setAlive(x, y, true);
+        }
+    }
+
+    /*
+        The neighbors wait for the halos of this stripe, so a failed step closes the halo
+        connections. The neighbors fail too instead of waiting forever, and every worker
+        answers with an error. The halos are connected again by the next INIT.
+    */
+    private void step(long generations, LifeRule rule)
+    throws ExecutionException, InterruptedException
+    {
+        if (generations < 0) throw new IllegalArgumentException("generations must not be negative");
+        try
+        {
+            for (long i = 0; i < generations; i++)
+            {
+                exchangeHalos();
+                //halo rows of the result are invalid, they are replaced before the next generation
+                this.pool.invoke(new GenerationCalculator(this.stripe, this.scratch, null, this.kernel, rule));
+                PackedPopulation result = this.scratch;
+                this.scratch = this.stripe;
+                this.stripe = result;
+            }
+        }
+        catch (IOException ex)
+        {
+            closeHalosQuietly();
+            throw new UncheckedIOException(ex);
+        }
+        catch (RuntimeException | ExecutionException ex)
+        {
+            closeHalosQuietly();
+            throw ex;
+        }
+    }
+
+    private void exchangeHalos()
+    throws IOException, ExecutionException, InterruptedException
+    {
+        PackedPopulation stripe = getStripe();
+        int words = stripe.getWordsPerRow();
+        int last = stripe.getHeight() - 2;
+        //the writer sends while the halos are received, so neighbors can't block each other
+        Future<Void> sent = this.haloWriter.submit(()->
+        {
+            stripe.copyRow(1, this.sendBuffer, 0);
+            StripeProtocol.writeWords(this.previousOut, this.sendBuffer, 0, words);
+            this.previousOut.flush();
+            stripe.copyRow(last, this.sendBuffer, 0);
+            StripeProtocol.writeWords(this.nextOut, this.sendBuffer, 0, words);
+            this.nextOut.flush();
+            return null;
+        });
+        StripeProtocol.readWords(this.previousIn, this.receiveBuffer, 0, words);
+        stripe.setRow(0, this.receiveBuffer, 0);
+        StripeProtocol.readWords(this.nextIn, this.receiveBuffer, 0, words);
+        stripe.setRow(last + 1, this.receiveBuffer, 0);
+        sent.get();
+    }
+
+    private void setRows(DataInputStream in, int y, int count)
+    throws IOException
+    {
+        PackedPopulation stripe = getStripe();
+        for (int i = 0; i < count; i++)
+        {
+            StripeProtocol.readWords(in, this.receiveBuffer, 0, stripe.getWordsPerRow());
+            stripe.setRow(y + i + 1, this.receiveBuffer, 0);
+        }
+    }
+
+    private static PackedPopulation readRows(DataInputStream in, int width, int count)
+    throws IOException
+    {
+        PackedPopulation rows = new PackedPopulation(width, count);
+        long[] row = new long[rows.getWordsPerRow()];
+        for (int y = 0; y < count; y++)
+        {
+            StripeProtocol.readWords(in, row, 0, row.length);
+            rows.setRow(y, row, 0);
+        }
+        return rows;
+    }
+
+    //a view cell is alive if any cell of its scale x scale block is alive
+    private PackedPopulation calculateView(int scale)
+    {
+        if (scale < 1) throw new IllegalArgumentException("scale must be more than 0");
+        PackedPopulation stripe = getStripe();
+        int rows = stripe.getHeight() - 2;
+        int viewFirst = getFirstRow() / scale;
+        int viewLast = (getFirstRow() + rows - 1) / scale;
+        PackedPopulation view = new PackedPopulation
+        (
+            (stripe.getWidth() + scale - 1) / scale,
+            viewLast - viewFirst + 1
+        );
+        long[] row = this.receiveBuffer;
+        for (int y = 0; y < rows; y++)
+        {
+            int viewY = (getFirstRow() + y) / scale - viewFirst;
+            stripe.copyRow(y + 1, row, 0);
+            for (int i = 0; i < row.length; i++)
+            {
+                for (long word = row[i]; word != 0; word &= word - 1)
+                {
+                    int x = (i << 6) + Long.numberOfTrailingZeros(word);
+                    view.setAlive(x / scale, viewY, true);
+                }
+            }
+        }
+        return view;
+    }
+
+    private long countPopulation()
+    {
+        PackedPopulation stripe = getStripe();
+        long[] row = this.receiveBuffer;
+        long count = 0;
+        for (int y = 1; y < stripe.getHeight() - 1; y++)
+        {
+            stripe.copyRow(y, row, 0);
+            for (long word : row) count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private PackedPopulation getStripe()
+    {
+        if (this.stripe == null) throw new IllegalStateException("Worker is not initialized");
+        return this.stripe;
+    }
+
+    private int getFirstRow()
+    {
+        return this.firstRow;
+    }
+
+    private void closeHalos()
+    throws IOException
+    {
+        for (Closeable closeable : new Closeable[]{this.nextSocket, this.previousSocket, this.haloServer})
+            if (closeable != null) closeable.close();
+        this.nextSocket = this.previousSocket = null;
+        this.haloServer = null;
+    }
+
+    private void closeHalosQuietly()
+    {
+        try
+        {
+            closeHalos();
+        }
+        catch (IOException ex)
+        {
+            LOG.log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void close()
+    throws IOException
+    {
+        this.haloWriter.shutdownNow();
+        closeHalos();
+    }
+
+}
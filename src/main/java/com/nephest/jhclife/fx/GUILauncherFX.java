@@ -27,6 +27,8 @@
 package com.nephest.jhclife.fx;
 
 import com.nephest.jhclife.*;
+import com.nephest.jhclife.distributed.DistributedLifeModel;
+import com.nephest.jhclife.distributed.StripeCluster;
 import javafx.application.Application;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Group;
@@ -35,6 +37,8 @@ import javafx.scene.Scene;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -50,6 +54,15 @@ extends Application
     public static final int DEFAULT_WIDTH = 800;
     public static final int DEFAULT_HEIGHT = 600;
 
+    //local worker processes, the population is split between them if it is more than 0
+    public static final String WORKERS_PROPERTY = "com.nephest.jhclife.workers";
+
+    //generations that are calculated ahead of the generation clock, 0 calculates them on the clock
+    public static final String COMPUTE_AHEAD_PROPERTY = "com.nephest.jhclife.ahead";
+
+    //persistent engine threads, generations are calculated by fork/join tasks if it is 0
+    public static final String ENGINE_THREADS_PROPERTY = "com.nephest.jhclife.threads";
+
     public static final String STYLESHEET_RESOURCE
         = "com/nephest/jhclife/resources/style/fx/default.css";
 
@@ -59,7 +72,7 @@ extends Application
     @Override
     public void start(Stage stage)
     {
-        this.model = new ClassicLifeModel(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+        this.model = createModel();
         this.executor = Executors.newSingleThreadExecutor();
 
         Rectangle2D screen = Screen.getPrimary().getVisualBounds();
@@ -103,10 +116,34 @@ extends Application
         stage.setMaximized(true);
     }
 
+    private ClassicLifeModel createModel()
+    {
+        int workers = Integer.getInteger(WORKERS_PROPERTY, 0);
+        if (workers < 1)
+        {
+            ClassicLifeModel model = new ClassicLifeModel(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+            model.setComputeAheadDepth(Integer.getInteger(COMPUTE_AHEAD_PROPERTY, 0));
+            int threads = Integer.getInteger(ENGINE_THREADS_PROPERTY, 0);
+            if (threads > 0) model.setEngine(new PhasedGenerationEngine(threads));
+            return model;
+        }
+
+        try
+        {
+            return new DistributedLifeModel(StripeCluster.launch(workers), DEFAULT_WIDTH, DEFAULT_HEIGHT);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     @Override
     public void stop()
     {
         getModel().close();
+        if (getModel().getEngine() instanceof PhasedGenerationEngine)
+            ((PhasedGenerationEngine) getModel().getEngine()).close();
         getExecutor().shutdown();
     }
 
@@ -30,6 +30,8 @@ import com.nephest.jhclife.Generation;
 import com.nephest.jhclife.LifePresenter;
 import com.nephest.jhclife.LifeView;
 import com.nephest.jhclife.LifeViewListener;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
 import com.nephest.jhclife.io.ControlBindings;
 import com.nephest.jhclife.io.Displayable;
 import javafx.animation.AnimationTimer;
@@ -73,14 +75,16 @@ implements LifeView<Parent>
     public static final String GENERATION_LOAD_STRING = "Load";
     public static final String HELP_STRING = "Help";
     public static final String STATE_TOGGLE_STRING = "Play/Pause";
+    public static final String TURBO_TOGGLE_STRING = "turbo";
 
     private Generation lastGeneration;
 
     private BorderPane borderPane;
     private Button stateToggleButton,
-        speedUpButton, speedDownButton, speedDefaultButton,
+        speedUpButton, speedDownButton, speedDefaultButton, turboToggleButton,
         zoomUpButton, zoomDownButton, zoomDefaultButton;
-    private Label generationNumberLabel, populationCountLabel, tipLabel, statusLabel, speedLabel, zoomLabel;
+    private Label generationNumberLabel, populationCountLabel, rateLabel,
+        tipLabel, statusLabel, speedLabel, zoomLabel;
     private MenuItem newGameItem, generationSaveItem, generationLoadItem, helpItem;
 
     private LifeViewListener listener;
@@ -145,6 +149,12 @@ implements LifeView<Parent>
             STATE_TOGGLE_STRING, this.stateToggleButton, LifePresenter.ControlType.STATE_TOGGLE,
             binds
         );
+
+        setButtonBindingInfo
+        (
+            TURBO_TOGGLE_STRING, this.turboToggleButton, LifePresenter.ControlType.TURBO_TOGGLE,
+            binds
+        );
     }
 
     @SafeVarargs
@@ -219,6 +229,7 @@ implements LifeView<Parent>
         this.speedUpButton.setOnAction((e)->listener.onSpeedUp());
         this.speedDownButton.setOnAction((e)->listener.onSpeedDown());
         this.speedDefaultButton.setOnAction((e)->listener.onSpeedDefault());
+        this.turboToggleButton.setOnAction((e)->listener.onTurboToggle());
 
         this.stateToggleButton.setOnAction((e)->listener.onStateToggle());
 
@@ -247,11 +258,21 @@ implements LifeView<Parent>
     private void renderGeneration(Generation next)
     {
         PixelWriter pixelWriter = this.generationImage.getPixelWriter();
-        int[] pop = next.copyPopulation1D();
-        int[] colors = new int[pop.length];
-        for(int i = 0; i < pop.length; i++) colors[i] = pop[i] == 1 ? ALIVE_ARGB : DEAD_ARGB;
+        //the population is read row by row, so it is never copied as a whole
+        Population population = next.getPopulation();
+        long[] words = new long[population.getWordsPerRow()];
+        int[] colors = new int[next.getWidth()];
         WritablePixelFormat<IntBuffer> pixelFormat = PixelFormat.getIntArgbPreInstance();
-        pixelWriter.setPixels(0, 0, next.getWidth(), next.getHeight(), pixelFormat, colors, 0, next.getWidth());
+        for (int row = 0; row < next.getHeight(); row++)
+        {
+            population.copyRow(row, words, 0);
+            for (int col = 0; col < colors.length; col++)
+            {
+                boolean alive = ((words[col >>> PackedPopulation.WORD_SHIFT] >>> col) & 1) != 0;
+                colors[col] = alive ? ALIVE_ARGB : DEAD_ARGB;
+            }
+            pixelWriter.setPixels(0, row, colors.length, 1, pixelFormat, colors, 0, colors.length);
+        }
     }
 
     @Override
@@ -272,6 +293,7 @@ implements LifeView<Parent>
         }
         this.generationNumberLabel.setText("0");
         this.populationCountLabel.setText("0");
+        this.rateLabel.setText("0");
     }
 
     @Override
@@ -320,6 +342,12 @@ implements LifeView<Parent>
         Platform.runLater( ()->this.speedLabel.setText(speed) );
     }
 
+    @Override
+    public void setRateInfo(String rate)
+    {
+        Platform.runLater( ()->this.rateLabel.setText(rate) );
+    }
+
     @Override
     public void setStatus(String status)
     {
@@ -359,6 +387,7 @@ implements LifeView<Parent>
         this.speedUpButton.setOnAction(null);
         this.speedDownButton.setOnAction(null);
         this.speedDefaultButton.setOnAction(null);
+        this.turboToggleButton.setOnAction(null);
 
         this.stateToggleButton.setOnAction(null);
 
@@ -411,6 +440,8 @@ implements LifeView<Parent>
         this.speedDownButton.getStyleClass().add(BUTTON_MINUS_CLASS);
         this.speedDefaultButton = new Button("default");
         this.speedDefaultButton.getStyleClass().add(BUTTON_DEFAULT_CLASS);
+        this.turboToggleButton = new Button(TURBO_TOGGLE_STRING);
+        this.turboToggleButton.getStyleClass().add(BUTTON_DEFAULT_CLASS);
 
         this.zoomLabel = newValueLabel(false);
         this.zoomLabel.setId("label-zoom");
@@ -439,6 +470,8 @@ implements LifeView<Parent>
         this.generationNumberLabel.setId("label-generation-number");
         this.populationCountLabel = newValueLabel(false);
         this.populationCountLabel.setId("label-population-count");
+        this.rateLabel = newValueLabel(false);
+        this.rateLabel.setId("label-rate");
 
         this.tipLabel = newValueLabel(true);
         this.tipLabel.setId("label-tip");
@@ -460,7 +493,7 @@ implements LifeView<Parent>
         (
             newLabel("Speed"),
             this.speedDownButton, this.speedLabel,
-            newButtonGroup(this.speedUpButton, this.speedDefaultButton),
+            newButtonGroup(this.speedUpButton, this.speedDefaultButton, this.turboToggleButton),
             newSeparator(Orientation.VERTICAL),
 
             newLabel("Zoom"),
@@ -478,6 +511,8 @@ implements LifeView<Parent>
             newSeparator(Orientation.VERTICAL),
             newLabel("Population:"), this.populationCountLabel,
             newSeparator(Orientation.VERTICAL),
+            newLabel("Gens/s:"), this.rateLabel,
+            newSeparator(Orientation.VERTICAL),
             newLabel("Status:"), this.statusLabel,
             newSeparator(Orientation.VERTICAL),
             newLabel("Tip:"), this.tipLabel
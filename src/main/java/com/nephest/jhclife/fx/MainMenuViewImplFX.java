@@ -26,6 +26,7 @@
 
 package com.nephest.jhclife.fx;
 
+import com.nephest.jhclife.LifeRule;
 import com.nephest.jhclife.MainMenuPresenter;
 import com.nephest.jhclife.MainMenuView;
 import com.nephest.jhclife.MainMenuViewListener;
@@ -33,6 +34,7 @@ import com.nephest.jhclife.io.ControlBindings;
 import com.nephest.jhclife.io.Displayable;
 import javafx.scene.Parent;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.Tooltip;
@@ -50,10 +52,12 @@ implements MainMenuView<Parent>
     public static final int DEFAULT_HEIGHT = 600;
     public static final int DEFAULT_SEED = 0;
     public static final double DEFAULT_DENSITY = 15.0;
+    public static final String DEFAULT_RULE = "Conway's Life";
 
     private GridPane grid;
     private Spinner<Integer> widthSpinner, heightSpinner, seedSpinner;
     private Spinner<Double> probabilitySpinner;
+    private ComboBox<String> ruleComboBox;
     private Button newGameButton, cancelButton;
 
     public MainMenuViewImplFX(Window owner)
@@ -152,6 +156,12 @@ implements MainMenuView<Parent>
         return this.probabilitySpinner.getValue();
     }
 
+    @Override
+    public String getRule()
+    {
+        return this.ruleComboBox.getEditor().getText();
+    }
+
     private void unsetListener()
     {
         this.grid.setOnKeyPressed(null);
@@ -195,6 +205,12 @@ implements MainMenuView<Parent>
         FX.standardSpinner(this.probabilitySpinner, DEFAULT_DENSITY, 0.0);
         this.probabilitySpinner.setTooltip(new Tooltip("Population density percentage"));
 
+        this.ruleComboBox = new ComboBox<>();
+        this.ruleComboBox.getItems().addAll(LifeRule.PRESETS.keySet());
+        this.ruleComboBox.setEditable(true);
+        this.ruleComboBox.setValue(DEFAULT_RULE);
+        this.ruleComboBox.setTooltip(new Tooltip("Preset or B/S rulestring, e.g. B36/S23"));
+
         this.newGameButton = new Button(NEW_GAME_STRING);
         this.newGameButton.setId("button-new-game");
 
@@ -216,8 +232,11 @@ implements MainMenuView<Parent>
         this.grid.add(new Label("Density"), 2, 1);
         this.grid.add(this.probabilitySpinner, 3, 1);
 
-        this.grid.add(this.newGameButton, 0, 2, 2, 1);
-        this.grid.add(this.cancelButton, 2, 2, 2, 1);
+        this.grid.add(new Label("Rule"), 0, 2);
+        this.grid.add(this.ruleComboBox, 1, 2, 3, 1);
+
+        this.grid.add(this.newGameButton, 0, 3, 2, 1);
+        this.grid.add(this.cancelButton, 2, 3, 2, 1);
     }
 
 }
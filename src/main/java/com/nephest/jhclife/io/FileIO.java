@@ -30,6 +30,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 
@@ -45,4 +47,11 @@ public interface FileIO
     byte[] readAllBytes(Path path)
     throws IOException;
 
+    //the file is created or truncated if there are no options, like in write
+    WritableByteChannel newWritableChannel(Path path, OpenOption... options)
+    throws IOException;
+
+    ReadableByteChannel newReadableChannel(Path path)
+    throws IOException;
+
 }
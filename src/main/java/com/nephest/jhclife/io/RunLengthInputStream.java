@@ -0,0 +1,122 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+//see RunLengthOutputStream, the underlying stream is not closed
+public class RunLengthInputStream
+extends InputStream
+{
+
+    private final InputStream in;
+    private int literals = 0;
+    private long repeat = 0;
+    private byte value;
+
+    public RunLengthInputStream(InputStream in)
+    {
+        this.in = in;
+    }
+
+    //returns false at the end of the stream
+    private boolean nextToken()
+    throws IOException
+    {
+        int token = this.in.read();
+        if (token < 0) return false;
+        if (token < RunLengthOutputStream.RUN_TOKEN)
+        {
+            this.literals = token + 1;
+            return true;
+        }
+        if (token != RunLengthOutputStream.RUN_TOKEN) throw new IOException("Invalid run length token");
+        long length = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            if (shift >= Long.SIZE) throw new IOException("Invalid run length");
+            int b = readByte();
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        this.repeat = length;
+        this.value = (byte) readByte();
+        return true;
+    }
+
+    private int readByte()
+    throws IOException
+    {
+        int b = this.in.read();
+        if (b < 0) throw new EOFException("Truncated run length token");
+        return b;
+    }
+
+    @Override
+    public int read()
+    throws IOException
+    {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    throws IOException
+    {
+        if (len == 0) return 0;
+        int read = 0;
+        while (read < len)
+        {
+            if (this.literals == 0 && this.repeat == 0 && !nextToken()) break;
+            if (this.literals > 0)
+            {
+                int count = this.in.read(b, off + read, Math.min(this.literals, len - read));
+                if (count < 0) throw new EOFException("Truncated literals");
+                this.literals -= count;
+                read += count;
+            }
+            else
+            {
+                int count = (int) Math.min(this.repeat, len - read);
+                Arrays.fill(b, off + read, off + read + count, this.value);
+                this.repeat -= count;
+                read += count;
+            }
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+}
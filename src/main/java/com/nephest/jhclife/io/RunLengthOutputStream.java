@@ -0,0 +1,177 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+    A literal token is a byte 0-127 followed by 1-128 literal bytes. A run token is RUN_TOKEN
+    followed by the unsigned LEB128 run length and the repeated byte. Runs shorter than
+    MIN_RUN are stored as literals. The underlying stream is not closed.
+*/
+public class RunLengthOutputStream
+extends OutputStream
+{
+
+    public static final int RUN_TOKEN = 0x80;
+    public static final int MAX_LITERALS = 128;
+    public static final int MIN_RUN = 4;
+
+    private final OutputStream out;
+    private final byte[] literals = new byte[MAX_LITERALS];
+    private int literalCount = 0;
+    private int value = -1;
+    private long repeat = 0;
+
+    public RunLengthOutputStream(OutputStream out)
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b)
+    throws IOException
+    {
+        b &= 0xFF;
+        if (b == this.value)
+        {
+            this.repeat++;
+            return;
+        }
+        flushRepeat();
+        this.value = b;
+        this.repeat = 1;
+    }
+
+    //literals are copied in bulk, equal bytes are only compared
+    @Override
+    public void write(byte[] b, int off, int len)
+    throws IOException
+    {
+        int end = off + len;
+        int i = off;
+        while (i < end)
+        {
+            if (this.repeat > 0 && (b[i] & 0xFF) == this.value)
+            {
+                int runEnd = i + 1;
+                while (runEnd < end && b[runEnd] == b[i]) runEnd++;
+                this.repeat += runEnd - i;
+                i = runEnd;
+                continue;
+            }
+            flushRepeat();
+            //literals end where a run of MIN_RUN bytes starts, a shorter run at the end stays pending
+            int literalEnd = i;
+            int runEnd = i;
+            while (literalEnd < end)
+            {
+                runEnd = literalEnd + 1;
+                while (runEnd < end && runEnd - literalEnd < MIN_RUN && b[runEnd] == b[literalEnd]) runEnd++;
+                if (runEnd - literalEnd >= MIN_RUN || runEnd == end) break;
+                literalEnd = runEnd;
+            }
+            addLiterals(b, i, literalEnd - i);
+            if (literalEnd == end) break;
+            this.value = b[literalEnd] & 0xFF;
+            this.repeat = runEnd - literalEnd;
+            i = runEnd;
+        }
+    }
+
+    private void addLiterals(byte[] b, int off, int len)
+    throws IOException
+    {
+        while (len > 0)
+        {
+            int count = Math.min(MAX_LITERALS - this.literalCount, len);
+            System.arraycopy(b, off, this.literals, this.literalCount, count);
+            this.literalCount += count;
+            off += count;
+            len -= count;
+            if (this.literalCount == MAX_LITERALS) flushLiterals();
+        }
+    }
+
+    private void flushRepeat()
+    throws IOException
+    {
+        if (this.repeat >= MIN_RUN)
+        {
+            flushLiterals();
+            this.out.write(RUN_TOKEN);
+            for (long length = this.repeat; ; length >>>= 7)
+            {
+                if (length < 0x80)
+                {
+                    this.out.write((int) length);
+                    break;
+                }
+                this.out.write((int) (length & 0x7F) | 0x80);
+            }
+            this.out.write(this.value);
+        }
+        else
+        {
+            for (long i = 0; i < this.repeat; i++)
+            {
+                this.literals[this.literalCount++] = (byte) this.value;
+                if (this.literalCount == MAX_LITERALS) flushLiterals();
+            }
+        }
+        this.repeat = 0;
+    }
+
+    private void flushLiterals()
+    throws IOException
+    {
+        if (this.literalCount == 0) return;
+        this.out.write(this.literalCount - 1);
+        this.out.write(this.literals, 0, this.literalCount);
+        this.literalCount = 0;
+    }
+
+    //pending runs are written by close, flush only passes the written tokens on
+    @Override
+    public void flush()
+    throws IOException
+    {
+        this.out.flush();
+    }
+
+    @Override
+    public void close()
+    throws IOException
+    {
+        flushRepeat();
+        flushLiterals();
+        this.value = -1;
+        this.out.flush();
+    }
+
+}
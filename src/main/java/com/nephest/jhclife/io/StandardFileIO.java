@@ -27,9 +27,15 @@
 package com.nephest.jhclife.io;
 
 import java.io.*;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 public class StandardFileIO
 implements FileIO
@@ -56,4 +62,25 @@ implements FileIO
         return Files.readAllBytes(path);
     }
 
+    @Override
+    public WritableByteChannel newWritableChannel(Path path, OpenOption... options)
+    throws IOException
+    {
+        Set<OpenOption> openOptions = new HashSet<>(Arrays.asList(options));
+        if (openOptions.isEmpty())
+        {
+            openOptions.add(StandardOpenOption.CREATE);
+            openOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        openOptions.add(StandardOpenOption.WRITE);
+        return Files.newByteChannel(path, openOptions);
+    }
+
+    @Override
+    public ReadableByteChannel newReadableChannel(Path path)
+    throws IOException
+    {
+        return Files.newByteChannel(path);
+    }
+
 }
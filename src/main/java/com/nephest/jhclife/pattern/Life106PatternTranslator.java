@@ -0,0 +1,121 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/*
+    Life 1.06 pattern, "#Life 1.06" header followed by "x y" coordinates of alive cells.
+    Coordinates may be negative, the population is the bounding box of the cells.
+*/
+public class Life106PatternTranslator
+extends PatternTranslator
+{
+
+    @Override
+    public void write(Generation generation, WritableByteChannel channel)
+    throws IOException
+    {
+        Population population = generation.getPopulation();
+        int width = population.getWidth();
+        PatternOutput out = new PatternOutput(channel);
+        out.writeLine(PatternFormat.LIFE_106_HEADER);
+        long[] row = new long[population.getWordsPerRow()];
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            for
+            (
+                int x = PatternFormat.findCell(row, 0, width, true);
+                x < width;
+                x = PatternFormat.findCell(row, x + 1, width, true)
+            )
+            {
+                out.writeNumber(x);
+                out.write(' ');
+                out.writeNumber(y);
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    //the bounding box is unknown until the end, so coordinates are kept as packed pairs
+    @Override
+    public Generation read(ReadableByteChannel channel)
+    throws IOException
+    {
+        PatternInput in = new PatternInput(channel);
+        long[] cells = new long[64];
+        int count = 0;
+        long minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        long maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int c = in.skipSpaces(); c >= 0; c = in.skipSpaces())
+        {
+            if (c == '#' || c == '\n')
+            {
+                in.skipLine();
+                continue;
+            }
+            int x = in.readInt();
+            in.skipSpaces();
+            int y = in.readInt();
+            c = in.skipSpaces();
+            if (c >= 0 && c != '\n') throw in.createException("Invalid coordinates");
+            if (count == cells.length)
+            {
+                if (count == Integer.MAX_VALUE - 8) throw in.createException("Too many cells");
+                cells = Arrays.copyOf(cells, (int) Math.min(Integer.MAX_VALUE - 8L, count * 2L));
+            }
+            cells[count++] = ((long) x << 32) | (y & 0xFFFFFFFFL);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        if (count == 0) return PatternFormat.createGeneration(new PackedPopulation(0, 0));
+        if (maxX - minX >= Integer.MAX_VALUE || maxY - minY >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Pattern is too large");
+        PackedPopulation population = new PackedPopulation((int) (maxX - minX + 1), (int) (maxY - minY + 1));
+        for (int i = 0; i < count; i++)
+        {
+            int x = (int) (cells[i] >> 32);
+            int y = (int) cells[i];
+            population.setAlive((int) (x - minX), (int) (y - minY), true);
+        }
+        return PatternFormat.createGeneration(population);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.PopulationHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+//text pattern formats that are exchanged with other Life tools
+public enum PatternFormat
+{
+
+    RLE(new RlePatternTranslator(), "rle"),
+    PLAINTEXT(new PlaintextPatternTranslator(), "cells"),
+    LIFE_106(new Life106PatternTranslator(), "lif", "life");
+
+    //formats are detected by the first bytes of the input
+    public static final int DETECT_SIZE = 1 << 12;
+    public static final String LIFE_106_HEADER = "#Life 1.06";
+
+    private final PatternTranslator translator;
+    private final List<String> extensions;
+
+    PatternFormat(PatternTranslator translator, String... extensions)
+    {
+        this.translator = translator;
+        this.extensions = List.of(extensions);
+    }
+
+    public PatternTranslator getTranslator()
+    {
+        return this.translator;
+    }
+
+    public List<String> getExtensions()
+    {
+        return this.extensions;
+    }
+
+    //returns null if the file name has no pattern extension
+    public static PatternFormat fromFileName(String name)
+    {
+        if (name == null) return null;
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) return null;
+        String extension = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (PatternFormat format : values())
+        {
+            if (format.getExtensions().contains(extension)) return format;
+        }
+        return null;
+    }
+
+    //the first meaningful line decides the format, returns null if it's not a pattern
+    public static PatternFormat detect(byte[] bytes, int length)
+    {
+        String text = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        for (String line : text.split("\n"))
+        {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) continue;
+            if (trimmed.startsWith(LIFE_106_HEADER)) return LIFE_106;
+            //other Life versions are not supported
+            if (trimmed.startsWith("#Life")) return null;
+            if (trimmed.startsWith("#")) continue;
+            if (trimmed.startsWith("!")) return PLAINTEXT;
+            if (trimmed.matches("x\\s*=.*")) return RLE;
+            if (trimmed.matches("[.O*]+")) return PLAINTEXT;
+            return null;
+        }
+        return null;
+    }
+
+    //patterns have no id or generation number
+    static Generation createGeneration(PackedPopulation population)
+    {
+        return new Generation
+        (
+            population,
+            0,
+            0,
+            population.countPopulation(),
+            PopulationHash.hash(population)
+        );
+    }
+
+    //sets count cells of a packed row, starting at x
+    static void setCells(long[] row, int x, int count)
+    {
+        int end = x + count;
+        while (x < end)
+        {
+            int word = x >>> 6;
+            int wordEnd = Math.min(end, (word + 1) << 6);
+            int bits = wordEnd - x;
+            row[word] |= (bits == Long.SIZE ? -1L : (1L << bits) - 1) << x;
+            x = wordEnd;
+        }
+    }
+
+    //returns the first cell in the from-width range that has the state, or width if there is none
+    static int findCell(long[] row, int from, int width, boolean alive)
+    {
+        if (from >= width) return width;
+        int word = from >>> 6;
+        long bits = (alive ? row[word] : ~row[word]) & (-1L << from);
+        while (bits == 0)
+        {
+            if (++word >= row.length) return width;
+            bits = alive ? row[word] : ~row[word];
+        }
+        return Math.min(width, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+}
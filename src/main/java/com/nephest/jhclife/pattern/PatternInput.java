@@ -0,0 +1,151 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+//buffered ASCII input, patterns are parsed byte by byte without an intermediate stream
+class PatternInput
+{
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+    private int position = 0;
+    private int limit = 0;
+    private long line = 1;
+
+    PatternInput(ReadableByteChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    //returns -1 at the end of the input
+    public int peek()
+    throws IOException
+    {
+        if (this.position == this.limit && !fill()) return -1;
+        return this.bytes[this.position] & 0xFF;
+    }
+
+    public int read()
+    throws IOException
+    {
+        int c = peek();
+        if (c < 0) return c;
+        this.position++;
+        if (c == '\n') this.line++;
+        return c;
+    }
+
+    private boolean fill()
+    throws IOException
+    {
+        this.buffer.clear();
+        int read;
+        do
+        {
+            read = this.channel.read(this.buffer);
+        }
+        while (read == 0);
+        this.position = 0;
+        this.limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    //the line terminator is consumed, returns null at the end of the input
+    public String readLine(int maxLength)
+    throws IOException
+    {
+        if (peek() < 0) return null;
+        StringBuilder sb = new StringBuilder();
+        for (int c = read(); c >= 0 && c != '\n'; c = read())
+        {
+            if (c == '\r') continue;
+            if (sb.length() == maxLength) throw createException("Line is too long");
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    public void skipLine()
+    throws IOException
+    {
+        for (int c = read(); c >= 0 && c != '\n'; c = read());
+    }
+
+    //spaces and tabs are skipped, returns the next byte
+    public int skipSpaces()
+    throws IOException
+    {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r')
+        {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    //optionally signed decimal int
+    public int readInt()
+    throws IOException
+    {
+        boolean negative = peek() == '-';
+        if (negative) read();
+        if (!isDigit(peek())) throw createException("Number expected");
+        long result = 0;
+        while (isDigit(peek()))
+        {
+            result = result * 10 + (read() - '0');
+            if (result > Integer.MAX_VALUE + 1L) throw createException("Number is too large");
+        }
+        result = negative ? -result : result;
+        if (result > Integer.MAX_VALUE) throw createException("Number is too large");
+        return (int) result;
+    }
+
+    public static boolean isDigit(int c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    public long getLine()
+    {
+        return this.line;
+    }
+
+    public IllegalArgumentException createException(String message)
+    {
+        return new IllegalArgumentException(message + " at line " + getLine());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+//buffered ASCII output, the channel is not closed
+class PatternOutput
+{
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+    private int position = 0;
+    private int lineLength = 0;
+
+    PatternOutput(WritableByteChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    public void write(int c)
+    throws IOException
+    {
+        if (this.position == this.bytes.length) flush();
+        this.bytes[this.position++] = (byte) c;
+        this.lineLength = c == '\n' ? 0 : this.lineLength + 1;
+    }
+
+    public void write(String str)
+    throws IOException
+    {
+        for (int i = 0; i < str.length(); i++) write(str.charAt(i));
+    }
+
+    public void writeLine(String str)
+    throws IOException
+    {
+        write(str);
+        write('\n');
+    }
+
+    public void writeNumber(long number)
+    throws IOException
+    {
+        if (number < 0)
+        {
+            write('-');
+            number = -number;
+        }
+        long divisor = 1;
+        while (number / divisor >= 10) divisor *= 10;
+        for (; divisor > 0; divisor /= 10) write((int) ('0' + number / divisor % 10));
+    }
+
+    public static int getNumberLength(long number)
+    {
+        int length = number < 0 ? 2 : 1;
+        for (long n = Math.abs(number); n >= 10; n /= 10) length++;
+        return length;
+    }
+
+    public int getLineLength()
+    {
+        return this.lineLength;
+    }
+
+    public void flush()
+    throws IOException
+    {
+        this.buffer.clear().limit(this.position);
+        while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+        this.position = 0;
+    }
+
+}
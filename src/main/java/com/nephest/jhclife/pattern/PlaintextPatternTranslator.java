@@ -0,0 +1,122 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Plaintext pattern, every line is a row, . is a dead cell and O is an alive cell.
+    Lines that start with ! are comments. The width is the length of the longest row.
+*/
+public class PlaintextPatternTranslator
+extends PatternTranslator
+{
+
+    //rows are written in full, so the dimensions are preserved
+    @Override
+    public void write(Generation generation, WritableByteChannel channel)
+    throws IOException
+    {
+        Population population = generation.getPopulation();
+        int width = population.getWidth();
+        PatternOutput out = new PatternOutput(channel);
+        out.writeLine("!Generation " + generation.getGenerationNumber());
+        long[] row = new long[population.getWordsPerRow()];
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            for (int x = 0; x < width; x++)
+                out.write((row[x >>> 6] & (1L << x)) != 0 ? 'O' : '.');
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    //rows are kept packed until the width is known
+    @Override
+    public Generation read(ReadableByteChannel channel)
+    throws IOException
+    {
+        PatternInput in = new PatternInput(channel);
+        List<long[]> rows = new ArrayList<>();
+        long[] row = new long[1];
+        int width = 0;
+        while (in.peek() >= 0)
+        {
+            if (in.peek() == '!')
+            {
+                in.skipLine();
+                continue;
+            }
+            Arrays.fill(row, 0);
+            int x = 0;
+            for (int c = in.read(); c >= 0 && c != '\n'; c = in.read())
+            {
+                switch (c)
+                {
+                    case '.':
+                        break;
+                    case 'O':
+                    case '*':
+                        if (x >>> 6 >= row.length) row = Arrays.copyOf(row, row.length * 2);
+                        row[x >>> 6] |= 1L << x;
+                        break;
+                    case ' ':
+                    case '\t':
+                    case '\r':
+                        continue;
+                    default:
+                        throw in.createException("Invalid cell '" + (char) c + "'");
+                }
+                if (++x < 0) throw in.createException("Row is too long");
+            }
+            width = Math.max(width, x);
+            rows.add(Arrays.copyOf(row, PackedPopulation.calculateWordCount(x)));
+        }
+
+        PackedPopulation population = new PackedPopulation(width, rows.size());
+        long[] populationRow = new long[population.getWordsPerRow()];
+        for (int y = 0; y < rows.size(); y++)
+        {
+            long[] src = rows.get(y);
+            System.arraycopy(src, 0, populationRow, 0, src.length);
+            Arrays.fill(populationRow, src.length, populationRow.length, 0);
+            population.setRow(y, populationRow, 0);
+        }
+        return PatternFormat.createGeneration(population);
+    }
+
+}
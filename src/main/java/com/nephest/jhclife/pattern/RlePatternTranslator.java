@@ -0,0 +1,200 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.Population;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/*
+    Run length encoded pattern, "x = 3, y = 3" header followed by <count><tag> items.
+    b is a dead cell, o is an alive cell, $ is the end of a row and ! is the end of the pattern.
+    Rows are decoded into a single row buffer, so only the population is held in memory.
+*/
+public class RlePatternTranslator
+extends PatternTranslator
+{
+
+    public static final int MAX_LINE_LENGTH = 70;
+    public static final int MAX_HEADER_LENGTH = 1 << 12;
+
+    //dead cells at the end of a row and empty rows at the end are omitted
+    @Override
+    public void write(Generation generation, WritableByteChannel channel)
+    throws IOException
+    {
+        Population population = generation.getPopulation();
+        int width = population.getWidth();
+        PatternOutput out = new PatternOutput(channel);
+        out.writeLine("#C generation " + generation.getGenerationNumber());
+        out.writeLine("x = " + width + ", y = " + population.getHeight());
+        long[] row = new long[population.getWordsPerRow()];
+        long rows = 0;
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            population.copyRow(y, row, 0);
+            int end = 0;
+            for
+            (
+                int x = PatternFormat.findCell(row, 0, width, true);
+                x < width;
+                x = PatternFormat.findCell(row, end, width, true)
+            )
+            {
+                if (rows > 0)
+                {
+                    writeItem(out, rows, '$');
+                    rows = 0;
+                }
+                if (x > end) writeItem(out, x - end, 'b');
+                end = PatternFormat.findCell(row, x, width, false);
+                writeItem(out, end - x, 'o');
+            }
+            rows++;
+        }
+        writeItem(out, 1, '!');
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void writeItem(PatternOutput out, long count, char tag)
+    throws IOException
+    {
+        int length = (count > 1 ? PatternOutput.getNumberLength(count) : 0) + 1;
+        if (out.getLineLength() + length > MAX_LINE_LENGTH) out.write('\n');
+        if (count > 1) out.writeNumber(count);
+        out.write(tag);
+    }
+
+    @Override
+    public Generation read(ReadableByteChannel channel)
+    throws IOException
+    {
+        PatternInput in = new PatternInput(channel);
+        PackedPopulation population = readHeader(in);
+        int width = population.getWidth();
+        int height = population.getHeight();
+        long[] row = new long[population.getWordsPerRow()];
+        boolean rowAlive = false;
+        int x = 0;
+        long y = 0;
+        long count = 0;
+        for (int c = in.read(); c >= 0 && c != '!'; c = in.read())
+        {
+            if (PatternInput.isDigit(c))
+            {
+                count = count * 10 + (c - '0');
+                if (count > Integer.MAX_VALUE) throw in.createException("Run is too long");
+                continue;
+            }
+            long run = count == 0 ? 1 : count;
+            count = 0;
+            switch (c)
+            {
+                case 'b':
+                case '.':
+                    if (x + run > width) throw in.createException("Row is too long");
+                    x += run;
+                    break;
+                case '$':
+                    if (rowAlive)
+                    {
+                        population.setRow((int) y, row, 0);
+                        Arrays.fill(row, 0);
+                        rowAlive = false;
+                    }
+                    x = 0;
+                    y += run;
+                    break;
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    break;
+                case '#':
+                    in.skipLine();
+                    break;
+                default:
+                    //multi-state tags are alive cells
+                    if (!Character.isLetter(c)) throw in.createException("Invalid tag '" + (char) c + "'");
+                    if (x + run > width) throw in.createException("Row is too long");
+                    if (y >= height) throw in.createException("Too many rows");
+                    PatternFormat.setCells(row, x, (int) run);
+                    x += run;
+                    rowAlive = true;
+                    break;
+            }
+        }
+        if (rowAlive) population.setRow((int) y, row, 0);
+        return PatternFormat.createGeneration(population);
+    }
+
+    private static PackedPopulation readHeader(PatternInput in)
+    throws IOException
+    {
+        for (String line = in.readLine(MAX_HEADER_LENGTH); line != null; line = in.readLine(MAX_HEADER_LENGTH))
+        {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            int width = -1;
+            int height = -1;
+            for (String item : trimmed.split(","))
+            {
+                String[] pair = item.split("=", 2);
+                if (pair.length != 2) throw in.createException("Invalid header");
+                String key = pair[0].trim();
+                //the rule is not a part of a generation
+                if (key.equals("x")) width = parseDimension(in, pair[1]);
+                if (key.equals("y")) height = parseDimension(in, pair[1]);
+            }
+            if (width < 0 || height < 0) throw in.createException("Pattern dimensions expected");
+            return new PackedPopulation(width, height);
+        }
+        throw in.createException("Header expected");
+    }
+
+    private static int parseDimension(PatternInput in, String str)
+    {
+        try
+        {
+            int result = Integer.parseInt(str.trim());
+            if (result < 0) throw in.createException("Pattern dimensions must not be negative");
+            return result;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw in.createException("Invalid pattern dimensions");
+        }
+    }
+
+}
@@ -26,6 +26,12 @@
 
 package com.nephest.jhclife.util;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
 public interface ObjectTranslator<T>
 {
 
@@ -33,4 +39,18 @@ public interface ObjectTranslator<T>
 
     T fromByteArray(byte[] bytes);
 
+    //translators that can stream objects should override the channel methods
+    default void write(T t, WritableByteChannel channel)
+    throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(toByteArray(t));
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    default T read(ReadableByteChannel channel)
+    throws IOException
+    {
+        return fromByteArray(Channels.newInputStream(channel).readAllBytes());
+    }
+
 }
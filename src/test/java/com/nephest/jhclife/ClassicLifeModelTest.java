@@ -33,6 +33,7 @@ import org.mockito.internal.matchers.LessOrEqual;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -214,6 +215,515 @@ public class ClassicLifeModelTest
         }
     }
 
+    @Test
+    public void testAdvanceTo()
+    {
+        long seed = this.rng.nextLong();
+        int generations = 1 + this.rng.nextInt(50);
+        this.model.createNewPopulation(120, 90);
+        this.model.populate(seed, 0.5);
+        for (int i = 0; i < generations; i++) this.model.nextGeneration();
+        Generation expected = this.model.getLastGeneration();
+
+        this.model.setEngine(new HashLifeEngine());
+        this.model.populate(seed, 0.5);
+        long lastId = this.model.getId();
+        this.model.advanceTo(generations);
+        Generation actual = this.model.getLastGeneration();
+        assertEquals(generations, actual.getGenerationNumber());
+        assertEquals(lastId, actual.getId());
+        assertEquals(expected.getPopulationCount(), actual.getPopulationCount());
+        for (int col = 0; col < expected.getWidth(); col++)
+        {
+            for (int row = 0; row < expected.getHeight(); row++)
+            {
+                assertEquals
+                (
+                    expected.isPopulationAlive(col, row),
+                    actual.isPopulationAlive(col, row)
+                );
+            }
+        }
+        assertThrows(IllegalArgumentException.class, ()->this.model.advanceTo(generations - 1));
+    }
+
+    @Test
+    public void testStep()
+    {
+        long seed = this.rng.nextLong();
+        int generations = 1 + this.rng.nextInt(100);
+        this.model.createNewPopulation(100, 70);
+        this.model.populate(seed, 0.5);
+        for (int i = 0; i < generations; i++) this.model.nextGeneration();
+        int[][] expected = this.model.getLastPopulation();
+
+        this.model.populate(seed, 0.5);
+        long lastId = this.model.getId();
+        Generation before = this.model.getLastGeneration();
+        this.model.step(generations);
+        Generation after = this.model.getLastGeneration();
+        assertNotSame(before, after);
+        assertEquals(generations, after.getGenerationNumber());
+        assertEquals(lastId, after.getId());
+        assertArrayEquals(expected, this.model.getLastPopulation());
+        assertArrayEquals(expected, after.copyPopulation());
+
+        this.model.step(0);
+        assertSame(after, this.model.getLastGeneration());
+        assertThrows(IllegalArgumentException.class, ()->this.model.step(-1));
+    }
+
+    @Test
+    public void testBufferSwap()
+    {
+        this.model.createNewPopulation(70, 50);
+        this.model.populate(this.rng.nextLong(), 0.5);
+        int[][] previous = this.model.getLastPopulation();
+        assertArrayEquals(previous, this.model.getPopulation());
+        for (int i = 0; i < 10; i++)
+        {
+            int[][] expected = GenerationCalculatorTest.calculateReference(previous, LifeRule.CONWAY);
+            this.model.nextGeneration();
+            //the scratch buffer holds the previous generation, nothing is copied
+            assertArrayEquals(previous, this.model.getPopulation());
+            assertArrayEquals(expected, this.model.getLastPopulation());
+            previous = expected;
+        }
+    }
+
+    @Test
+    public void testSnapshotSharing()
+    {
+        this.model.createNewPopulation(640, 640);
+        //blinker
+        this.model.setPopulation(100, 100, true);
+        this.model.setPopulation(101, 100, true);
+        this.model.setPopulation(102, 100, true);
+        Generation first = this.model.getLastGeneration();
+        this.model.step(1);
+        assertEquals(1, this.model.getMetrics().getLong(ClassicLifeModel.SNAPSHOT_COPIED_TILE_METRIC));
+        Generation second = this.model.getLastGeneration();
+        assertTrue(first.isPopulationAlive(100, 100));
+        assertFalse(second.isPopulationAlive(100, 100));
+        assertTrue(second.isPopulationAlive(101, 99));
+        assertEquals(3, second.getPopulationCount());
+    }
+
+    @Test
+    public void testEngineMetrics()
+    {
+        TemporalBlockingEngine engine = new TemporalBlockingEngine();
+        engine.setBlockDepth(5);
+        this.model.setEngine(engine);
+        this.model.populate(this.rng.nextLong(), 0.5);
+        this.model.step(12);
+        assertEquals(5, this.model.getMetrics().getLong("engine.block.depth"));
+        assertEquals(3, this.model.getMetrics().getLong("engine.block.count"));
+
+        this.model.setEngine(new PackedGenerationEngine());
+        assertNull(this.model.getMetrics().get("engine.block.depth"));
+    }
+
+    @Test
+    public void testSetRule()
+    {
+        assertEquals(LifeRule.CONWAY, this.model.getRule());
+        this.model.createNewPopulation(70, 50);
+        this.model.populate(this.rng.nextLong(), 0.5);
+        this.model.setRule(LifeRule.HIGH_LIFE);
+        int[][] expected = GenerationCalculatorTest
+            .calculateReference(this.model.getLastPopulation(), LifeRule.HIGH_LIFE);
+        this.model.nextGeneration();
+        assertEquals(LifeRule.HIGH_LIFE, this.model.getRule());
+        assertArrayEquals(expected, this.model.getLastPopulation());
+    }
+
+    @Test
+    public void testRuleResetsCycle()
+    {
+        this.model.createNewPopulation(70, 50);
+        //blinker
+        this.model.fillRegion(10, 10, 3, 1, true);
+        this.model.step(4);
+        assertEquals(2, this.model.getCyclePeriod());
+        this.model.setRule(LifeRule.HIGH_LIFE);
+        assertEquals(0, this.model.getCyclePeriod());
+        assertEquals(-1, this.model.getCycleStart());
+    }
+
+    @Test
+    public void testGenerationHash()
+    {
+        this.model.createNewPopulation(70, 50);
+        this.model.populate(this.rng.nextLong(), 0.5);
+        for (int i = 0; i < 3; i++)
+        {
+            this.model.step(1 + this.rng.nextInt(10));
+            Generation generation = this.model.getLastGeneration();
+            assertEquals(PopulationHash.hash(generation.copyPackedPopulation()), generation.getHash());
+            assertEquals(generation.getHash(), this.model.getHash());
+        }
+        this.model.setPopulation(3, 3, !this.model.getLastGeneration().isPopulationAlive(3, 3));
+        assertEquals
+        (
+            PopulationHash.hash(this.model.getLastGeneration().copyPackedPopulation()),
+            this.model.getHash()
+        );
+    }
+
+    @Test
+    public void testCycleDetection()
+    {
+        this.model.createNewPopulation(40, 40);
+        this.model.step(3);
+        assertEquals(1, this.model.getCyclePeriod());
+        assertEquals(0, this.model.getCycleStart());
+
+        //blinker
+        this.model.setPopulation(10, 10, true);
+        this.model.setPopulation(11, 10, true);
+        this.model.setPopulation(12, 10, true);
+        assertEquals(0, this.model.getCyclePeriod());
+        assertEquals(-1, this.model.getCycleStart());
+        assertNull(this.model.getMetrics().get(ClassicLifeModel.CYCLE_PERIOD_METRIC));
+        this.model.step(10);
+        assertEquals(2, this.model.getCyclePeriod());
+        assertEquals(3, this.model.getCycleStart());
+        assertEquals(2, this.model.getMetrics().getLong(ClassicLifeModel.CYCLE_PERIOD_METRIC));
+        assertEquals(3, this.model.getMetrics().getLong(ClassicLifeModel.CYCLE_START_METRIC));
+    }
+
+    @Test
+    public void testCycleDetectionWithoutHashTracking()
+    {
+        this.model.setEngine(new HashLifeEngine());
+        this.model.createNewPopulation(40, 40);
+        this.model.setPopulation(10, 10, true);
+        this.model.setPopulation(11, 10, true);
+        this.model.setPopulation(12, 10, true);
+        this.model.step(1);
+        assertEquals(0, this.model.getCyclePeriod());
+        this.model.step(1);
+        assertEquals(2, this.model.getCyclePeriod());
+        assertEquals(0, this.model.getCycleStart());
+    }
+
+    @Test
+    public void testCycleHistorySize()
+    {
+        this.model.setCycleHistorySize(1);
+        assertEquals(1, this.model.getCycleHistorySize());
+        this.model.createNewPopulation(40, 40);
+        this.model.setPopulation(10, 10, true);
+        this.model.setPopulation(11, 10, true);
+        this.model.setPopulation(12, 10, true);
+        this.model.step(10);
+        //period 2 doesn't fit into the history
+        assertEquals(0, this.model.getCyclePeriod());
+        assertThrows(IllegalArgumentException.class, ()->this.model.setCycleHistorySize(0));
+    }
+
+    @Test
+    public void testAutoStop()
+    {
+        this.model.createNewPopulation(40, 40);
+        //block
+        this.model.setPopulation(10, 10, true);
+        this.model.setPopulation(11, 10, true);
+        this.model.setPopulation(10, 11, true);
+        this.model.setPopulation(11, 11, true);
+        this.model.setAutoStop(true);
+        assertTrue(this.model.isAutoStop());
+        nextGeneration();
+        assertEquals(1, this.model.getCyclePeriod());
+        assertFalse(this.model.isRunning());
+        verify(this.generationFutureMock).cancel(false);
+    }
+
+    @Test
+    public void testAutoStopAppliesQueuedEdits()
+    {
+        this.model.createNewPopulation(40, 40);
+        PackedGenerationEngine packedEngine = new PackedGenerationEngine();
+        //the edit is queued while the generation that enters the cycle is calculated
+        this.model.setEngine((src, dest, generations, rule)->
+        {
+            this.model.setPopulation(10, 10, true);
+            return packedEngine.calculate(src, dest, generations, rule);
+        });
+        this.model.setAutoStop(true);
+        nextGeneration();
+        assertFalse(this.model.isRunning());
+        Generation generation = this.model.getLastGeneration();
+        assertEquals(1, generation.getGenerationNumber());
+        assertTrue(generation.isPopulationAlive(10, 10));
+        assertEquals(PopulationHash.hash(generation.copyPackedPopulation()), generation.getHash());
+        assertEquals(0, this.model.getCyclePeriod());
+        assertEquals(1, this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC));
+    }
+
+    @Test
+    public void testComputeAhead()
+    throws InterruptedException
+    {
+        long seed = this.rng.nextLong();
+        this.model.createNewPopulation(70, 50);
+        this.model.populate(seed, 0.5);
+        long[] expected = new long[5];
+        for (int i = 0; i < expected.length; i++)
+        {
+            this.model.step(1);
+            expected[i] = this.model.getHash();
+        }
+        int[][] expectedPopulation = GenerationCalculatorTest
+            .calculateReference(this.model.getLastPopulation(), LifeRule.CONWAY);
+
+        this.model.populate(seed, 0.5);
+        this.model.setComputeAheadDepth(3);
+        assertEquals(3, this.model.getMetrics().getLong(ClassicLifeModel.AHEAD_DEPTH_METRIC));
+        Runnable tick = start();
+        //3 buffered generations and a generation that waits for a free slot
+        while (this.model.getGenerationNumber() < 4) Thread.sleep(1);
+        for (int i = 0; i < 3; i++)
+        {
+            tick.run();
+            assertEquals(i + 1, this.model.getLastGeneration().getGenerationNumber());
+            assertEquals(expected[i], this.model.getLastGeneration().getHash());
+        }
+
+        //calculated generations are dropped
+        this.model.stop();
+        assertEquals(3, this.model.getGenerationNumber());
+        assertEquals(expected[2], this.model.getHash());
+        this.model.step(2);
+        assertEquals(expected[4], this.model.getLastGeneration().getHash());
+        this.model.step(1);
+        assertArrayEquals(expectedPopulation, this.model.getLastPopulation());
+        assertEquals(0, this.model.getMetrics().getLong(ClassicLifeModel.AHEAD_UNDERRUN_METRIC));
+        assertThrows(IllegalArgumentException.class, ()->this.model.setComputeAheadDepth(-1));
+    }
+
+    @Test
+    public void testComputeAheadUnderrun()
+    throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        PackedGenerationEngine packedEngine = new PackedGenerationEngine();
+        this.model.setEngine((src, dest, generations, rule)->
+        {
+            try
+            {
+                latch.await();
+            }
+            catch (InterruptedException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            return packedEngine.calculate(src, dest, generations, rule);
+        });
+        this.model.setComputeAheadDepth(2);
+        Runnable tick = start();
+        tick.run();
+        tick.run();
+        assertEquals(2, this.model.getMetrics().getLong(ClassicLifeModel.AHEAD_UNDERRUN_METRIC));
+        assertEquals(0, this.model.getLastGeneration().getGenerationNumber());
+
+        latch.countDown();
+        while (this.model.getGenerationNumber() < 3) Thread.sleep(1);
+        tick.run();
+        assertEquals(1, this.model.getLastGeneration().getGenerationNumber());
+        this.model.stop();
+        assertEquals(1, this.model.getGenerationNumber());
+    }
+
+    @Test
+    public void testComputeAheadEditsSurviveStop()
+    throws InterruptedException
+    {
+        this.model.createNewPopulation(70, 50);
+        this.model.setComputeAheadDepth(3);
+        Runnable tick = start();
+        //block
+        this.model.fillRegion(40, 40, 2, 2, true);
+        this.model.setPopulation(10, 10, true);
+        while (this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC) < 2)
+        {
+            tick.run();
+            Thread.sleep(1);
+        }
+
+        //the model is rewound to the published generation, the edits are applied again
+        long published = this.model.getLastGeneration().getGenerationNumber();
+        this.model.stop();
+        assertEquals(published, this.model.getGenerationNumber());
+        Generation generation = this.model.getLastGeneration();
+        assertEquals(published, generation.getGenerationNumber());
+        assertTrue(generation.isPopulationAlive(40, 40));
+        assertTrue(generation.isPopulationAlive(41, 41));
+        assertTrue(generation.isPopulationAlive(10, 10));
+        assertEquals(5, generation.getPopulationCount());
+        assertEquals(PopulationHash.hash(generation.copyPackedPopulation()), generation.getHash());
+        assertEquals(2, this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC));
+
+        //the lone cell dies
+        this.model.step(1);
+        assertEquals(4, this.model.getLastGeneration().getPopulationCount());
+    }
+
+    @Test
+    public void testEditsWhileRunning()
+    {
+        this.model.createNewPopulation(70, 50);
+        Runnable tick = start();
+        long id = this.model.getId();
+        //blinker
+        this.model.setPopulation(10, 10, true);
+        this.model.setPopulation(11, 10, true);
+        this.model.setPopulation(12, 10, true);
+        assertEquals(0, this.model.getLastGeneration().getPopulationCount());
+        assertEquals(id, this.model.getId());
+
+        tick.run();
+        assertTrue(this.model.isRunning());
+        verify(this.executorMock, times(1)).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+        verify(this.generationFutureMock, never()).cancel(anyBoolean());
+        assertNotEquals(id, this.model.getId());
+        Generation generation = this.model.getLastGeneration();
+        assertEquals(1, generation.getGenerationNumber());
+        assertTrue(generation.isPopulationAlive(11, 9));
+        assertTrue(generation.isPopulationAlive(11, 11));
+        assertEquals(3, generation.getPopulationCount());
+        assertEquals(PopulationHash.hash(generation.copyPackedPopulation()), generation.getHash());
+        assertEquals(3, this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC));
+        long latency = this.model.getMetrics().getLong(ClassicLifeModel.EDIT_LATENCY_METRIC);
+        assertTrue(latency > 0);
+        assertTrue(this.model.getMetrics().getLong(ClassicLifeModel.EDIT_LATENCY_MAX_METRIC) >= latency);
+
+        //pending edits are applied when the model is stopped
+        this.model.setPopulation(40, 40, true);
+        this.model.stop();
+        assertTrue(this.model.getLastGeneration().isPopulationAlive(40, 40));
+        assertEquals(4, this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC));
+        assertThrows(IllegalArgumentException.class, ()->this.model.setPopulation(70, 0, true));
+    }
+
+    @Test
+    public void testRegionEdits()
+    {
+        this.model.createNewPopulation(200, 100);
+        long id = this.model.getId();
+        Generation generation = this.model.getLastGeneration();
+        this.model.fillRegion(10, 10, 100, 20, true);
+        assertEquals(id + 1, this.model.getId());
+        assertNotSame(generation, this.model.getLastGeneration());
+        assertEquals(2000, this.model.getLastGeneration().getPopulationCount());
+
+        generation = this.model.getLastGeneration();
+        this.model.clearRegion(10, 10, 50, 20);
+        assertEquals(id + 2, this.model.getId());
+        assertEquals(1000, this.model.getLastGeneration().getPopulationCount());
+        assertFalse(this.model.getLastGeneration().isPopulationAlive(59, 29));
+        assertTrue(this.model.getLastGeneration().isPopulationAlive(60, 29));
+
+        this.model.stamp(generation, 100, 50, StampMode.XOR);
+        assertEquals(id + 3, this.model.getId());
+        Generation stamped = this.model.getLastGeneration();
+        assertEquals(1000 + 90 * 20, stamped.getPopulationCount());
+        assertTrue(stamped.isPopulationAlive(110, 60));
+        //clipped
+        assertTrue(stamped.isPopulationAlive(199, 79));
+        assertFalse(stamped.isPopulationAlive(0, 79));
+        assertEquals(PopulationHash.hash(stamped.copyPackedPopulation()), stamped.getHash());
+
+        this.model.randomizeRegion(0, 0, 200, 100, 1, 0);
+        assertEquals(id + 4, this.model.getId());
+        assertEquals(0, this.model.getLastGeneration().getPopulationCount());
+        assertThrows(IllegalArgumentException.class, ()->this.model.fillRegion(0, 0, -1, 1, true));
+        assertThrows(IllegalArgumentException.class, ()->this.model.randomizeRegion(0, 0, 1, 1, 1, -0.1));
+        assertEquals(id + 4, this.model.getId());
+    }
+
+    @Test
+    public void testRegionEditsWhileRunning()
+    {
+        this.model.createNewPopulation(70, 50);
+        Runnable tick = start();
+        long id = this.model.getId();
+        this.model.fillRegion(10, 10, 3, 1, true);
+        this.model.setPopulation(40, 40, true);
+        assertEquals(0, this.model.getLastGeneration().getPopulationCount());
+        assertEquals(id, this.model.getId());
+
+        //pending edits are applied at once
+        tick.run();
+        assertEquals(id + 1, this.model.getId());
+        Generation generation = this.model.getLastGeneration();
+        assertEquals(1, generation.getGenerationNumber());
+        assertTrue(generation.isPopulationAlive(11, 9));
+        assertTrue(generation.isPopulationAlive(11, 11));
+        assertEquals(3, generation.getPopulationCount());
+        assertEquals(PopulationHash.hash(generation.copyPackedPopulation()), generation.getHash());
+        assertEquals(2, this.model.getMetrics().getLong(ClassicLifeModel.EDIT_COUNT_METRIC));
+        this.model.stop();
+    }
+
+    @Test
+    public void testTurbo()
+    throws InterruptedException
+    {
+        this.model.createNewPopulation(70, 50);
+        //blinker
+        this.model.fillRegion(10, 10, 3, 1, true);
+        this.model.setTurbo(true);
+        assertTrue(this.model.isTurbo());
+        this.model.start();
+        assertTrue(this.model.isRunning());
+        verify(this.executorMock, never()).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+        while (this.model.getLastGeneration().getGenerationNumber() < 100) Thread.sleep(1);
+        //block
+        this.model.fillRegion(40, 40, 2, 2, true);
+        this.model.stop();
+
+        assertFalse(this.model.isRunning());
+        long number = this.model.getGenerationNumber();
+        Generation generation = this.model.getLastGeneration();
+        assertEquals(number, generation.getGenerationNumber());
+        assertTrue(this.model.getMetrics().getLong(ClassicLifeModel.TURBO_BATCH_METRIC) > 0);
+        assertEquals(number % 2 == 0, generation.isPopulationAlive(10, 10));
+        assertEquals(number % 2 != 0, generation.isPopulationAlive(11, 9));
+        assertTrue(generation.isPopulationAlive(41, 41));
+        assertEquals(7, generation.getPopulationCount());
+
+        //turbo mode is restarted by modifications of a running model
+        this.model.start();
+        this.model.setTurbo(false);
+        assertTrue(this.model.isRunning());
+        verify(this.executorMock).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+        this.model.stop();
+    }
+
+    @Test
+    public void testTurboAutoStop()
+    throws InterruptedException
+    {
+        this.model.createNewPopulation(70, 50);
+        this.model.fillRegion(10, 10, 3, 1, true);
+        this.model.setAutoStop(true);
+        this.model.setTurbo(true);
+        this.model.start();
+        while (this.model.isRunning()) Thread.sleep(1);
+        assertEquals(2, this.model.getCyclePeriod());
+        assertEquals(this.model.getGenerationNumber(), this.model.getLastGeneration().getGenerationNumber());
+        //stopped models can be restarted, the stopped loop doesn't end the new one
+        this.model.setAutoStop(false);
+        long number = this.model.getGenerationNumber();
+        this.model.start();
+        while (this.model.getLastGeneration().getGenerationNumber() < number + 100) Thread.sleep(1);
+        assertTrue(this.model.isRunning());
+        this.model.stop();
+        assertFalse(this.model.isRunning());
+    }
+
     @Test
     public void testStart()
     {
@@ -235,6 +745,90 @@ public class ClassicLifeModelTest
         verify(this.generationFutureMock).get();
     }
 
+    @Test
+    public void testStopWaitsForTick()
+    throws InterruptedException
+    {
+        this.model.createNewPopulation(70, 50);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable tick = startBlockingTick(entered, release);
+        Thread ticker = new Thread(tick);
+        ticker.start();
+        entered.await();
+
+        Thread stopper = new Thread(this.model::stop);
+        stopper.start();
+        stopper.join(200);
+        assertTrue(stopper.isAlive());
+        assertEquals(0, this.model.getGenerationNumber());
+        release.countDown();
+        stopper.join();
+        ticker.join();
+        assertFalse(this.model.isRunning());
+        assertEquals(1, this.model.getGenerationNumber());
+        assertEquals(1, this.model.getLastGeneration().getGenerationNumber());
+
+        //late ticks of a stopped clock do nothing
+        tick.run();
+        assertEquals(1, this.model.getGenerationNumber());
+        this.model.start();
+        tick.run();
+        assertEquals(1, this.model.getGenerationNumber());
+        this.model.stop();
+    }
+
+    @Test
+    public void testStepWaitsForTick()
+    throws InterruptedException
+    {
+        this.model.createNewPopulation(70, 50);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable tick = startBlockingTick(entered, release);
+        Thread ticker = new Thread(tick);
+        ticker.start();
+        entered.await();
+
+        //the step must not calculate the same buffers as the running tick
+        Thread stepper = new Thread(()->this.model.step(2));
+        stepper.start();
+        stepper.join(200);
+        assertTrue(stepper.isAlive());
+        assertEquals(0, this.model.getGenerationNumber());
+        release.countDown();
+        stepper.join();
+        ticker.join();
+        assertEquals(3, this.model.getGenerationNumber());
+        assertEquals(3, this.model.getLastGeneration().getGenerationNumber());
+        assertTrue(this.model.isRunning());
+
+        //the tick of the clock that was stopped by the step does nothing
+        tick.run();
+        assertEquals(3, this.model.getGenerationNumber());
+        this.model.stop();
+    }
+
+    //the first calculation of the engine blocks until it is released
+    private Runnable startBlockingTick(CountDownLatch entered, CountDownLatch release)
+    {
+        PackedGenerationEngine packedEngine = new PackedGenerationEngine();
+        this.model.setEngine((src, dest, generations, rule)->
+        {
+            entered.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            return packedEngine.calculate(src, dest, generations, rule);
+        });
+        return start();
+    }
+
     @Test
     public void testExternalExecutorClose()
     {
@@ -367,7 +961,7 @@ public class ClassicLifeModelTest
         when(gen.getHeight()).thenReturn(height);
         when(gen.getId()).thenReturn(id);
         when(gen.getGenerationNumber()).thenReturn(generationNumber);
-        when(gen.copyPopulation()).thenReturn(pop);
+        when(gen.copyPackedPopulation()).thenReturn(PackedPopulation.fromArray(pop));
 
         this.model.setGeneration(gen);
         assertEquals(width, this.model.getWidth());
@@ -470,4 +1064,12 @@ public class ClassicLifeModelTest
         nextGeneration(1);
     }
 
+    private Runnable start()
+    {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        this.model.start();
+        verify(this.executorMock).scheduleAtFixedRate(captor.capture(), anyLong(), anyLong(), any());
+        return captor.getValue();
+    }
+
 }
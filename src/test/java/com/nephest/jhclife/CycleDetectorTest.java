@@ -0,0 +1,78 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CycleDetectorTest
+{
+
+    @Test
+    public void testPeriod()
+    {
+        CycleDetector detector = new CycleDetector(8);
+        long[] hashes = new long[]{10, 11, 12, 13, 14, 12, 13, 14};
+        for (int i = 0; i < 5; i++) assertFalse(detector.add(i, hashes[i]));
+        assertFalse(detector.isCycleDetected());
+        assertEquals(0, detector.getPeriod());
+        assertEquals(-1, detector.getCycleStart());
+
+        assertTrue(detector.add(5, hashes[5]));
+        assertEquals(3, detector.getPeriod());
+        assertEquals(2, detector.getCycleStart());
+        //the cycle is reported once
+        assertFalse(detector.add(6, hashes[6]));
+        assertEquals(3, detector.getPeriod());
+
+        detector.reset();
+        assertFalse(detector.isCycleDetected());
+        assertFalse(detector.add(6, hashes[6]));
+    }
+
+    @Test
+    public void testBoundedHistory()
+    {
+        CycleDetector detector = new CycleDetector(3);
+        for (int i = 0; i < 10; i++) assertFalse(detector.add(i, i % 4));
+        assertEquals(0, detector.getPeriod());
+
+        detector = new CycleDetector(4);
+        for (int i = 0; i < 4; i++) assertFalse(detector.add(i, i % 4));
+        assertTrue(detector.add(4, 0));
+        assertEquals(4, detector.getPeriod());
+        assertEquals(0, detector.getCycleStart());
+    }
+
+    @Test
+    public void testInvalidHistorySize()
+    {
+        assertThrows(IllegalArgumentException.class, ()->new CycleDetector(0));
+    }
+
+}
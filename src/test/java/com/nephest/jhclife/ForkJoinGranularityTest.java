@@ -0,0 +1,126 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForkJoinGranularityTest
+{
+
+    @Test
+    public void testSingleThreadIsSequential()
+    {
+        ForkJoinGranularity granularity = new ForkJoinGranularity(1);
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 2; i++)
+            assertTrue(granularity.isSequential(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, ()->new ForkJoinGranularity(0));
+    }
+
+    @Test
+    public void testThreshold()
+    {
+        ForkJoinGranularity granularity = new ForkJoinGranularity(4);
+        granularity.setTuning(false);
+        long threshold = granularity.getSequentialThreshold();
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 2; i++)
+        {
+            assertTrue(granularity.isSequential(threshold - 1));
+            assertFalse(granularity.isSequential(threshold));
+        }
+        assertThrows(IllegalArgumentException.class, ()->granularity.setSequentialThreshold(-1));
+    }
+
+    @Test
+    public void testProbe()
+    {
+        ForkJoinGranularity granularity = new ForkJoinGranularity(4);
+        long threshold = granularity.getSequentialThreshold();
+        int probes = 0;
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 3; i++)
+        {
+            assertTrue(granularity.isSequential(threshold / 2));
+            if (granularity.isProbe(threshold / 2)) probes++;
+        }
+        assertEquals(3, probes);
+
+        //boards far from the threshold are never probed
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 3; i++)
+        {
+            assertFalse(granularity.isProbe(0));
+            assertFalse(granularity.isProbe(threshold / ForkJoinGranularity.PROBE_RANGE - 1));
+            assertFalse(granularity.isProbe(threshold * ForkJoinGranularity.PROBE_RANGE * 2));
+        }
+        granularity.setTuning(false);
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 3; i++)
+            assertFalse(granularity.isProbe(threshold));
+        assertFalse(new ForkJoinGranularity(1).isProbe(threshold));
+    }
+
+    @Test
+    public void testSplit()
+    {
+        ForkJoinGranularity granularity = new ForkJoinGranularity(2);
+        long rowCells = 64L * 64 * 2;
+        //cost limit
+        assertEquals(ForkJoinGranularity.MIN_TASK_CELLS / rowCells, granularity.calculateSplit(rowCells * 16, 16));
+        //parallelism limit
+        int rows = 1000;
+        assertEquals(rows / (2 * ForkJoinGranularity.TASKS_PER_THREAD), granularity.calculateSplit(rowCells * 100 * rows, rows));
+        //tiny boards are a single task
+        assertEquals(10, granularity.calculateSplit(100, 10));
+        assertEquals(1, granularity.calculateSplit(0, 0));
+    }
+
+    @Test
+    public void testTuning()
+    {
+        ForkJoinGranularity granularity = new ForkJoinGranularity(4);
+        long cells = granularity.getSequentialThreshold() * 4;
+        //parallel calculation is slower
+        granularity.record(cells, 1, false, cells * 2);
+        assertEquals(ForkJoinGranularity.DEFAULT_SEQUENTIAL_THRESHOLD, granularity.getSequentialThreshold());
+        granularity.record(cells, 1, true, cells);
+        assertEquals(cells * 2, granularity.getSequentialThreshold());
+        assertTrue(granularity.isSequential(cells));
+
+        //parallel calculation is faster
+        for (int i = 0; i < 100; i++) granularity.record(cells, 10, false, cells);
+        assertEquals(cells, granularity.getSequentialThreshold());
+        assertFalse(granularity.isSequential(cells));
+
+        //new board size
+        granularity.record(cells * 4, 1, true, cells);
+        assertEquals(cells, granularity.getSequentialThreshold());
+
+        granularity.setTuning(false);
+        granularity.record(cells * 4, 1, false, cells * 1000);
+        assertEquals(cells, granularity.getSequentialThreshold());
+    }
+
+}
@@ -0,0 +1,181 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GenerationCalculatorTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testWordBoundaries()
+    {
+        int[] dimensions = new int[]{1, 2, 3, 63, 64, 65, 127, 128, 130};
+        for (int width : dimensions)
+        {
+            for (int height : new int[]{1, 2, 3, 17})
+            {
+                testAgainstReference(width, height, 0.4);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomDimensions()
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            testAgainstReference(1 + rng.nextInt(300), 1 + rng.nextInt(300), rng.nextDouble());
+        }
+    }
+
+    @Test
+    public void testRules()
+    {
+        LifeRule[] rules = new LifeRule[]
+        {
+            LifeRule.HIGH_LIFE,
+            LifeRule.DAY_AND_NIGHT,
+            LifeRule.SEEDS,
+            LifeRule.parse("B0/S8"),
+            LifeRule.parse("B012345678/S")
+        };
+        for (LifeRule rule : rules)
+        {
+            for (int width : new int[]{1, 63, 64, 65, 200})
+            {
+                testAgainstReference(width, 1 + rng.nextInt(100), rng.nextDouble(), rule);
+            }
+        }
+    }
+
+    @Test
+    public void testSplit()
+    {
+        int width = 130;
+        int height = 64 * 9 + 5;
+        PackedPopulation src = new PackedPopulation(width, height);
+        src.randomize(0, 0, width, height, rng.nextLong(), 0.4);
+        PackedPopulation expected = new PackedPopulation(width, height);
+        ForkJoinPool.commonPool().invoke(new GenerationCalculator(src, expected));
+        for (int split : new int[]{1, 2, 3, 10, 100})
+        {
+            PackedPopulation dest = new PackedPopulation(width, height);
+            ForkJoinPool.commonPool().invoke
+                (new GenerationCalculator(src, dest, null, new ScalarGenerationKernel(), LifeRule.CONWAY, split));
+            HashLifeEngineTest.assertPopulationEquals(expected, dest);
+        }
+        assertThrows
+        (
+            IllegalArgumentException.class,
+            ()->new GenerationCalculator(src, src, null, new ScalarGenerationKernel(), LifeRule.CONWAY, 0)
+        );
+    }
+
+    private void testAgainstReference(int width, int height, double probability)
+    {
+        testAgainstReference(width, height, probability, LifeRule.CONWAY);
+    }
+
+    private void testAgainstReference(int width, int height, double probability, LifeRule rule)
+    {
+        int[][] pop = new int[width][height];
+        for (int col = 0; col < width; col++)
+            for (int row = 0; row < height; row++)
+                pop[col][row] = rng.nextDouble() < probability ? 1 : 0;
+
+        PackedPopulation src = PackedPopulation.fromArray(pop);
+        PackedPopulation dest = new PackedPopulation(width, height);
+        ForkJoinPool.commonPool()
+            .invoke(new GenerationCalculator(src, dest, null, new ScalarGenerationKernel(), rule));
+
+        int[][] expected = rule.isConway() ? calculateReference(pop) : calculateReference(pop, rule);
+        for (int col = 0; col < width; col++)
+        {
+            for (int row = 0; row < height; row++)
+            {
+                assertEquals
+                (
+                    expected[col][row] == 1,
+                    dest.isAlive(col, row),
+                    rule + ", width " + width + ", height " + height + ", x " + col + ", y " + row
+                );
+            }
+        }
+        assertEquals(Generation.countPopulation(expected), dest.countPopulation());
+    }
+
+    public static int[][] calculateReference(int[][] pop)
+    {
+        int width = pop.length;
+        int height = pop[0].length;
+        int[][] result = new int[width][height];
+        for (int x = 0; x < width; x++)
+        {
+            for (int y = 0; y < height; y++)
+            {
+                int count = -pop[x][y];
+                for (int dx = -1; dx <= 1; dx++)
+                    for (int dy = -1; dy <= 1; dy++)
+                        count += pop[Math.floorMod(x + dx, width)][Math.floorMod(y + dy, height)];
+                boolean alive = pop[x][y] == 1
+                    ? count == 2 || count == 3
+                    : count == 3;
+                result[x][y] = alive ? 1 : 0;
+            }
+        }
+        return result;
+    }
+
+    public static int[][] calculateReference(int[][] pop, LifeRule rule)
+    {
+        int width = pop.length;
+        int height = pop[0].length;
+        int[][] result = new int[width][height];
+        for (int x = 0; x < width; x++)
+        {
+            for (int y = 0; y < height; y++)
+            {
+                int count = -pop[x][y];
+                for (int dx = -1; dx <= 1; dx++)
+                    for (int dy = -1; dy <= 1; dy++)
+                        count += pop[Math.floorMod(x + dx, width)][Math.floorMod(y + dy, height)];
+                result[x][y] = rule.getNextState(pop[x][y], count);
+            }
+        }
+        return result;
+    }
+
+}
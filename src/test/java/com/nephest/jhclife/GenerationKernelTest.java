@@ -0,0 +1,133 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GenerationKernelTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testDefaultKernelMatchesScalarKernel()
+    {
+        testDefaultKernelMatchesScalarKernel(LifeRule.CONWAY);
+        testDefaultKernelMatchesScalarKernel(LifeRule.HIGH_LIFE);
+        testDefaultKernelMatchesScalarKernel(LifeRule.DAY_AND_NIGHT);
+        testDefaultKernelMatchesScalarKernel(LifeRule.parse("B0/S8"));
+    }
+
+    private void testDefaultKernelMatchesScalarKernel(LifeRule rule)
+    {
+        GenerationKernel kernel = GenerationKernel.createDefault();
+        //wide rows to cover the vector loop and the tail
+        int width = 1000 + rng.nextInt(2000);
+        int height = 50 + rng.nextInt(50);
+        PackedPopulation population = new PackedPopulation(width, height);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                population.setAlive(x, y, rng.nextInt(3) == 0);
+
+        for (int i = 0; i < 10; i++)
+        {
+            ActiveTiles scalarTiles = new ActiveTiles(width, height);
+            PackedPopulation scalar = new PackedPopulation(width, height);
+            new GenerationCalculator(population, scalar, scalarTiles, new ScalarGenerationKernel(), rule).invoke();
+            ActiveTiles tiles = new ActiveTiles(width, height);
+            PackedPopulation result = new PackedPopulation(width, height);
+            new GenerationCalculator(population, result, tiles, kernel, rule).invoke();
+
+            HashLifeEngineTest.assertPopulationEquals(scalar, result);
+            scalarTiles.update();
+            tiles.update();
+            assertEquals(scalarTiles.getActive(), tiles.getActive());
+            population = result;
+        }
+    }
+
+    @Test
+    public void testCounts()
+    {
+        int width = 1000 + rng.nextInt(2000);
+        int height = 50 + rng.nextInt(50);
+        PackedPopulation population = new PackedPopulation(width, height);
+        population.randomize(0, 0, width, height, rng.nextLong(), 0.3);
+        for (GenerationKernel kernel : new GenerationKernel[]{new ScalarGenerationKernel(), GenerationKernel.createDefault()})
+        {
+            PackedPopulation src = population.copy();
+            for (int i = 0; i < 10; i++)
+            {
+                PackedPopulation dest = new PackedPopulation(width, height);
+                GenerationCalculator calculator = new GenerationCalculator
+                    (src, dest, new ActiveTiles(width, height), kernel, LifeRule.CONWAY);
+                calculator.invoke();
+                long births = 0;
+                long deaths = 0;
+                for (int x = 0; x < width; x++)
+                {
+                    for (int y = 0; y < height; y++)
+                    {
+                        if (!src.isAlive(x, y) && dest.isAlive(x, y)) births++;
+                        if (src.isAlive(x, y) && !dest.isAlive(x, y)) deaths++;
+                    }
+                }
+                assertEquals(births, calculator.getBirthCount());
+                assertEquals(deaths, calculator.getDeathCount());
+                assertEquals(dest.countPopulation(), src.countPopulation() + births - deaths);
+                src = dest;
+            }
+        }
+    }
+
+    @Test
+    public void testScalarKernelIsForced()
+    {
+        String previous = System.getProperty(GenerationKernel.KERNEL_PROPERTY);
+        try
+        {
+            System.setProperty(GenerationKernel.KERNEL_PROPERTY, "scalar");
+            assertEquals(ScalarGenerationKernel.class, GenerationKernel.createDefault().getClass());
+        }
+        finally
+        {
+            if (previous == null)
+            {
+                System.clearProperty(GenerationKernel.KERNEL_PROPERTY);
+            }
+            else
+            {
+                System.setProperty(GenerationKernel.KERNEL_PROPERTY, previous);
+            }
+        }
+    }
+
+}
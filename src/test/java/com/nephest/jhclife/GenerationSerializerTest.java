@@ -0,0 +1,296 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GenerationSerializerTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testRoundTrip()
+    throws IOException
+    {
+        //several chunks, columns and rows cross the chunk borders
+        for (int[] size : new int[][]{{1000, 1000}, {3, 300000}, {300000, 3}, {65, 1}, {0, 10}})
+        {
+            PackedPopulation population = new PackedPopulation(size[0], size[1]);
+            population.randomize(0, 0, size[0], size[1], rng.nextLong(), 0.3);
+            Generation generation = new Generation(population, rng.nextLong(), rng.nextLong());
+
+            byte[] bytes = write(generation);
+            assertEquals(GenerationSerializer.ROW_VERSION, bytes[GenerationSerializer.VERSION_INDEX]);
+            assertRowsEqual(population, bytes);
+            assertGenerationEquals(generation, read(bytes));
+            //column-major saves are read too
+            assertGenerationEquals(generation, read(toBitSetBytes(generation)));
+            assertGenerationEquals(generation, read(toColumnBytes(generation, StandardGenerationCodec.DEFLATE)));
+        }
+    }
+
+    @Test
+    public void testCodecs()
+    throws IOException
+    {
+        for (double density : new double[]{0.5, 0.03, 0.0001, 0})
+        {
+            PackedPopulation population = new PackedPopulation(1000, 700);
+            population.randomize(0, 0, 1000, 700, rng.nextLong(), density);
+            Generation generation = new Generation(population, rng.nextLong(), rng.nextLong());
+            byte[] raw = write(generation);
+            for (StandardGenerationCodec codec : StandardGenerationCodec.values())
+            {
+                assertGenerationEquals(generation, read(toColumnBytes(generation, codec)));
+                byte[] bytes = write(generation, codec);
+                assertEquals(GenerationSerializer.ROW_VERSION, bytes[GenerationSerializer.VERSION_INDEX]);
+                assertEquals(codec.getId(), bytes[GenerationSerializer.CODEC_INDEX]);
+                //the codec is detected
+                assertGenerationEquals(generation, read(bytes));
+                if (density > 0 && density <= 0.0001 && codec != StandardGenerationCodec.RAW)
+                    assertTrue(bytes.length < raw.length / 10);
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownCodec()
+    throws IOException
+    {
+        Generation generation = new Generation(new PackedPopulation(10, 10), 1, 2);
+        GenerationCodec codec = new GenerationCodec()
+        {
+            @Override public byte getId() {return 100;}
+            @Override public OutputStream encode(OutputStream out) throws IOException {return StandardGenerationCodec.RAW.encode(out);}
+            @Override public InputStream decode(InputStream in) throws IOException {return StandardGenerationCodec.RAW.decode(in);}
+        };
+        byte[] bytes = write(generation, codec);
+        assertThrows(IllegalArgumentException.class, ()->read(bytes));
+        assertGenerationEquals
+        (
+            generation,
+            GenerationSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes)), List.of(codec))
+        );
+        assertGenerationEquals(generation, new GenerationTranslator(codec).fromByteArray(bytes));
+
+        bytes[GenerationSerializer.VERSION_INDEX] = GenerationSerializer.ROW_VERSION + 1;
+        assertThrows(IllegalArgumentException.class, ()->read(bytes));
+    }
+
+    @Test
+    public void testTranslator()
+    {
+        PackedPopulation population = new PackedPopulation(300, 200);
+        population.randomize(0, 0, 300, 200, rng.nextLong(), 0.1);
+        Generation generation = new Generation(population, 1, 2);
+        GenerationTranslator translator = new GenerationTranslator();
+        assertEquals(GenerationTranslator.DEFAULT_CODEC, translator.getCodec());
+        byte[] bytes = translator.toByteArray(generation);
+        assertEquals(GenerationTranslator.DEFAULT_CODEC.getId(), bytes[GenerationSerializer.CODEC_INDEX]);
+        assertGenerationEquals(generation, translator.fromByteArray(bytes));
+        //any standard codec can be read
+        assertGenerationEquals
+        (
+            generation,
+            translator.fromByteArray(new GenerationTranslator(StandardGenerationCodec.RUN_LENGTH).toByteArray(generation))
+        );
+    }
+
+    @Test
+    public void testZeroRows()
+    throws IOException
+    {
+        //empty rows in the middle are written, trailing words are not
+        PackedPopulation population = new PackedPopulation(2000, 2000);
+        population.setAlive(0, 0, true);
+        population.setAlive(1500, 1000, true);
+        Generation generation = new Generation(population, 1, 2);
+        byte[] bytes = write(generation);
+        assertRowsEqual(population, bytes);
+        assertEquals(GenerationSerializer.HEADER_SIZE + (1000L * 32 + 1500 / 64 + 1) * Long.BYTES, bytes.length);
+        HashLifeEngineTest.assertPopulationEquals(population, Generation.fromByteArray(bytes).getPopulation());
+        //legacy trailing bytes are trimmed too
+        assertEquals(Generation.HEADER_SIZE + (1500L * 2000 + 1000) / 8 + 1, toBitSetBytes(generation).length);
+
+        Generation empty = new Generation(new PackedPopulation(2000, 2000), 1, 2);
+        assertEquals(GenerationSerializer.HEADER_SIZE, write(empty).length);
+        assertEquals(0, Generation.fromByteArray(write(empty)).getPopulationCount());
+    }
+
+    @Test
+    public void testPartialWrites()
+    throws IOException
+    {
+        for (StandardGenerationCodec codec : StandardGenerationCodec.values()) testPartialWrites(codec);
+    }
+
+    private void testPartialWrites(GenerationCodec codec)
+    throws IOException
+    {
+        PackedPopulation population = new PackedPopulation(700, 900);
+        population.randomize(0, 0, 700, 900, rng.nextLong(), 0.5);
+        Generation generation = new Generation(population, 1, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        //a channel that accepts a few bytes at a time
+        GenerationSerializer.write(generation, new WritableByteChannel()
+        {
+            @Override
+            public int write(ByteBuffer src)
+            throws IOException
+            {
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + Math.min(part.remaining(), 1 + rng.nextInt(1000)));
+                int written = channel.write(part);
+                src.position(src.position() + written);
+                return written;
+            }
+
+            @Override public boolean isOpen() {return true;}
+            @Override public void close() {}
+        }, codec);
+        assertArrayEquals(write(generation, codec), out.toByteArray());
+    }
+
+    @Test
+    public void testInvalidInput()
+    {
+        byte[] bytes = Generation.toByteArray(new Generation(new PackedPopulation(10, 10), 1, 2));
+        assertThrows
+        (
+            IllegalArgumentException.class,
+            ()->Generation.fromByteArray(Arrays.copyOf(bytes, Generation.HEADER_SIZE - 1))
+        );
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, ()->Generation.fromByteArray(bytes));
+    }
+
+    private static byte[] write(Generation generation)
+    throws IOException
+    {
+        return write(generation, StandardGenerationCodec.RAW);
+    }
+
+    private static byte[] write(Generation generation, GenerationCodec codec)
+    throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GenerationSerializer.write(generation, Channels.newChannel(out), codec);
+        return out.toByteArray();
+    }
+
+    private static Generation read(byte[] bytes)
+    throws IOException
+    {
+        return GenerationSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    //words after the end of the save are dead
+    private static void assertRowsEqual(PackedPopulation population, byte[] bytes)
+    {
+        assertEquals(0, (bytes.length - GenerationSerializer.HEADER_SIZE) % Long.BYTES);
+        LongBuffer words = ByteBuffer.wrap(bytes, GenerationSerializer.HEADER_SIZE, bytes.length - GenerationSerializer.HEADER_SIZE)
+            .slice()
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .asLongBuffer();
+        for (int y = 0; y < population.getHeight(); y++)
+        {
+            for (int i = 0; i < population.getWordsPerRow(); i++)
+            {
+                int ix = y * population.getWordsPerRow() + i;
+                assertEquals(population.getWord(y, i), ix < words.limit() ? words.get(ix) : 0);
+            }
+        }
+    }
+
+    //version 2, column-major bits of the original encoder
+    static byte[] toColumnBytes(Generation generation, GenerationCodec codec)
+    throws IOException
+    {
+        byte[] legacy = toBitSetBytes(generation);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Generation.MAGIC_BYTES, 0, GenerationSerializer.VERSION_INDEX);
+        out.write(GenerationSerializer.CODEC_VERSION);
+        out.write(codec.getId());
+        out.write(legacy, Generation.MAGIC_BYTES.length, Generation.HEADER_SIZE - Generation.MAGIC_BYTES.length);
+        try (OutputStream cells = codec.encode(out))
+        {
+            cells.write(legacy, Generation.HEADER_SIZE, legacy.length - Generation.HEADER_SIZE);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertGenerationEquals(Generation expected, Generation actual)
+    {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getGenerationNumber(), actual.getGenerationNumber());
+        assertEquals(expected.getPopulationCount(), actual.getPopulationCount());
+        assertEquals(expected.getHash(), actual.getHash());
+        HashLifeEngineTest.assertPopulationEquals(expected.getPopulation(), actual.getPopulation());
+    }
+
+    //the original encoder
+    static byte[] toBitSetBytes(Generation generation)
+    {
+        BitSet bits = new BitSet();
+        int ix = 0;
+        for (int col = 0; col < generation.getWidth(); col++)
+            for (int row = 0; row < generation.getHeight(); row++, ix++)
+                if (generation.getPopulation().isAlive(col, row)) bits.set(ix);
+        byte[] population = bits.toByteArray();
+        ByteBuffer buf = ByteBuffer.allocate(Generation.HEADER_SIZE + population.length);
+        buf.put(Generation.MAGIC_BYTES);
+        buf.putLong(generation.getId());
+        buf.putLong(generation.getGenerationNumber());
+        buf.putInt(generation.getWidth());
+        buf.putInt(generation.getHeight());
+        buf.put(population);
+        return buf.array();
+    }
+
+}
@@ -29,6 +29,8 @@ package com.nephest.jhclife;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class GenerationTest
 {
@@ -53,6 +55,7 @@ public class GenerationTest
         assertEquals(original.getGenerationNumber(), copy.getGenerationNumber());
         assertEquals(original.getWidth(), copy.getWidth());
         assertEquals(original.getHeight(), copy.getHeight());
+        assertEquals(original.getHash(), copy.getHash());
 
         for (int col = 0; col < width; col++)
         {
@@ -67,6 +70,36 @@ public class GenerationTest
         }
     }
 
+    @Test
+    public void testDimensionsLimit()
+    {
+        //the cells are never read, so they are not allocated
+        Population population = new Population()
+        {
+            @Override public int getWidth() {return Integer.MAX_VALUE;}
+            @Override public int getHeight() {return 9;}
+            @Override public int getWordsPerRow() {return PackedPopulation.calculateWordCount(getWidth());}
+            @Override public boolean isAlive(int x, int y) {return false;}
+            @Override public void copyRow(int y, long[] dest, int offset) {}
+            @Override public long getWord(int y, int word) {return 0;}
+        };
+        Generation generation = new Generation(population, 0, 0, 0, 0);
+        assertThrows(IllegalArgumentException.class, ()->Generation.toByteArray(generation));
+    }
+
+    @Test
+    public void testHash()
+    {
+        int[][] pop = new int[70][30];
+        assertEquals(0, new Generation(pop, 0, 0).getHash());
+        pop[65][20] = 1;
+        long hash = new Generation(pop, 0, 0).getHash();
+        assertNotEquals(0, hash);
+        pop[65][20] = 0;
+        pop[20][65 % 30] = 1;
+        assertNotEquals(hash, new Generation(pop, 0, 0).getHash());
+    }
+
     @Test
     public void testPopulationCount()
     {
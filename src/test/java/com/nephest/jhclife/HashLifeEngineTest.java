@@ -0,0 +1,138 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashLifeEngineTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testAgainstPackedEngine()
+    {
+        HashLifeEngine hashLife = new HashLifeEngine();
+        int[][] dimensions = new int[][]{{1, 1}, {3, 5}, {8, 8}, {64, 32}, {100, 37}, {130, 70}};
+        long[] generations = new long[]{0, 1, 2, 3, 5, 8, 31, 64, 100};
+        for (int[] dimension : dimensions)
+        {
+            for (long gens : generations)
+            {
+                PackedPopulation src = randomPopulation(dimension[0], dimension[1]);
+                PackedPopulation expected = new PackedGenerationEngine()
+                    .calculate(src.copy(), new PackedPopulation(dimension[0], dimension[1]), gens);
+                PackedPopulation actual = hashLife
+                    .calculate(src.copy(), new PackedPopulation(dimension[0], dimension[1]), gens);
+                assertPopulationEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testRules()
+    {
+        HashLifeEngine hashLife = new HashLifeEngine();
+        LifeRule[] rules = new LifeRule[]
+        {
+            LifeRule.HIGH_LIFE,
+            LifeRule.DAY_AND_NIGHT,
+            LifeRule.SEEDS,
+            LifeRule.parse("B0/S8"),
+            LifeRule.parse("B01/S")
+        };
+        for (LifeRule rule : rules)
+        {
+            for (long gens : new long[]{1, 2, 7, 64})
+            {
+                PackedPopulation src = randomPopulation(70, 40);
+                PackedPopulation expected = new PackedGenerationEngine()
+                    .calculate(src.copy(), new PackedPopulation(70, 40), gens, rule);
+                PackedPopulation actual = hashLife
+                    .calculate(src.copy(), new PackedPopulation(70, 40), gens, rule);
+                assertPopulationEquals(expected, actual);
+            }
+            assertEquals(rule, hashLife.getRule());
+        }
+    }
+
+    @Test
+    public void testNodeLimit()
+    {
+        HashLifeEngine hashLife = new HashLifeEngine();
+        hashLife.setNodeLimit(10);
+        PackedPopulation src = randomPopulation(50, 50);
+        PackedPopulation expected = new PackedGenerationEngine()
+            .calculate(src.copy(), new PackedPopulation(50, 50), 20);
+        PackedPopulation result = src.copy();
+        for (int i = 0; i < 4; i++)
+            result = hashLife.calculate(result, new PackedPopulation(50, 50), 5);
+        assertPopulationEquals(expected, result);
+        assertTrue(hashLife.getNodeCount() > 10);
+    }
+
+    @Test
+    public void testGliderLongJump()
+    {
+        //a glider moves by 1 cell diagonally every 4 generations, so it returns home on a square torus
+        int size = 64;
+        PackedPopulation glider = new PackedPopulation(size, size);
+        glider.setAlive(1, 0, true);
+        glider.setAlive(2, 1, true);
+        glider.setAlive(0, 2, true);
+        glider.setAlive(1, 2, true);
+        glider.setAlive(2, 2, true);
+        long generations = 4L * size * 1_000_000L;
+        PackedPopulation result = new HashLifeEngine()
+            .calculate(glider.copy(), new PackedPopulation(size, size), generations);
+        assertPopulationEquals(glider, result);
+    }
+
+    private PackedPopulation randomPopulation(int width, int height)
+    {
+        PackedPopulation population = new PackedPopulation(width, height);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                population.setAlive(x, y, rng.nextBoolean());
+        return population;
+    }
+
+    public static void assertPopulationEquals(Population expected, Population actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int x = 0; x < expected.getWidth(); x++)
+            for (int y = 0; y < expected.getHeight(); y++)
+                assertEquals(expected.isAlive(x, y), actual.isAlive(x, y), "x " + x + ", y " + y);
+    }
+
+}
@@ -36,6 +36,7 @@ import org.mockito.InOrder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -44,6 +45,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.AdditionalMatchers.and;
@@ -120,6 +122,7 @@ public class LifePresenterTest
         verify(this.viewMock).updateZoomInfo(ZOOM_FORMAT);
 
         long period = 1_000_000_000 / LifePresenter.SPEED_INIT;
+        verify(this.modelMock).isTurbo();
         verify(this.modelMock).setGenerationLifeTime(period, TimeUnit.NANOSECONDS);
         verify(this.viewMock)
             .setSpeedInfo(String.format(SPEED_FORMAT, LifePresenter.SPEED_INIT));
@@ -165,6 +168,76 @@ public class LifePresenterTest
         assertFalse(evt.isConsumed());
     }
 
+    @Test
+    public void testDroppedFrames()
+    {
+        LifeMetrics metrics = new LifeMetrics();
+        when(modelMock.getMetrics()).thenReturn(metrics);
+        when(modelMock.isRunning()).thenReturn(true);
+        Generation first = mock(Generation.class);
+        Generation second = mock(Generation.class);
+        Generation third = mock(Generation.class);
+        when(first.getGenerationNumber()).thenReturn(1L);
+        when(second.getGenerationNumber()).thenReturn(2L);
+        when(third.getGenerationNumber()).thenReturn(5L);
+        when(modelMock.getLastGeneration()).thenReturn(first, second, third);
+
+        this.listener.readyForNextFrame();
+        this.listener.readyForNextFrame();
+        assertEquals(0, metrics.getLong(LifePresenter.DROPPED_FRAME_METRIC));
+        this.listener.readyForNextFrame();
+        assertEquals(2, metrics.getLong(LifePresenter.DROPPED_FRAME_METRIC));
+        verify(this.viewMock).render(third);
+    }
+
+    @Test
+    public void testTurboFramesAreNotDropped()
+    {
+        LifeMetrics metrics = new LifeMetrics();
+        when(modelMock.getMetrics()).thenReturn(metrics);
+        when(modelMock.isRunning()).thenReturn(true);
+        when(modelMock.isTurbo()).thenReturn(true);
+        Generation first = mock(Generation.class);
+        Generation second = mock(Generation.class);
+        when(first.getGenerationNumber()).thenReturn(1L);
+        when(second.getGenerationNumber()).thenReturn(1000L);
+        when(modelMock.getLastGeneration()).thenReturn(first, second);
+
+        this.listener.readyForNextFrame();
+        this.listener.readyForNextFrame();
+        assertEquals(0, metrics.getLong(LifePresenter.DROPPED_FRAME_METRIC));
+        verify(this.viewMock).render(second);
+    }
+
+    @Test
+    public void testRate()
+    throws InterruptedException
+    {
+        this.presenter.setRatePeriod(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, this.presenter.getRatePeriod(TimeUnit.MILLISECONDS));
+        Generation first = mock(Generation.class);
+        Generation second = mock(Generation.class);
+        Generation third = mock(Generation.class);
+        when(first.getGenerationNumber()).thenReturn(1L);
+        when(second.getGenerationNumber()).thenReturn(1001L);
+        when(third.getId()).thenReturn(1L);
+        when(third.getGenerationNumber()).thenReturn(5000L);
+        when(modelMock.getLastGeneration()).thenReturn(first, second, third);
+
+        this.listener.readyForNextFrame();
+        Thread.sleep(2);
+        this.listener.readyForNextFrame();
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(this.viewMock).setRateInfo(captor.capture());
+        double rate = Double.parseDouble(captor.getValue());
+        assertTrue(rate > 0 && rate <= 500_000);
+
+        //modified population restarts the rate window
+        Thread.sleep(2);
+        this.listener.readyForNextFrame();
+        verify(this.viewMock, times(1)).setRateInfo(any());
+    }
+
     @Test
     public void testMouseEventTogglePopulaitonDrag()
     {
@@ -610,6 +683,33 @@ public class LifePresenterTest
         testSpeedViewControl(LifePresenter.SPEED_INIT);
     }
 
+    @Test
+    public void testTurboToggle()
+    {
+        when(this.modelMock.isTurbo()).thenReturn(false);
+        this.listener.onTurboToggle();
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verifyRunInBackground(captor);
+        verify(this.modelMock).setTurbo(true);
+        verify(this.viewMock).setSpeedInfo(LifePresenter.TURBO_SPEED_INFO);
+
+        when(this.modelMock.isTurbo()).thenReturn(true);
+        this.listener.onTurboToggle();
+        verifyRunInBackground(captor, 2);
+        verify(this.modelMock).setTurbo(false);
+        verify(this.viewMock)
+            .setSpeedInfo(String.format(SPEED_FORMAT, this.presenter.getSpeed()));
+    }
+
+    @Test
+    public void testSpeedChangeLeavesTurbo()
+    {
+        when(this.modelMock.isTurbo()).thenReturn(true);
+        this.listener.onSpeedUp();
+        testSpeedViewControl(this.presenter.getSpeed() + LifePresenter.SPEED_STEP);
+        verify(this.modelMock).setTurbo(false);
+    }
+
     private void testSpeedViewControl(int targetSpeed)
     {
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
@@ -674,8 +774,9 @@ public class LifePresenterTest
         Runnable trigger,
         int times,
         File file,
-        byte[] translatedBytes
+        WritableByteChannel channel
     )
+    throws IOException
     {
         ArgumentCaptor<Consumer<List<File>>> consumerCaptor
             = ArgumentCaptor.forClass(Consumer.class);
@@ -688,11 +789,10 @@ public class LifePresenterTest
         Generation generation = mock(Generation.class);
         Generation nextGeneration = mock(Generation.class);
         when(modelMock.getLastGeneration()).thenReturn(generation).thenReturn(nextGeneration);
-        when(this.generationTranslatorMock.toByteArray(generation))
-            .thenReturn(translatedBytes);
 
         Path filePath = mock(Path.class);
         when(file.toPath()).thenReturn(filePath);
+        when(this.fileIOMock.newWritableChannel(filePath)).thenReturn(channel);
 
         //render the generation so we have something to save
         this.listener.readyForNextFrame();
@@ -720,23 +820,31 @@ public class LifePresenterTest
     throws IOException
     {
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
-        byte[] translatedBytes = new byte[]{1, 5, 7, 0, 2, 4, 2, 6, 1, 1};
+        WritableByteChannel channel = mock(WritableByteChannel.class);
         File file = mock(File.class);
         when(file.exists()).thenReturn(false);
 
-        testGenerationSave(captor, trigger, times, file, translatedBytes);
-        verify(this.fileIOMock, times(times)).write(file.toPath(), translatedBytes);
+        testGenerationSave(captor, trigger, times, file, channel);
+        verifyGenerationSaved(channel, times);
+    }
+
+    private void verifyGenerationSaved(WritableByteChannel channel, int times)
+    throws IOException
+    {
+        verify(this.generationTranslatorMock, times(times)).write(any(), eq(channel));
+        verify(channel, times(times)).close();
+        verify(this.generationTranslatorMock, never()).toByteArray(any());
     }
 
     private void testGenerationSaveExistingFile(Runnable trigger, int times)
     throws IOException
     {
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
-        byte[] translatedBytes = new byte[]{1, 5, 7, 0, 2, 4, 2, 6, 1, 1};
+        WritableByteChannel channel = mock(WritableByteChannel.class);
         File file = mock(File.class);
         when(file.exists()).thenReturn(true);
 
-        testGenerationSave(captor, trigger, times, file, translatedBytes);
+        testGenerationSave(captor, trigger, times, file, channel);
 
         //ask for the confirmation
         verify(this.viewMock, times(times)).fireConfirmationAlert
@@ -750,19 +858,21 @@ public class LifePresenterTest
         //save if confirmed by the user
         captor.getValue().run();
         verifyRunInBackground(captor, times == 0 ? 1 : 3);
-        verify(this.fileIOMock, times(times)).write(file.toPath(), translatedBytes);
+        verifyGenerationSaved(channel, times);
     }
 
     private void testGenerationSaveError(Runnable trigger, int times)
     throws IOException
     {
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
-        byte[] translatedBytes = new byte[]{1, 5, 7, 0, 2, 4, 2, 6, 1, 1};
+        WritableByteChannel channel = mock(WritableByteChannel.class);
         File file = mock(File.class);
         when(file.exists()).thenReturn(false);
-        doThrow(new IOException()).when(this.fileIOMock).write(any(), any());
+        doThrow(new IOException()).when(this.generationTranslatorMock).write(any(), any());
 
-        testGenerationSave(captor, trigger, times, file, translatedBytes);
+        testGenerationSave(captor, trigger, times, file, channel);
+        //the channel is closed even if the generation was not written
+        verify(channel, times(times)).close();
 
         verify(this.viewMock, times(times)).fireErrorAlert(eq("Generation saving failed"), any());
     }
@@ -808,7 +918,7 @@ public class LifePresenterTest
         ArgumentCaptor<Consumer<List<File>>> consumerCaptor
             = ArgumentCaptor.forClass(Consumer.class);
 
-        when(this.generationTranslatorMock.fromByteArray(any()))
+        when(this.generationTranslatorMock.read(any()))
             .thenReturn(generation);
         Path filePath = mock(Path.class);
         when(file.toPath()).thenReturn(filePath);
@@ -844,6 +954,8 @@ public class LifePresenterTest
         testGenerationLoad(captor, trigger, times, file, generation);
 
         verify(this.modelMock, times(times)).setGeneration(generation);
+        verify(this.fileIOMock, times(times)).newReadableChannel(file.toPath());
+        verify(this.fileIOMock, never()).readAllBytes(any());
     }
 
     private void testGenerationLoadNonExistingFile(Runnable trigger, int times)
@@ -866,7 +978,7 @@ public class LifePresenterTest
         Generation generation = mock(Generation.class);
         File file = mock(File.class);
         when(file.exists()).thenReturn(true);
-        doThrow(new IOException()).when(this.fileIOMock).readAllBytes(any());
+        doThrow(new IOException()).when(this.fileIOMock).newReadableChannel(any());
 
         testGenerationLoad(captor, trigger, times, file, generation);
 
@@ -0,0 +1,119 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LifeRuleTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testParse()
+    {
+        LifeRule rule = LifeRule.parse("b36/s23");
+        assertEquals(LifeRule.HIGH_LIFE, rule);
+        assertEquals("B36/S23", rule.toString());
+        assertEquals(1 << 3 | 1 << 6, rule.getBirthMask());
+        assertEquals(1 << 2 | 1 << 3, rule.getSurvivalMask());
+        //classic S/B notation
+        assertEquals(LifeRule.CONWAY, LifeRule.parse("23/3"));
+        assertEquals(LifeRule.SEEDS, LifeRule.parse("/2"));
+        assertTrue(LifeRule.parse(" B3/S23 ").isConway());
+        assertFalse(LifeRule.HIGH_LIFE.isConway());
+        assertTrue(LifeRule.parse("B0/S8").isBirthOnEmpty());
+        assertFalse(LifeRule.CONWAY.isBirthOnEmpty());
+    }
+
+    @Test
+    public void testInvalidRulestring()
+    {
+        for (String str : new String[]{"", "B9/S23", "B3S23", "B3/S2a", "Conway", "3/23/3"})
+            assertThrows(IllegalArgumentException.class, ()->LifeRule.parse(str), str);
+        assertThrows(IllegalArgumentException.class, ()->LifeRule.parse(null));
+    }
+
+    @Test
+    public void testFromString()
+    {
+        assertEquals(LifeRule.DAY_AND_NIGHT, LifeRule.fromString("Day & Night"));
+        assertEquals(LifeRule.HIGH_LIFE, LifeRule.fromString("B36/S23"));
+        assertThrows(IllegalArgumentException.class, ()->LifeRule.fromString("Unknown"));
+    }
+
+    @Test
+    public void testTable()
+    {
+        for (int count = 0; count <= LifeRule.NEIGHBOR_COUNT_MAX; count++)
+        {
+            assertEquals(count == 3 ? 1 : 0, LifeRule.CONWAY.getNextState(0, count));
+            assertEquals(count == 2 || count == 3 ? 1 : 0, LifeRule.CONWAY.getNextState(1, count));
+        }
+    }
+
+    @Test
+    public void testBitParallelStateMatchesTable()
+    {
+        for (int i = 0; i < 50; i++)
+        {
+            LifeRule rule = LifeRule.parse("B" + randomCounts() + "/S" + randomCounts());
+            long alive = 0, b0 = 0, b1 = 0, b2 = 0, b3 = 0;
+            //a bit per state and neighbor count
+            for (int bit = 0; bit < 2 * (LifeRule.NEIGHBOR_COUNT_MAX + 1); bit++)
+            {
+                int state = bit / (LifeRule.NEIGHBOR_COUNT_MAX + 1);
+                int count = bit % (LifeRule.NEIGHBOR_COUNT_MAX + 1);
+                alive |= (long) state << bit;
+                b0 |= (long) (count & 1) << bit;
+                b1 |= (long) (count >>> 1 & 1) << bit;
+                b2 |= (long) (count >>> 2 & 1) << bit;
+                b3 |= (long) (count >>> 3 & 1) << bit;
+            }
+            long next = rule.calculateNextState(alive, b0, b1, b2, b3);
+            for (int bit = 0; bit < 2 * (LifeRule.NEIGHBOR_COUNT_MAX + 1); bit++)
+            {
+                int state = bit / (LifeRule.NEIGHBOR_COUNT_MAX + 1);
+                int count = bit % (LifeRule.NEIGHBOR_COUNT_MAX + 1);
+                assertEquals(rule.getNextState(state, count), (int) (next >>> bit & 1), rule.toString());
+            }
+        }
+    }
+
+    private String randomCounts()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int count = 0; count <= LifeRule.NEIGHBOR_COUNT_MAX; count++)
+            if (rng.nextBoolean()) sb.append(count);
+        return sb.toString();
+    }
+
+}
@@ -98,7 +98,7 @@ public class MainMenuPresenterTest
         int height = 2;
         long seed = 3;
         double prob = 50.0;
-        stubView(width, height, seed, prob);
+        stubView(width, height, seed, prob, "HighLife");
 
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
         trigger.run();
@@ -107,6 +107,7 @@ public class MainMenuPresenterTest
         InOrder inOrder = inOrder(this.viewMock, this.modelMock, this.controllerMock);
         inOrder.verify(this.viewMock, times(times)).lock();
         inOrder.verify(this.modelMock, times(times)).stop();
+        inOrder.verify(this.modelMock, times(times)).setRule(LifeRule.HIGH_LIFE);
         inOrder.verify(this.modelMock, times(times)).createNewPopulation(width, height);
         inOrder.verify(this.modelMock, times(times)).populate(seed, prob / 100.0);
         inOrder.verify(this.controllerMock, times(times)).setViewType(MainView.ViewType.LIFE);
@@ -157,6 +158,32 @@ public class MainMenuPresenterTest
         );
     }
 
+    private void testNewGameInvalidRule(Runnable trigger, int times)
+    {
+        testNewGameInvalidParam
+        (
+            trigger, times,
+            1, 2, 3, 50, "B9/S23",
+            "Invalid rule",
+            "Rule must be a preset name or a B/S rulestring, e.g. B36/S23"
+        );
+    }
+
+    private void testNewGameInvalidParam
+    (
+        Runnable trigger,
+        int times,
+        int width,
+        int height,
+        long seed,
+        double prob,
+        String header,
+        String alert
+    )
+    {
+        testNewGameInvalidParam(trigger, times, width, height, seed, prob, "B3/S23", header, alert);
+    }
+
     private void testNewGameInvalidParam
     (
         Runnable trigger,
@@ -165,11 +192,12 @@ public class MainMenuPresenterTest
         int height,
         long seed,
         double prob,
+        String rule,
         String header,
         String alert
     )
     {
-        stubView(width, height, seed, prob);
+        stubView(width, height, seed, prob, rule);
         ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
         trigger.run();
         verifyRunInBackground(captor);
@@ -182,8 +210,9 @@ public class MainMenuPresenterTest
         verifyNoInteractions(this.modelMock);
     }
 
-    private void stubView(int width, int height, long seed, double prob)
+    private void stubView(int width, int height, long seed, double prob, String rule)
     {
+        when(this.viewMock.getRule()).thenReturn(rule);
         when(this.viewMock.getWidth()).thenReturn(width);
         when(this.viewMock.getHeight()).thenReturn(height);
         when(this.viewMock.getSeed()).thenReturn(seed);
@@ -201,6 +230,8 @@ public class MainMenuPresenterTest
         testNewGameInvalidProbabilityLow(trigger, times);
         init();
         testNewGameInvalidProbabilityHigh(trigger, times);
+        init();
+        testNewGameInvalidRule(trigger, times);
     }
 
     @Test
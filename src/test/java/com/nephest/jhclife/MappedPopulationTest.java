@@ -0,0 +1,207 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import com.nephest.jhclife.io.StandardFileIO;
+import com.nephest.jhclife.pattern.PatternFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedPopulationTest
+{
+
+    private final Random rng = new Random();
+
+    @TempDir
+    public Path dir;
+
+    @Test
+    public void testMapping()
+    throws IOException
+    {
+        for (int[] size : new int[][]{{300, 200}, {3, 1001}, {1001, 3}, {0, 5}})
+        {
+            PackedPopulation population = new PackedPopulation(size[0], size[1]);
+            population.randomize(0, 0, size[0], size[1], rng.nextLong(), 0.3);
+            Generation generation = new Generation(population, 1, 2);
+            Path rows = save(generation, StandardGenerationCodec.RAW);
+            Path columns = saveLegacy(generation);
+
+            //the mapping outlives the channel
+            Generation mappedRows = map(rows);
+            assertTrue(mappedRows.getPopulation() instanceof MappedRowPopulation);
+            assertEquals(1, mappedRows.getId());
+            assertEquals(2, mappedRows.getGenerationNumber());
+            assertGenerationEquals(generation, mappedRows);
+            Generation mappedColumns = map(columns);
+            assertTrue(mappedColumns.getPopulation() instanceof MappedPopulation);
+            assertGenerationEquals(generation, mappedColumns);
+
+            //chunk borders are crossed by columns and rows
+            try (FileChannel channel = FileChannel.open(columns))
+            {
+                long begin = Generation.HEADER_SIZE;
+                MappedPopulation chunked = new MappedPopulation
+                    (channel, begin, channel.size() - begin, size[0], size[1], 13);
+                HashLifeEngineTest.assertPopulationEquals(population, chunked);
+                HashLifeEngineTest.assertPopulationEquals(population, chunked.toPackedPopulation());
+                assertEquals(population.countPopulation(), chunked.countPopulation());
+            }
+            try (FileChannel channel = FileChannel.open(rows))
+            {
+                long begin = GenerationSerializer.HEADER_SIZE;
+                int rowBytes = population.getWordsPerRow() * Long.BYTES;
+                MappedRowPopulation chunked = new MappedRowPopulation
+                    (channel, begin, channel.size() - begin, size[0], size[1], rowBytes * 3 + 5);
+                HashLifeEngineTest.assertPopulationEquals(population, chunked);
+                HashLifeEngineTest.assertPopulationEquals(population, chunked.toPackedPopulation());
+                assertEquals(population.countPopulation(), chunked.countPopulation());
+                if (size[0] > 0 && size[1] > 3) assertTrue(chunked.getChunkCount() > 1);
+            }
+        }
+    }
+
+    @Test
+    public void testTrailingCells()
+    throws IOException
+    {
+        //trailing dead cells are not stored
+        PackedPopulation population = new PackedPopulation(1000, 1000);
+        population.setAlive(5, 5, true);
+        Generation generation = new Generation(population, 1, 2);
+        Generation mappedColumns = map(saveLegacy(generation));
+        assertTrue(((MappedPopulation) mappedColumns.getPopulation()).getLength() < 1000);
+        assertGenerationEquals(generation, mappedColumns);
+
+        Path rows = save(generation, StandardGenerationCodec.RAW);
+        assertTrue(Files.size(rows) < 1000);
+        assertGenerationEquals(generation, map(rows));
+    }
+
+    @Test
+    public void testUnmappable()
+    throws IOException
+    {
+        PackedPopulation population = new PackedPopulation(100, 100);
+        population.randomize(0, 0, 100, 100, rng.nextLong(), 0.3);
+        Generation generation = new Generation(population, 1, 2);
+        GenerationTranslator translator = new GenerationTranslator();
+
+        //compressed saves and patterns are read from the channel
+        Path compressed = save(generation, StandardGenerationCodec.DEFLATE);
+        Path pattern = dir.resolve("pattern.rle");
+        Files.write(pattern, PatternFormat.RLE.getTranslator().toByteArray(generation));
+        for (Path file : new Path[]{compressed, pattern})
+        {
+            try (FileChannel channel = FileChannel.open(file))
+            {
+                assertNull(GenerationSerializer.map(channel, GenerationSerializer.STANDARD_CODECS));
+                assertEquals(0, channel.position());
+                Generation read = translator.read(channel);
+                assertTrue(read.getPopulation() instanceof PackedPopulation);
+                assertGenerationEquals(generation, read);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(save(generation, StandardGenerationCodec.RAW)))
+        {
+            assertTrue(translator.read(channel).getPopulation() instanceof MappedRowPopulation);
+        }
+    }
+
+    @Test
+    public void testPresenterSaveIsMapped()
+    throws IOException
+    {
+        PackedPopulation population = new PackedPopulation(100, 100);
+        population.randomize(0, 0, 100, 100, new Random().nextLong(), 0.3);
+        Generation generation = new Generation(population, 1, 2);
+        GenerationTranslator translator = new GenerationTranslator(LifePresenter.SAVE_CODEC);
+        Path file = this.dir.resolve("generation.save");
+        StandardFileIO fileIO = new StandardFileIO();
+        try (WritableByteChannel channel = fileIO.newWritableChannel(file))
+        {
+            translator.write(generation, channel);
+        }
+        try (ReadableByteChannel channel = fileIO.newReadableChannel(file))
+        {
+            Generation read = translator.read(channel);
+            assertTrue(read.getPopulation() instanceof MappedRowPopulation);
+            assertGenerationEquals(generation, read);
+        }
+    }
+
+    private static Generation map(Path file)
+    throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file))
+        {
+            return GenerationSerializer.map(channel, GenerationSerializer.STANDARD_CODECS);
+        }
+    }
+
+    private Path saveLegacy(Generation generation)
+    throws IOException
+    {
+        Path file = Files.createTempFile(this.dir, "generation", ".save");
+        Files.write(file, GenerationSerializerTest.toBitSetBytes(generation));
+        return file;
+    }
+
+    private Path save(Generation generation, GenerationCodec codec)
+    throws IOException
+    {
+        Path file = Files.createTempFile(this.dir, "generation", ".save");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            GenerationSerializer.write(generation, channel, codec);
+        }
+        return file;
+    }
+
+    private static void assertGenerationEquals(Generation expected, Generation actual)
+    {
+        assertEquals(expected.getPopulationCount(), actual.getPopulationCount());
+        assertEquals(expected.getHash(), actual.getHash());
+        HashLifeEngineTest.assertPopulationEquals(expected.getPopulation(), actual.getPopulation());
+        HashLifeEngineTest.assertPopulationEquals(expected.getPopulation(), actual.copyPackedPopulation());
+    }
+
+}
@@ -0,0 +1,127 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffHeapGenerationEngineTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testMatchesPackedEngine()
+    {
+        for (int width : new int[]{1, 63, 64, 65, 500 + rng.nextInt(500)})
+        {
+            testMatchesPackedEngine(width, 1 + rng.nextInt(300), LifeRule.CONWAY);
+        }
+        testMatchesPackedEngine(1000, 1000, LifeRule.HIGH_LIFE);
+        testMatchesPackedEngine(700, 300, LifeRule.DAY_AND_NIGHT);
+    }
+
+    private void testMatchesPackedEngine(int width, int height, LifeRule rule)
+    {
+        PackedPopulation expected = new PackedPopulation(width, height);
+        expected.randomize(0, 0, width, height, rng.nextLong(), 0.4);
+        OffHeapPopulation src = OffHeapPopulation.of(expected);
+        OffHeapPopulation dest = src.createBuffer();
+        PackedGenerationEngine packedEngine = new PackedGenerationEngine();
+        OffHeapGenerationEngine engine = new OffHeapGenerationEngine(new ForkJoinPool(3));
+        PackedPopulation expectedDest = new PackedPopulation(width, height);
+        for (int i = 0; i < 4; i++)
+        {
+            long generations = 1 + rng.nextInt(4);
+            PackedPopulation packedResult = packedEngine.calculate(expected, expectedDest, generations, rule);
+            expectedDest = packedResult == expected ? expectedDest : expected;
+            expected = packedResult;
+            OffHeapPopulation result = engine.calculate(src, dest, generations, rule);
+            dest = result == src ? dest : src;
+            src = result;
+
+            HashLifeEngineTest.assertPopulationEquals(expected, result);
+            assertEquals(expected.countPopulation(), engine.getPopulationCount(result));
+            assertEquals(-1, engine.getPopulationCount(dest));
+        }
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        OffHeapPopulation src = new OffHeapPopulation(100, 100);
+        OffHeapGenerationEngine engine = new OffHeapGenerationEngine();
+        assertSame(src, engine.calculate(src, src.createBuffer(), 0));
+        assertEquals(0, engine.getPopulationCount(src));
+        //blinker
+        src.setAlive(10, 10, true);
+        src.setAlive(11, 10, true);
+        src.setAlive(12, 10, true);
+        engine.invalidate();
+        assertEquals(-1, engine.getPopulationCount(src));
+        OffHeapPopulation result = engine.calculate(src, src.createBuffer(), 3);
+        assertEquals(3, engine.getPopulationCount(result));
+        assertEquals(2, engine.getBirthCount());
+        assertEquals(2, engine.getDeathCount());
+        LifeMetrics metrics = new LifeMetrics();
+        engine.updateMetrics(metrics);
+        assertEquals(2, metrics.getLong("engine.cells.born"));
+
+        assertThrows(IllegalArgumentException.class, ()->engine.calculate(src, src, 1));
+        assertThrows(IllegalArgumentException.class, ()->engine.calculate(src, new OffHeapPopulation(100, 99), 1));
+        assertThrows(IllegalArgumentException.class, ()->engine.calculate(src, src.createBuffer(), -1));
+    }
+
+    @Test
+    public void testGeneration()
+    {
+        OffHeapPopulation population = new OffHeapPopulation(300, 200);
+        population.setAlive(299, 199, true);
+        population.setAlive(0, 0, true);
+        population.setAlive(150, 100, true);
+        Generation generation = new Generation
+        (
+            population.copy(),
+            1,
+            2,
+            population.countPopulation(),
+            PopulationHash.hash(population)
+        );
+        Generation copy = Generation.fromByteArray(Generation.toByteArray(generation));
+        HashLifeEngineTest.assertPopulationEquals(population, copy.getPopulation());
+        assertEquals(3, copy.getPopulationCount());
+        assertEquals(generation.getHash(), copy.getHash());
+        HashLifeEngineTest.assertPopulationEquals(population, generation.copyPackedPopulation());
+    }
+
+}
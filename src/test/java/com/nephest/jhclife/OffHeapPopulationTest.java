@@ -0,0 +1,115 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapPopulationTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testCells()
+    {
+        //rows are split between several chunks
+        OffHeapPopulation population = new OffHeapPopulation(130, 10, 9);
+        assertEquals(3, population.getWordsPerRow());
+        assertEquals(30, population.getWordCount());
+        assertEquals(4, population.getChunkCount());
+        population.setAlive(0, 0, true);
+        population.setAlive(129, 9, true);
+        population.setAlive(64, 5, true);
+        assertTrue(population.isAlive(0, 0));
+        assertTrue(population.isAlive(129, 9));
+        assertTrue(population.isAlive(64, 5));
+        assertFalse(population.isAlive(65, 5));
+        assertEquals(3, population.countPopulation());
+        population.setAlive(64, 5, false);
+        assertFalse(population.isAlive(64, 5));
+        assertEquals(2, population.countPopulation());
+
+        assertThrows(IllegalArgumentException.class, ()->population.isAlive(130, 0));
+        assertThrows(IllegalArgumentException.class, ()->population.setAlive(0, 10, true));
+        assertThrows(IllegalArgumentException.class, ()->new OffHeapPopulation(130, 10, 2));
+        assertThrows(IllegalArgumentException.class, ()->new OffHeapPopulation(-1, 10));
+    }
+
+    @Test
+    public void testRows()
+    {
+        int width = 100 + rng.nextInt(300);
+        int height = 50 + rng.nextInt(50);
+        PackedPopulation expected = new PackedPopulation(width, height);
+        expected.randomize(0, 0, width, height, rng.nextLong(), 0.5);
+        OffHeapPopulation population = new OffHeapPopulation(width, height, 64);
+        long[] row = new long[expected.getWordsPerRow()];
+        for (int y = 0; y < height; y++)
+        {
+            expected.copyRow(y, row, 0);
+            //the bits after the last cell are dropped
+            row[row.length - 1] |= ~expected.getLastWordMask();
+            population.setRow(y, row, 0);
+        }
+        HashLifeEngineTest.assertPopulationEquals(expected, population);
+        assertEquals(expected.countPopulation(), population.countPopulation());
+        assertEquals(PopulationHash.hash(expected), PopulationHash.hash(population));
+
+        long[] expectedRow = new long[row.length];
+        for (int y = 0; y < height; y++)
+        {
+            expected.copyRow(y, expectedRow, 0);
+            population.copyRow(y, row, 0);
+            assertArrayEquals(expectedRow, row);
+        }
+        HashLifeEngineTest.assertPopulationEquals(expected, population.toPackedPopulation());
+        HashLifeEngineTest.assertPopulationEquals(expected, OffHeapPopulation.of(expected));
+    }
+
+    @Test
+    public void testCopy()
+    {
+        OffHeapPopulation population = new OffHeapPopulation(200, 30, 16);
+        population.setAlive(199, 29, true);
+        OffHeapPopulation copy = population.copy();
+        HashLifeEngineTest.assertPopulationEquals(population, copy);
+        population.clear();
+        assertEquals(0, population.countPopulation());
+        assertTrue(copy.isAlive(199, 29));
+        assertThrows(IllegalArgumentException.class, ()->copy.copyFrom(new OffHeapPopulation(200, 29)));
+        assertThrows(IllegalArgumentException.class, ()->copy.copyFrom(new OffHeapPopulation(200, 30)));
+    }
+
+}
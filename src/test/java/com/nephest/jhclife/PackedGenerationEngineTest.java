@@ -0,0 +1,296 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackedGenerationEngineTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testActiveTilesMatchFullCalculation()
+    {
+        int width = 200 + rng.nextInt(200);
+        int height = 200 + rng.nextInt(200);
+        PackedPopulation population = new PackedPopulation(width, height);
+        //sparse soup, most of the tiles settle quickly
+        for (int i = 0; i < width * height / 20; i++)
+            population.setAlive(rng.nextInt(width), rng.nextInt(height), true);
+
+        PackedGenerationEngine engine = new PackedGenerationEngine();
+        PackedPopulation tracked = population.copy();
+        PackedPopulation trackedDest = new PackedPopulation(width, height);
+        PackedPopulation full = population.copy();
+        for (int i = 0; i < 200; i++)
+        {
+            PackedPopulation result = engine.calculate(tracked, trackedDest, 1);
+            trackedDest = result == tracked ? trackedDest : tracked;
+            tracked = result;
+
+            PackedPopulation fullDest = new PackedPopulation(width, height);
+            new GenerationCalculator(full, fullDest).invoke();
+            full = fullDest;
+            HashLifeEngineTest.assertPopulationEquals(full, tracked);
+        }
+    }
+
+    @Test
+    public void testHashListener()
+    {
+        int width = 100 + rng.nextInt(200);
+        int height = 100 + rng.nextInt(200);
+        PackedPopulation population = new PackedPopulation(width, height);
+        for (int i = 0; i < width * height / 10; i++)
+            population.setAlive(rng.nextInt(width), rng.nextInt(height), true);
+
+        List<Long> hashes = new ArrayList<>();
+        PackedGenerationEngine engine = new PackedGenerationEngine();
+        engine.setHashListener(hashes::add);
+        PackedPopulation src = population.copy();
+        PackedPopulation dest = new PackedPopulation(width, height);
+        PackedPopulation expected = population.copy();
+        for (int i = 0; i < 5; i++)
+        {
+            PackedPopulation result = engine.calculate(src, dest, 10);
+            dest = result == src ? dest : src;
+            src = result;
+            assertEquals(10 * (i + 1), hashes.size());
+            for (int j = 0; j < 10; j++)
+            {
+                PackedPopulation next = new PackedPopulation(width, height);
+                new GenerationCalculator(expected, next).invoke();
+                expected = next;
+                assertEquals(PopulationHash.hash(expected), hashes.get(i * 10 + j));
+            }
+        }
+    }
+
+    @Test
+    public void testCellInvalidation()
+    {
+        int size = 640;
+        PackedPopulation population = new PackedPopulation(size, size);
+        //block
+        population.setAlive(100, 100, true);
+        population.setAlive(101, 100, true);
+        population.setAlive(100, 101, true);
+        population.setAlive(101, 101, true);
+        PackedGenerationEngine engine = new PackedGenerationEngine();
+        PackedPopulation dest = new PackedPopulation(size, size);
+        PackedPopulation result = engine.calculate(population, dest, 4);
+        assertEquals(0, engine.getActiveTileCount());
+
+        //the border tile wraps around
+        result.setAlive(0, 0, true);
+        result.setAlive(1, 0, true);
+        result.setAlive(2, 0, true);
+        engine.invalidate(1, 0, 0, 3);
+        assertEquals(9, engine.getActiveTileCount());
+        PackedPopulation expected = result.copy();
+        PackedPopulation next = engine.calculate(result, result == population ? dest : population, 1);
+        assertTrue(next.isAlive(1, size - 1));
+        assertTrue(next.isAlive(1, 1));
+        assertTrue(next.isAlive(100, 100));
+        PackedPopulation fullDest = new PackedPopulation(size, size);
+        new GenerationCalculator(expected, fullDest).invoke();
+        HashLifeEngineTest.assertPopulationEquals(fullDest, next);
+    }
+
+    @Test
+    public void testCellInvalidationKeepsHash()
+    {
+        int size = 300;
+        PackedPopulation population = new PackedPopulation(size, size);
+        population.randomize(0, 0, size, size, rng.nextLong(), 0.3);
+        PackedGenerationEngine engine = new PackedGenerationEngine();
+        long[] hash = new long[1];
+        engine.setHashListener((h)->hash[0] = h);
+        PackedPopulation dest = new PackedPopulation(size, size);
+        PackedPopulation result = engine.calculate(population, dest, 3);
+        assertEquals(PopulationHash.hash(result), hash[0]);
+
+        long edited = PopulationHash.update(hash[0], result, 150, 150, !result.isAlive(150, 150));
+        result.setAlive(150, 150, !result.isAlive(150, 150));
+        engine.invalidate(150, 150, edited, result.isAlive(150, 150) ? 1 : -1);
+        result = engine.calculate(result, result == population ? dest : population, 2);
+        assertEquals(PopulationHash.hash(result), hash[0]);
+        assertEquals(result.countPopulation(), engine.getPopulationCount(result));
+    }
+
+    @Test
+    public void testStableTilesAreSkipped()
+    {
+        int size = 640;
+        PackedPopulation population = new PackedPopulation(size, size);
+        //block
+        population.setAlive(100, 100, true);
+        population.setAlive(101, 100, true);
+        population.setAlive(100, 101, true);
+        population.setAlive(101, 101, true);
+        //blinker
+        population.setAlive(400, 400, true);
+        population.setAlive(401, 400, true);
+        population.setAlive(402, 400, true);
+
+        PackedGenerationEngine engine = new PackedGenerationEngine();
+        PackedPopulation result = engine.calculate(population, new PackedPopulation(size, size), 11);
+        assertEquals(100, engine.getTileCount());
+        //blinker tile and its neighbors
+        assertEquals(9, engine.getActiveTileCount());
+        assertTrue(engine.getActiveTiles().get(6 * 10 + 6));
+        assertTrue(result.isAlive(401, 399));
+
+        engine.invalidate();
+        assertEquals(100, engine.getActiveTileCount());
+    }
+
+    @Test
+    public void testPopulationCount()
+    {
+        testPopulationCount(new PackedGenerationEngine());
+    }
+
+    public static void testPopulationCount(PackedGenerationEngine engine)
+    {
+        Random rng = new Random();
+        int width = 200 + rng.nextInt(200);
+        int height = 200 + rng.nextInt(200);
+        PackedPopulation src = new PackedPopulation(width, height);
+        src.randomize(0, 0, width, height, rng.nextLong(), 0.3);
+        PackedPopulation dest = new PackedPopulation(width, height);
+        assertEquals(-1, engine.getPopulationCount(src));
+        for (int i = 0; i < 20; i++)
+        {
+            PackedPopulation result = engine.calculate(src, dest, 1 + rng.nextInt(5), LifeRule.CONWAY);
+            dest = result == src ? dest : src;
+            src = result;
+            assertEquals(src.countPopulation(), engine.getPopulationCount(src));
+            assertEquals(-1, engine.getPopulationCount(dest));
+            if (i % 4 == 1)
+            {
+                int x = rng.nextInt(width);
+                int y = rng.nextInt(height);
+                boolean alive = !src.isAlive(x, y);
+                src.setAlive(x, y, alive);
+                engine.invalidate(x, y, 0, alive ? 1 : -1);
+                //the count is updated without a full pass
+                assertEquals(src.countPopulation(), engine.getPopulationCount(src));
+            }
+            else if (i % 4 == 3)
+            {
+                src.randomize(0, 0, width / 2, height / 2, rng.nextLong(), 0.5);
+                engine.invalidate();
+            }
+        }
+        LifeMetrics metrics = new LifeMetrics();
+        engine.updateMetrics(metrics);
+        assertEquals(engine.getBirthCount(), metrics.getLong("engine.cells.born"));
+        assertEquals(engine.getDeathCount(), metrics.getLong("engine.cells.died"));
+    }
+
+    @Test
+    public void testSequentialAndParallelPaths()
+    {
+        int width = 300;
+        int height = 400;
+        PackedPopulation population = new PackedPopulation(width, height);
+        population.randomize(0, 0, width, height, rng.nextLong(), 0.4);
+        PackedPopulation expected = population.copy();
+        PackedPopulation expectedDest = new PackedPopulation(width, height);
+        for (int i = 0; i < 5; i++)
+        {
+            new GenerationCalculator(expected, expectedDest).invoke();
+            PackedPopulation result = expectedDest;
+            expectedDest = expected;
+            expected = result;
+        }
+
+        for (long threshold : new long[]{0, Long.MAX_VALUE})
+        {
+            PackedGenerationEngine engine = new PackedGenerationEngine(new ForkJoinPool(2));
+            engine.getGranularity().setTuning(false);
+            engine.getGranularity().setSequentialThreshold(threshold);
+            PackedPopulation result = engine.calculate(population.copy(), new PackedPopulation(width, height), 5);
+            HashLifeEngineTest.assertPopulationEquals(expected, result);
+
+            LifeMetrics metrics = new LifeMetrics();
+            engine.updateMetrics(metrics);
+            boolean sequential = threshold > 0;
+            assertEquals(sequential ? 1 : 0, metrics.getLong("engine.forkjoin.sequential"));
+            assertEquals(threshold, metrics.getLong("engine.forkjoin.threshold"));
+            long split = metrics.getLong("engine.forkjoin.split");
+            if (sequential)
+            {
+                assertEquals(ActiveTiles.calculateRowCount(height), split);
+            }
+            else
+            {
+                assertTrue(split >= 1 && split < ActiveTiles.calculateRowCount(height));
+            }
+        }
+    }
+
+    @Test
+    public void testProbedCalls()
+    {
+        int width = 300;
+        int height = 400;
+        PackedPopulation expected = new PackedPopulation(width, height);
+        expected.randomize(0, 0, width, height, rng.nextLong(), 0.4);
+        PackedPopulation expectedDest = new PackedPopulation(width, height);
+        PackedPopulation src = expected.copy();
+        PackedPopulation dest = new PackedPopulation(width, height);
+        PackedGenerationEngine engine = new PackedGenerationEngine(new ForkJoinPool(2));
+        //the board is close to the threshold, so every PROBE_INTERVAL-th call starts with a probe
+        for (int i = 0; i < ForkJoinGranularity.PROBE_INTERVAL * 2; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                new GenerationCalculator(expected, expectedDest).invoke();
+                PackedPopulation result = expectedDest;
+                expectedDest = expected;
+                expected = result;
+            }
+            PackedPopulation result = engine.calculate(src, dest, 3);
+            dest = result == src ? dest : src;
+            src = result;
+            HashLifeEngineTest.assertPopulationEquals(expected, src);
+            assertEquals(src.countPopulation(), engine.getPopulationCount(src));
+        }
+    }
+
+}
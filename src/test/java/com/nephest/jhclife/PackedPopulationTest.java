@@ -0,0 +1,181 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackedPopulationTest
+{
+
+    @Test
+    public void testBordersAreNotVisible()
+    {
+        for (int width : new int[]{1, 63, 64, 65, 128})
+        {
+            PackedPopulation population = new PackedPopulation(width, 3);
+            population.setAlive(0, 0, true);
+            population.setAlive(width - 1, 0, true);
+            population.setAlive(0, 2, true);
+            int[][] expected = population.toArray();
+            long count = population.countPopulation();
+
+            population.updateBorders();
+            assertArrayEquals(expected, population.toArray());
+            assertEquals(count, population.countPopulation());
+            assertArrayEquals(expected, population.copy().toArray());
+        }
+    }
+
+    @Test
+    public void testBordersHoldOppositeEdges()
+    {
+        PackedPopulation population = new PackedPopulation(70, 4);
+        population.setAlive(0, 0, true);
+        population.setAlive(69, 3, true);
+        population.updateBorders();
+        long[] words = population.getWords();
+
+        //west ghost of the last row holds its last cell
+        assertEquals(1L << 63, words[population.getRowOffset(3) - 1]);
+        //ghost bit right after the last cell of the first row
+        assertEquals(1L << 6, words[population.getRowOffset(0) + 1]);
+        //ghost rows
+        assertEquals(words[population.getRowOffset(0) + 1], words[population.getRowOffset(4) + 1]);
+        assertEquals(words[population.getRowOffset(3) - 1], words[population.getRowOffset(-1) - 1]);
+    }
+
+    @Test
+    public void testFill()
+    {
+        PackedPopulation population = new PackedPopulation(200, 10);
+        population.fill(60, 2, 75, 3, true);
+        assertEquals(75 * 3, population.countPopulation());
+        for (int y = 0; y < 10; y++)
+        {
+            for (int x = 0; x < 200; x++)
+                assertEquals(x >= 60 && x < 135 && y >= 2 && y < 5, population.isAlive(x, y));
+        }
+
+        //clipped to the population
+        population.fill(-10, -10, 1000, 1000, true);
+        assertEquals(2000, population.countPopulation());
+        population.fill(190, 9, 100, 100, false);
+        assertEquals(1990, population.countPopulation());
+        population.fill(200, 0, 10, 10, false);
+        population.fill(0, 0, 0, 10, false);
+        assertEquals(1990, population.countPopulation());
+        assertThrows(IllegalArgumentException.class, ()->population.fill(0, 0, -1, 1, true));
+    }
+
+    @Test
+    public void testRandomize()
+    {
+        PackedPopulation first = new PackedPopulation(300, 300);
+        PackedPopulation second = new PackedPopulation(300, 300);
+        first.randomize(10, 10, 200, 200, 42, 0.5);
+        second.randomize(10, 10, 200, 200, 42, 0.5);
+        assertArrayEquals(first.toArray(), second.toArray());
+        long count = first.countPopulation();
+        assertTrue(count > 18000 && count < 22000);
+        first.fill(10, 10, 200, 200, false);
+        assertEquals(0, first.countPopulation());
+
+        second.randomize(10, 10, 200, 200, 43, 0.5);
+        assertNotEquals(count, second.countPopulation());
+        second.randomize(0, 0, 300, 300, 1, 0);
+        assertEquals(0, second.countPopulation());
+        second.randomize(0, 0, 300, 300, 1, 1);
+        assertEquals(300 * 300, second.countPopulation());
+        assertThrows(IllegalArgumentException.class, ()->second.randomize(0, 0, 1, 1, 1, 1.1));
+    }
+
+    @Test
+    public void testParallelRegionEdit()
+    {
+        int size = 4096;
+        assertTrue((long) size * size / PackedPopulation.WORD_SIZE >= PackedPopulation.REGION_PARALLEL_THRESHOLD);
+        PackedPopulation population = new PackedPopulation(size, size);
+        population.fill(1, 1, size - 2, size - 2, true);
+        assertEquals((long) (size - 2) * (size - 2), population.countPopulation());
+
+        PackedPopulation random = new PackedPopulation(size, size);
+        random.randomize(0, 0, size, size, 7, 0.3);
+        PackedPopulation expected = new PackedPopulation(size, size);
+        for (int y = 0; y < size; y += 256) expected.randomize(0, y, size, 256, 7, 0.3);
+        assertArrayEquals(expected.getWords(), random.getWords());
+    }
+
+    @Test
+    public void testStamp()
+    {
+        PackedPopulation pattern = new PackedPopulation(70, 3);
+        pattern.setAlive(0, 0, true);
+        pattern.setAlive(65, 1, true);
+        pattern.setAlive(69, 2, true);
+        PopulationSnapshot stamp = PopulationSnapshot.of(pattern, null);
+
+        for (int x : new int[]{0, 3, 64, 100})
+        {
+            PackedPopulation population = new PackedPopulation(200, 10);
+            population.fill(0, 0, 200, 10, true);
+            population.setAlive(x + 1, 5, false);
+            population.stamp(stamp, x, 4, StampMode.REPLACE);
+            assertEquals(2000 - 70 * 3 + 3, population.countPopulation());
+            assertTrue(population.isAlive(x, 4));
+            assertTrue(population.isAlive(x + 65, 5));
+            assertTrue(population.isAlive(x + 69, 6));
+            assertTrue(population.isAlive(x + 70, 6));
+            assertTrue(population.isAlive(x + 1, 3));
+
+            population = new PackedPopulation(200, 10);
+            population.setAlive(x + 65, 5, true);
+            population.setAlive(x + 1, 5, true);
+            population.stamp(stamp, x, 4, StampMode.OR);
+            assertEquals(4, population.countPopulation());
+            population.stamp(stamp, x, 4, StampMode.XOR);
+            assertEquals(1, population.countPopulation());
+            assertTrue(population.isAlive(x + 1, 5));
+        }
+
+        //clipped to the population
+        PackedPopulation population = new PackedPopulation(100, 10);
+        population.stamp(stamp, -65, -1, StampMode.OR);
+        assertEquals(2, population.countPopulation());
+        assertTrue(population.isAlive(0, 0));
+        assertTrue(population.isAlive(4, 1));
+        population.stamp(stamp, 99, 9, StampMode.OR);
+        assertEquals(3, population.countPopulation());
+        assertTrue(population.isAlive(99, 9));
+    }
+
+}
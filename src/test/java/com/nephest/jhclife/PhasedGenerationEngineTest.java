@@ -0,0 +1,179 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PhasedGenerationEngineTest
+{
+
+    //the engine benchmark is skipped unless this property is true
+    public static final String BENCHMARK_PROPERTY = "com.nephest.jhclife.benchmark";
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testMatchesForkJoinEngine()
+    {
+        //more threads than tile rows leaves some stripes empty
+        for (int threads : new int[]{1, 2, 3, 5})
+        {
+            for (int[] size : new int[][]{{70, 50}, {130, 64 * 7 + 3}, {300, 400}})
+            {
+                testMatchesForkJoinEngine(threads, size[0], size[1]);
+            }
+        }
+    }
+
+    private void testMatchesForkJoinEngine(int threads, int width, int height)
+    {
+        PackedPopulation population = new PackedPopulation(width, height);
+        population.randomize(0, 0, width, height, rng.nextLong(), 0.3);
+        PackedGenerationEngine expectedEngine = new PackedGenerationEngine();
+        PackedPopulation expected = population.copy();
+        PackedPopulation expectedDest = new PackedPopulation(width, height);
+        List<Long> hashes = new ArrayList<>();
+        try (PhasedGenerationEngine engine = new PhasedGenerationEngine(threads))
+        {
+            engine.setHashListener(hashes::add);
+            PackedPopulation src = population;
+            PackedPopulation dest = new PackedPopulation(width, height);
+            for (int i = 0; i < 10; i++)
+            {
+                PackedPopulation result = engine.calculate(src, dest, 5);
+                dest = result == src ? dest : src;
+                src = result;
+
+                PackedPopulation expectedResult = expectedEngine.calculate(expected, expectedDest, 5);
+                expectedDest = expectedResult == expected ? expectedDest : expected;
+                expected = expectedResult;
+                HashLifeEngineTest.assertPopulationEquals(expected, src);
+                assertEquals(PopulationHash.hash(expected), hashes.get(hashes.size() - 1));
+            }
+            assertEquals(50, hashes.size());
+
+            LifeMetrics metrics = new LifeMetrics();
+            engine.updateMetrics(metrics);
+            assertEquals(threads, metrics.getLong("engine.phased.threads"));
+            assertEquals(engine.getTileCount(), metrics.getLong("engine.tiles.total"));
+        }
+    }
+
+    @Test
+    public void testDimensionChange()
+    {
+        try (PhasedGenerationEngine engine = new PhasedGenerationEngine(3))
+        {
+            for (int size : new int[]{200, 64, 700})
+            {
+                PackedPopulation population = new PackedPopulation(size, size);
+                population.randomize(0, 0, size, size, rng.nextLong(), 0.5);
+                PackedPopulation expected = new PackedPopulation(size, size);
+                new GenerationCalculator(population, expected).invoke();
+                PackedPopulation result = engine.calculate(population, new PackedPopulation(size, size), 1);
+                HashLifeEngineTest.assertPopulationEquals(expected, result);
+            }
+        }
+    }
+
+    @Test
+    public void testPopulationCount()
+    {
+        try (PhasedGenerationEngine engine = new PhasedGenerationEngine(3))
+        {
+            PackedGenerationEngineTest.testPopulationCount(engine);
+        }
+    }
+
+    @Test
+    public void testClose()
+    {
+        PhasedGenerationEngine engine = new PhasedGenerationEngine(2);
+        engine.close();
+        assertTrue(engine.isClosed());
+        engine.close();
+        PackedPopulation population = new PackedPopulation(10, 10);
+        assertThrows
+        (
+            IllegalStateException.class,
+            ()->engine.calculate(population, new PackedPopulation(10, 10), 1)
+        );
+        assertThrows(IllegalArgumentException.class, ()->new PhasedGenerationEngine(0));
+    }
+
+    @Test
+    public void testBenchmark()
+    {
+        assumeTrue(Boolean.getBoolean(BENCHMARK_PROPERTY));
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int size : new int[]{128, 256, 512, 1024, 2048})
+        {
+            long forkJoin = benchmark(()->new PackedGenerationEngine(new ForkJoinPool(threads)), size);
+            long phased = benchmark(()->new PhasedGenerationEngine(threads), size);
+            System.out.printf
+            (
+                "%dx%d, %d threads: fork/join %d ns/gen, phased %d ns/gen%n",
+                size, size, threads, forkJoin, phased
+            );
+        }
+    }
+
+    //the best time of 5 runs, every tile is calculated in every generation
+    private long benchmark(Supplier<PackedGenerationEngine> engineSupplier, int size)
+    {
+        PackedGenerationEngine engine = engineSupplier.get();
+        PackedPopulation src = new PackedPopulation(size, size);
+        PackedPopulation dest = new PackedPopulation(size, size);
+        src.randomize(0, 0, size, size, 1, 0.4);
+        int generations = Math.max(200, 50_000_000 / (size * size));
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++)
+        {
+            long begin = System.nanoTime();
+            for (int i = 0; i < generations; i++)
+            {
+                PackedPopulation result = engine.calculate(src, dest, 1);
+                dest = result == src ? dest : src;
+                src = result;
+                engine.invalidate();
+            }
+            best = Math.min(best, (System.nanoTime() - begin) / generations);
+        }
+        if (engine instanceof PhasedGenerationEngine) ((PhasedGenerationEngine) engine).close();
+        return best;
+    }
+
+}
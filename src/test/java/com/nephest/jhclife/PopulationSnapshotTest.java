@@ -0,0 +1,107 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopulationSnapshotTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testCopy()
+    {
+        PackedPopulation population = randomPopulation(1100, 130);
+        population.updateBorders();
+        PopulationSnapshot snapshot = PopulationSnapshot.of(population);
+        assertEquals(1100, snapshot.getWidth());
+        assertEquals(130, snapshot.getHeight());
+        assertEquals(9, snapshot.getTileCount());
+        assertEquals(9, snapshot.getCopiedTileCount());
+        assertEquals(population.countPopulation(), snapshot.getPopulationCount());
+        HashLifeEngineTest.assertPopulationEquals(population, snapshot.toPackedPopulation());
+        for (int x = 0; x < 1100; x++)
+            for (int y = 0; y < 130; y++)
+                assertEquals(population.isAlive(x, y), snapshot.isAlive(x, y));
+
+        long[] expected = new long[population.getWordsPerRow()];
+        long[] actual = new long[population.getWordsPerRow()];
+        population.copyRow(129, expected, 0);
+        snapshot.copyRow(129, actual, 0);
+        assertArrayEquals(expected, actual);
+        assertThrows(IllegalArgumentException.class, ()->snapshot.isAlive(1100, 0));
+        assertThrows(IllegalArgumentException.class, ()->snapshot.copyRow(130, actual, 0));
+    }
+
+    @Test
+    public void testStructuralSharing()
+    {
+        PackedPopulation population = randomPopulation(1000, 200);
+        PopulationSnapshot first = PopulationSnapshot.of(population);
+        //ghost cells are not a part of the population
+        population.updateBorders();
+        PopulationSnapshot second = PopulationSnapshot.of(population, first);
+        assertEquals(0, second.getCopiedTileCount());
+        assertEquals(first.getPopulationCount(), second.getPopulationCount());
+
+        boolean alive = population.isAlive(999, 199);
+        population.setAlive(999, 199, !alive);
+        population.setAlive(10, 10, !population.isAlive(10, 10));
+        PopulationSnapshot third = PopulationSnapshot.of(population, second);
+        assertEquals(2, third.getCopiedTileCount());
+        assertEquals(population.countPopulation(), third.getPopulationCount());
+        assertEquals(!alive, third.isAlive(999, 199));
+        HashLifeEngineTest.assertPopulationEquals(population, third.toPackedPopulation());
+        //snapshots are immutable
+        assertEquals(alive, second.isAlive(999, 199));
+
+        //a known count is taken as is
+        population.setAlive(10, 10, !population.isAlive(10, 10));
+        PopulationSnapshot counted = PopulationSnapshot.of(population, third, 7);
+        assertEquals(1, counted.getCopiedTileCount());
+        assertEquals(7, counted.getPopulationCount());
+
+        PopulationSnapshot resized = PopulationSnapshot.of(new PackedPopulation(10, 10), third);
+        assertEquals(1, resized.getCopiedTileCount());
+        assertEquals(0, resized.getPopulationCount());
+    }
+
+    private PackedPopulation randomPopulation(int width, int height)
+    {
+        PackedPopulation population = new PackedPopulation(width, height);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                population.setAlive(x, y, rng.nextBoolean());
+        return population;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TemporalBlockingEngineTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testAgainstPackedEngine()
+    {
+        int[][] dimensions = new int[][]{{1, 1}, {3, 5}, {63, 20}, {64, 64}, {65, 3}, {130, 70}, {300, 200}};
+        int[][] tileSizes = new int[][]{{1, 1}, {1, 7}, {2, 16}, {32, 128}};
+        int[] depths = new int[]{1, 3, 8, 64};
+        for (int[] dimension : dimensions)
+        {
+            for (int[] tileSize : tileSizes)
+            {
+                int depth = depths[rng.nextInt(depths.length)];
+                long generations = rng.nextInt(3 * depth + 1);
+                testAgainstPackedEngine(dimension[0], dimension[1], tileSize, depth, generations, LifeRule.CONWAY);
+            }
+        }
+    }
+
+    @Test
+    public void testRules()
+    {
+        for (LifeRule rule : new LifeRule[]{LifeRule.HIGH_LIFE, LifeRule.SEEDS, LifeRule.parse("B0/S8")})
+            testAgainstPackedEngine(200, 90, new int[]{2, 16}, 5, 17, rule);
+    }
+
+    private void testAgainstPackedEngine
+    (
+        int width, int height,
+        int[] tileSize,
+        int depth,
+        long generations,
+        LifeRule rule
+    )
+    {
+        PackedPopulation src = new PackedPopulation(width, height);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                src.setAlive(x, y, rng.nextInt(3) == 0);
+
+        PackedPopulation expected = new PackedGenerationEngine()
+            .calculate(src.copy(), new PackedPopulation(width, height), generations, rule);
+        TemporalBlockingEngine engine = new TemporalBlockingEngine();
+        engine.setBlockDepth(depth);
+        engine.setTileSize(tileSize[0], tileSize[1]);
+        PackedPopulation actual = engine
+            .calculate(src.copy(), new PackedPopulation(width, height), generations, rule);
+        HashLifeEngineTest.assertPopulationEquals(expected, actual);
+        assertEquals(expected.countPopulation(), actual.countPopulation());
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        TemporalBlockingEngine engine = new TemporalBlockingEngine();
+        engine.setBlockDepth(4);
+        engine.calculate(new PackedPopulation(100, 100), new PackedPopulation(100, 100), 10);
+        LifeMetrics metrics = new LifeMetrics();
+        engine.updateMetrics(metrics);
+        assertEquals(4, metrics.getLong("engine.block.depth"));
+        //4 + 4 + 2
+        assertEquals(3, metrics.getLong("engine.block.count"));
+    }
+
+    @Test
+    public void testInvalidBlockDepth()
+    {
+        TemporalBlockingEngine engine = new TemporalBlockingEngine();
+        assertThrows(IllegalArgumentException.class, ()->engine.setBlockDepth(0));
+        assertThrows(IllegalArgumentException.class, ()->engine.setBlockDepth(65));
+        assertThrows(IllegalArgumentException.class, ()->engine.setTileSize(0, 1));
+    }
+
+}
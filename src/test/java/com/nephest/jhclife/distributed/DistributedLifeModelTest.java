@@ -0,0 +1,208 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.HashLifeEngineTest;
+import com.nephest.jhclife.PackedGenerationEngine;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.StampMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DistributedLifeModelTest
+{
+
+    public static final int UNIVERSE_WIDTH = 300;
+    public static final int UNIVERSE_HEIGHT = 200;
+    public static final int VIEW_SIZE_MAX = 100;
+
+    private DistributedLifeModel model;
+    private ScheduledExecutorService executorMock;
+
+    @BeforeEach
+    public void init()
+    throws IOException
+    {
+        this.executorMock = mock(ScheduledExecutorService.class);
+        when(this.executorMock.scheduleAtFixedRate(any(), anyLong(), anyLong(), any()))
+            .thenReturn(mock(ScheduledFuture.class));
+        this.model = new DistributedLifeModel
+        (
+            StripeCluster.launch(2),
+            UNIVERSE_WIDTH,
+            UNIVERSE_HEIGHT,
+            VIEW_SIZE_MAX,
+            this.executorMock
+        );
+    }
+
+    @AfterEach
+    public void close()
+    {
+        this.model.close();
+    }
+
+    @Test
+    public void testDimensions()
+    {
+        assertEquals(3, this.model.getScale());
+        assertEquals(100, this.model.getWidth());
+        assertEquals(67, this.model.getHeight());
+        assertEquals(100, this.model.getLastGeneration().getWidth());
+        assertEquals(67, this.model.getLastGeneration().getHeight());
+        assertEquals(UNIVERSE_WIDTH, this.model.getUniverseWidth());
+        assertEquals(UNIVERSE_HEIGHT, this.model.getUniverseHeight());
+    }
+
+    @Test
+    public void testCalculateScale()
+    {
+        assertEquals(1, DistributedLifeModel.calculateScale(100, 50, 100));
+        assertEquals(2, DistributedLifeModel.calculateScale(50, 101, 100));
+        assertThrows(IllegalArgumentException.class, ()->DistributedLifeModel.calculateScale(1, 1, 0));
+    }
+
+    @Test
+    public void testStep()
+    throws IOException
+    {
+        this.model.populate(42, 0.3);
+        PackedPopulation universe = this.model.getCluster().getView(1);
+        PackedPopulation expected = new PackedGenerationEngine()
+            .calculate(universe, new PackedPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT), 12);
+
+        this.model.step(12);
+        assertEquals(12, this.model.getGenerationNumber());
+        assertEquals(expected.countPopulation(), this.model.countUniversePopulation());
+        HashLifeEngineTest.assertPopulationEquals
+        (
+            this.model.getCluster().getView(3),
+            this.model.getLastGeneration().copyPackedPopulation()
+        );
+        HashLifeEngineTest.assertPopulationEquals(expected, this.model.getCluster().getView(1));
+    }
+
+    @Test
+    public void testSetPopulation()
+    throws IOException
+    {
+        this.model.createNewPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT);
+        this.model.setPopulation(10, 20, true);
+        assertTrue(this.model.getLastGeneration().isPopulationAlive(10, 20));
+        assertEquals(1, this.model.countUniversePopulation());
+        assertTrue(this.model.getCluster().getView(1).isAlive(30, 60));
+    }
+
+    @Test
+    public void testRegionEdits()
+    throws IOException
+    {
+        this.model.createNewPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT);
+        long id = this.model.getId();
+        //view regions are scaled to the universe, the second row is in the next stripe
+        this.model.fillRegion(10, 33, 2, 1, true);
+        assertEquals(id + 1, this.model.getId());
+        assertEquals(18, this.model.countUniversePopulation());
+        assertTrue(this.model.getLastGeneration().isPopulationAlive(11, 33));
+        this.model.clearRegion(10, 33, 1, 1);
+        assertEquals(9, this.model.countUniversePopulation());
+        assertFalse(this.model.getLastGeneration().isPopulationAlive(10, 33));
+
+        //the layout does not depend on the stripes
+        long seed = 42;
+        this.model.randomizeRegion(0, 0, 100, 67, seed, 0.3);
+        PackedPopulation expected = new PackedPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT);
+        expected.randomize(0, 0, UNIVERSE_WIDTH, UNIVERSE_HEIGHT, seed, 0.3);
+        HashLifeEngineTest.assertPopulationEquals(expected, this.model.getCluster().getView(1));
+
+        //the stamp crosses the stripe border
+        PackedPopulation stamp = new PackedPopulation(4, 4);
+        stamp.fill(0, 0, 4, 4, true);
+        this.model.stamp(new Generation(stamp, 0, 0), 10, 33, StampMode.XOR);
+        expected.stamp(stamp, 30, 99, StampMode.XOR);
+        HashLifeEngineTest.assertPopulationEquals(expected, this.model.getCluster().getView(1));
+        HashLifeEngineTest.assertPopulationEquals
+        (
+            this.model.getCluster().getView(3),
+            this.model.getLastGeneration().copyPackedPopulation()
+        );
+        assertThrows(IllegalArgumentException.class, ()->this.model.fillRegion(0, 0, -1, 1, true));
+        assertThrows(IllegalArgumentException.class, ()->this.model.randomizeRegion(0, 0, 1, 1, 1, 2));
+    }
+
+    @Test
+    public void testRunningEdits()
+    throws IOException
+    {
+        this.model.createNewPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT);
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        this.model.start();
+        verify(this.executorMock).scheduleAtFixedRate(captor.capture(), anyLong(), anyLong(), any());
+
+        //edits of a running model are sent to the workers before the next generation
+        this.model.fillRegion(10, 33, 2, 1, true);
+        this.model.setPopulation(0, 0, true);
+        assertEquals(0, this.model.countUniversePopulation());
+        PackedPopulation expected = new PackedPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT);
+        expected.fill(30, 99, 6, 3, true);
+        expected.setAlive(0, 0, true);
+        expected = new PackedGenerationEngine()
+            .calculate(expected, new PackedPopulation(UNIVERSE_WIDTH, UNIVERSE_HEIGHT), 1);
+        captor.getValue().run();
+        assertEquals(1, this.model.getGenerationNumber());
+        HashLifeEngineTest.assertPopulationEquals(expected, this.model.getCluster().getView(1));
+        HashLifeEngineTest.assertPopulationEquals
+        (
+            this.model.getCluster().getView(3),
+            this.model.getLastGeneration().copyPackedPopulation()
+        );
+
+        //pending edits are applied when the model is stopped
+        this.model.clearRegion(0, 0, 100, 67);
+        this.model.stop();
+        assertEquals(0, this.model.countUniversePopulation());
+        assertEquals(0, this.model.getLastGeneration().getPopulationCount());
+        verify(this.executorMock, times(1)).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void testSetEngine()
+    {
+        assertThrows(IllegalArgumentException.class, ()->this.model.setEngine(new PackedGenerationEngine()));
+    }
+
+}
@@ -0,0 +1,223 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.distributed;
+
+import com.nephest.jhclife.GenerationKernel;
+import com.nephest.jhclife.HashLifeEngineTest;
+import com.nephest.jhclife.LifeRule;
+import com.nephest.jhclife.PackedGenerationEngine;
+import com.nephest.jhclife.PackedPopulation;
+import com.nephest.jhclife.ScalarGenerationKernel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripeClusterTest
+{
+
+    private static StripeCluster cluster;
+    private static StripeCluster singleCluster;
+
+    private final Random rng = new Random();
+
+    @BeforeAll
+    public static void launch()
+    throws IOException
+    {
+        cluster = StripeCluster.launch(3);
+        singleCluster = StripeCluster.launch(1);
+    }
+
+    @AfterAll
+    public static void close()
+    {
+        cluster.close();
+        singleCluster.close();
+    }
+
+    @Test
+    public void testAgainstPackedEngine()
+    throws IOException
+    {
+        for (LifeRule rule : new LifeRule[]{LifeRule.CONWAY, LifeRule.HIGH_LIFE})
+        {
+            for (int[] dimension : new int[][]{{130, 50}, {64, 3}, {7, 200}})
+            {
+                PackedPopulation population = randomPopulation(dimension[0], dimension[1]);
+                PackedPopulation expected = new PackedGenerationEngine()
+                    .calculate(population.copy(), new PackedPopulation(dimension[0], dimension[1]), 17, rule);
+
+                cluster.load(population);
+                cluster.step(17, rule);
+                HashLifeEngineTest.assertPopulationEquals(expected, cluster.getView(1));
+                assertEquals(expected.countPopulation(), cluster.countPopulation());
+            }
+        }
+    }
+
+    @Test
+    public void testSingleWorkerTorus()
+    throws IOException
+    {
+        PackedPopulation population = randomPopulation(100, 40);
+        PackedPopulation expected = new PackedGenerationEngine()
+            .calculate(population.copy(), new PackedPopulation(100, 40), 9);
+        singleCluster.load(population);
+        singleCluster.step(9, LifeRule.CONWAY);
+        HashLifeEngineTest.assertPopulationEquals(expected, singleCluster.getView(1));
+    }
+
+    @Test
+    public void testPopulateDoesNotDependOnWorkers()
+    throws IOException
+    {
+        long seed = rng.nextLong();
+        cluster.create(90, 61);
+        cluster.populate(seed, 0.3);
+        singleCluster.create(90, 61);
+        singleCluster.populate(seed, 0.3);
+        PackedPopulation view = cluster.getView(1);
+        HashLifeEngineTest.assertPopulationEquals(singleCluster.getView(1), view);
+        assertTrue(view.countPopulation() > 0);
+    }
+
+    @Test
+    public void testView()
+    throws IOException
+    {
+        int scale = 4;
+        PackedPopulation population = randomPopulation(101, 53);
+        cluster.load(population);
+        cluster.setAlive(100, 52, true);
+        population.setAlive(100, 52, true);
+        PackedPopulation view = cluster.getView(scale);
+        assertEquals(26, view.getWidth());
+        assertEquals(14, view.getHeight());
+        for (int x = 0; x < view.getWidth(); x++)
+        {
+            for (int y = 0; y < view.getHeight(); y++)
+            {
+                boolean alive = false;
+                for (int dx = 0; dx < scale && x * scale + dx < 101; dx++)
+                    for (int dy = 0; dy < scale && y * scale + dy < 53; dy++)
+                        alive |= population.isAlive(x * scale + dx, y * scale + dy);
+                assertEquals(alive, view.isAlive(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testFailedStep()
+    throws Exception
+    {
+        //the kernel of the second worker fails once in the middle of the step
+        AtomicInteger calls = new AtomicInteger();
+        GenerationKernel scalar = new ScalarGenerationKernel();
+        GenerationKernel failing = (src, dest, up, cur, down, begin, end, changed, offset, counts, rule)->
+        {
+            if (calls.incrementAndGet() == 500) throw new IllegalStateException("kernel failure");
+            scalar.calculate(src, dest, up, cur, down, begin, end, changed, offset, counts, rule);
+        };
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (GenerationKernel kernel : new GenerationKernel[]{scalar, failing})
+        {
+            ServerSocket control = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), control.getLocalPort()));
+            Thread thread = new Thread(()->
+            {
+                try (control; Socket socket = control.accept(); StripeWorker worker = new StripeWorker(kernel))
+                {
+                    worker.serve(socket);
+                }
+                catch (IOException ex)
+                {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        StripeCluster failingCluster = StripeCluster.connect(addresses);
+        try
+        {
+            PackedPopulation population = randomPopulation(640, 100);
+            failingCluster.load(population);
+            //the neighbor doesn't wait for the halos of the failed stripe
+            assertTimeoutPreemptively
+            (
+                Duration.ofSeconds(30),
+                ()->assertThrows(IOException.class, ()->failingCluster.step(100, LifeRule.CONWAY))
+            );
+            assertThrows(IllegalStateException.class, ()->failingCluster.step(1, LifeRule.CONWAY));
+
+            //both workers are alive, the halos are connected again
+            PackedPopulation expected = new PackedGenerationEngine()
+                .calculate(population.copy(), new PackedPopulation(640, 100), 5);
+            failingCluster.load(population);
+            failingCluster.step(5, LifeRule.CONWAY);
+            HashLifeEngineTest.assertPopulationEquals(expected, failingCluster.getView(1));
+        }
+        finally
+        {
+            failingCluster.close();
+        }
+        for (Thread thread : threads) thread.join();
+    }
+
+    @Test
+    public void testInvalidDimensions()
+    {
+        assertThrows(IllegalArgumentException.class, ()->cluster.create(10, 2));
+        assertThrows(IllegalArgumentException.class, ()->cluster.create(0, 10));
+    }
+
+    private PackedPopulation randomPopulation(int width, int height)
+    {
+        PackedPopulation population = new PackedPopulation(width, height);
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                population.setAlive(x, y, rng.nextInt(3) == 0);
+        return population;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RunLengthStreamTest
+{
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testRoundTrip()
+    throws IOException
+    {
+        //runs and literals around the token limits
+        for (int length : new int[]{0, 1, 3, 4, 5, 127, 128, 129, 256, 300, 100000})
+        {
+            byte[] run = new byte[length];
+            Arrays.fill(run, (byte) 7);
+            assertRoundTrip(run);
+
+            byte[] literals = new byte[length];
+            for (int i = 0; i < length; i++) literals[i] = (byte) i;
+            assertRoundTrip(literals);
+        }
+
+        byte[] mixed = new byte[200000];
+        for (int i = 0; i < mixed.length; )
+        {
+            int length = 1 + rng.nextInt(300);
+            byte value = rng.nextBoolean() ? 0 : (byte) rng.nextInt();
+            for (int j = 0; j < length && i < mixed.length; j++, i++)
+                mixed[i] = rng.nextInt(4) == 0 ? (byte) rng.nextInt() : value;
+        }
+        assertRoundTrip(mixed);
+    }
+
+    @Test
+    public void testRunLength()
+    throws IOException
+    {
+        //a long run is a single token
+        byte[] bytes = encode(new byte[1 << 20], 1 << 20);
+        assertEquals(1 + 3 + 1, bytes.length);
+        assertEquals(RunLengthOutputStream.RUN_TOKEN, bytes[0] & 0xFF);
+    }
+
+    @Test
+    public void testTruncatedInput()
+    throws IOException
+    {
+        byte[] literals = new byte[100];
+        for (int i = 0; i < literals.length; i++) literals[i] = (byte) i;
+        byte[] bytes = encode(literals, 7);
+        assertThrows(EOFException.class, ()->decode(Arrays.copyOf(bytes, 50)));
+
+        byte[] run = encode(new byte[1000], 7);
+        assertThrows(EOFException.class, ()->decode(Arrays.copyOf(run, run.length - 1)));
+        assertThrows(IOException.class, ()->decode(new byte[]{(byte) 0x81}));
+    }
+
+    private static void assertRoundTrip(byte[] bytes)
+    throws IOException
+    {
+        //single bytes and blocks of any size are written
+        for (int block : new int[]{1, 7, 1 << 16})
+            assertArrayEquals(bytes, decode(encode(bytes, block)));
+    }
+
+    private static byte[] encode(byte[] bytes, int block)
+    throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RunLengthOutputStream rle = new RunLengthOutputStream(out))
+        {
+            for (int i = 0; i < bytes.length; i += block)
+            {
+                int length = Math.min(block, bytes.length - i);
+                if (length == 1)
+                {
+                    rle.write(bytes[i]);
+                }
+                else
+                {
+                    rle.write(bytes, i, length);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(byte[] bytes)
+    throws IOException
+    {
+        try (InputStream in = new RunLengthInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return in.readAllBytes();
+        }
+    }
+
+}
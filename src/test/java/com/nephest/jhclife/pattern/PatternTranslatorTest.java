@@ -0,0 +1,184 @@
+/*-
+ * =========================LICENSE_START=========================
+ * jhc-life
+ * %%
+ * Copyright (C) 2018 - 2021 Oleksandr Masniuk
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * =========================LICENSE_END=========================
+ */
+
+package com.nephest.jhclife.pattern;
+
+import com.nephest.jhclife.Generation;
+import com.nephest.jhclife.GenerationTranslator;
+import com.nephest.jhclife.HashLifeEngineTest;
+import com.nephest.jhclife.PackedPopulation;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PatternTranslatorTest
+{
+
+    //columns of .O. ..O OOO
+    public static final int[][] GLIDER = new int[][]
+    {
+        {0, 0, 1},
+        {1, 0, 1},
+        {0, 1, 1}
+    };
+
+    private final Random rng = new Random();
+
+    @Test
+    public void testRle()
+    {
+        String rle = "#N Glider\n#C comment\nx = 3, y = 3, rule = B3/S23\nbo$2bo$3o!\n";
+        assertPopulationEquals(GLIDER, read(PatternFormat.RLE, rle));
+
+        //runs wrap lines and skip empty rows, multi-state cells are alive
+        String wrapped = "x = 70, y = 5\n\n64b6o\n3$\nA69.!";
+        PackedPopulation population = new PackedPopulation(70, 5);
+        population.fill(64, 0, 6, 1, true);
+        population.setAlive(0, 3, true);
+        HashLifeEngineTest.assertPopulationEquals(population, read(PatternFormat.RLE, wrapped).getPopulation());
+
+        for (String invalid : new String[]{"bo$2bo!", "x = 3\nbo!", "x = 2, y = 1\n3o!", "x = 3, y = 1\no$o!", "x = 3, y = 1\no?!"})
+            assertThrows(IllegalArgumentException.class, ()->read(PatternFormat.RLE, invalid), invalid);
+    }
+
+    @Test
+    public void testRleLines()
+    {
+        PackedPopulation population = new PackedPopulation(1000, 50);
+        population.randomize(0, 0, 1000, 50, rng.nextLong(), 0.5);
+        String rle = write(PatternFormat.RLE, new Generation(population, 1, 2));
+        for (String line : rle.split("\n"))
+            assertTrue(line.length() <= RlePatternTranslator.MAX_LINE_LENGTH, line);
+        assertTrue(rle.endsWith("!\n"));
+    }
+
+    @Test
+    public void testPlaintext()
+    {
+        String plaintext = "!Name: Glider\n!\n.O\n..O\nOOO\n";
+        assertPopulationEquals(GLIDER, read(PatternFormat.PLAINTEXT, plaintext));
+        assertThrows(IllegalArgumentException.class, ()->read(PatternFormat.PLAINTEXT, ".O\n.X\n"));
+    }
+
+    @Test
+    public void testLife106()
+    {
+        //coordinates are shifted to the bounding box
+        String life = "#Life 1.06\n0 -1\n1 0\r\n-1 1\n0 1\n1 1\n";
+        assertPopulationEquals(GLIDER, read(PatternFormat.LIFE_106, life));
+        assertEquals(0, read(PatternFormat.LIFE_106, "#Life 1.06\n").getWidth());
+        for (String invalid : new String[]{"#Life 1.06\n1\n", "#Life 1.06\n1 2 3\n", "#Life 1.06\n1 x\n"})
+            assertThrows(IllegalArgumentException.class, ()->read(PatternFormat.LIFE_106, invalid), invalid);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        for (int[] size : new int[][]{{1, 1}, {64, 64}, {130, 70}, {3, 500}})
+        {
+            for (double density : new double[]{0.03, 0.5, 1.0})
+            {
+                PackedPopulation population = new PackedPopulation(size[0], size[1]);
+                population.randomize(0, 0, size[0], size[1], rng.nextLong(), density);
+                //Life 1.06 keeps the bounding box only, so the corners are alive
+                population.setAlive(0, 0, true);
+                population.setAlive(size[0] - 1, size[1] - 1, true);
+                Generation generation = new Generation(population, 1, 2);
+                for (PatternFormat format : PatternFormat.values())
+                {
+                    byte[] bytes = format.getTranslator().toByteArray(generation);
+                    assertEquals(format, PatternFormat.detect(bytes, Math.min(bytes.length, PatternFormat.DETECT_SIZE)));
+                    Generation copy = format.getTranslator().fromByteArray(bytes);
+                    HashLifeEngineTest.assertPopulationEquals(population, copy.getPopulation());
+                    assertEquals(generation.getPopulationCount(), copy.getPopulationCount());
+                    assertEquals(generation.getHash(), copy.getHash());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDetection()
+    {
+        //saves and patterns are read by the generation translator
+        GenerationTranslator translator = new GenerationTranslator();
+        PackedPopulation population = new PackedPopulation(100, 200);
+        population.randomize(0, 0, 100, 200, rng.nextLong(), 0.2);
+        Generation generation = new Generation(population, 1, 2);
+        HashLifeEngineTest.assertPopulationEquals
+            (population, translator.fromByteArray(translator.toByteArray(generation)).getPopulation());
+        for (PatternFormat format : PatternFormat.values())
+        {
+            byte[] bytes = format.getTranslator().toByteArray(generation);
+            HashLifeEngineTest.assertPopulationEquals(population, translator.fromByteArray(bytes).getPopulation());
+        }
+
+        assertNull(PatternFormat.detect(new byte[]{1, 2, 3}, 3));
+        assertNull(detect("#Life 1.05\n#P 0 0\n.*\n"));
+        assertEquals(PatternFormat.RLE, detect("#N name\nx=1,y=1\no!"));
+        assertEquals(PatternFormat.PLAINTEXT, detect("\n.O.\n"));
+        assertThrows(IllegalArgumentException.class, ()->translator.fromByteArray("hello".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testFileName()
+    {
+        assertEquals(PatternFormat.RLE, PatternFormat.fromFileName("glider.RLE"));
+        assertEquals(PatternFormat.PLAINTEXT, PatternFormat.fromFileName("glider.cells"));
+        assertEquals(PatternFormat.LIFE_106, PatternFormat.fromFileName("a.b.lif"));
+        assertNull(PatternFormat.fromFileName("life-generation-1-2"));
+        assertNull(PatternFormat.fromFileName(null));
+    }
+
+    private static PatternFormat detect(String str)
+    {
+        byte[] bytes = str.getBytes(StandardCharsets.US_ASCII);
+        return PatternFormat.detect(bytes, bytes.length);
+    }
+
+    private static Generation read(PatternFormat format, String str)
+    {
+        return format.getTranslator().fromByteArray(str.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String write(PatternFormat format, Generation generation)
+    {
+        return new String(format.getTranslator().toByteArray(generation), StandardCharsets.US_ASCII);
+    }
+
+    private static void assertPopulationEquals(int[][] expected, Generation generation)
+    {
+        HashLifeEngineTest.assertPopulationEquals
+            (PackedPopulation.fromArray(expected), generation.getPopulation());
+    }
+
+}